@@ -38,7 +38,7 @@
             deathCounter = 0;
         }
 
-        $.writeToFile(deathCounter.toFixed(0), deathFile, false);
+        $.writeLatestToFile(deathCounter.toFixed(0), deathFile);
     }
 
     /*
@@ -173,6 +173,25 @@
         }
     }
 
+    /**
+     * @function writeLatestToFile
+     * @export $
+     * @param {string} line
+     * @param {string} path
+     */
+    function writeLatestToFile(line, path) {
+        if (invalidLocation(path)) {
+            $.consoleLn('[' + $.findCaller() + '] Blocked writeLatestToFile() target outside of validPaths: ' + path);
+            return;
+        }
+
+        try {
+            Packages.com.gmt2001.JSFileSystem.WriteLatestToFile($.javaString(path), $.javaString(line));
+        } catch (e) {
+            $.log.error('[' + $.findCaller() + '] Failed to write to \'' + path + '\': ' + e);
+        }
+    }
+
     /**
      * @function touchFile
      * @export $
@@ -304,4 +323,5 @@
     $.saveArray = saveArray;
     $.touchFile = touchFile;
     $.writeToFile = writeToFile;
+    $.writeLatestToFile = writeLatestToFile;
 })();
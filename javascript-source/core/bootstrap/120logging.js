@@ -80,13 +80,21 @@
         return !Packages.com.gmt2001.PathValidator.isValidPathScript($.javaString(path));
     }
 
-    function writeToFile(line, path, append) {
-        if (invalidLocation(path)) {
-            Packages.com.gmt2001.Console.err.printlnRhino('Failed to write to \'' + path + '\': Outside of valid paths');
-            return;
-        }
-
+    function writeToFile(line, path, append, flush) {
         try {
+            if (append) {
+                if (!Packages.com.gmt2001.JSFileSystem.AppendLineToFile($.javaString(path), $.javaString(line), flush === true)) {
+                    Packages.com.gmt2001.Console.err.printlnRhino('Failed to write to \'' + path + '\': Outside of valid paths');
+                }
+
+                return;
+            }
+
+            if (invalidLocation(path)) {
+                Packages.com.gmt2001.Console.err.printlnRhino('Failed to write to \'' + path + '\': Outside of valid paths');
+                return;
+            }
+
             Packages.com.gmt2001.JSFileSystem.WriteLineToFile($.javaString(path), $.javaString(line), append);
         } catch (e) {
             Packages.com.gmt2001.Console.err.printlnRhino('Failed to write to \'' + path + '\': ' + e);
@@ -105,8 +113,6 @@
             return;
         }
 
-        Packages.com.gmt2001.JSFileSystem.MakeDir($.javaString('./logs/' + filePrefix));
-
         writeToFile('[' + getLogEntryTimeDateString() + '] ' + message, './logs/' + filePrefix + '/' + getLogDateString() + '.txt', true);
     }
 
@@ -121,8 +127,6 @@
             return;
         }
 
-        Packages.com.gmt2001.JSFileSystem.MakeDir($.javaString('./logs/js-event'));
-
         try {
             throw new Error('eventlog');
         } catch (e) {
@@ -143,15 +147,13 @@
             return;
         }
 
-        Packages.com.gmt2001.JSFileSystem.MakeDir($.javaString('./logs/js-error'));
-
         try {
             throw new Error('errorlog');
         } catch (e) {
             sourceFile = e.stack.split('\n')[1].split('@')[1];
         }
 
-        writeToFile('[' + getLogEntryTimeDateString() + '] [' + sourceFile.trim() + '] ' + message, './logs/js-error/' + getLogDateString() + '.txt', true);
+        writeToFile('[' + getLogEntryTimeDateString() + '] [' + sourceFile.trim() + '] ' + message, './logs/js-error/' + getLogDateString() + '.txt', true, true);
         Packages.com.gmt2001.Console.err.printlnRhino(java.util.Objects.toString('[' + sourceFile.trim() + '] ' + message));
     }
 
@@ -166,15 +168,13 @@
             return;
         }
 
-        Packages.com.gmt2001.JSFileSystem.MakeDir($.javaString('./logs/js-warning'));
-
         try {
             throw new Error('warninglog');
         } catch (e) {
             sourceFile = e.stack.split('\n')[1].split('@')[1];
         }
 
-        writeToFile('[' + getLogEntryTimeDateString() + '] [' + sourceFile.trim() + '] ' + message, './logs/js-warning/' + getLogDateString() + '.txt', true);
+        writeToFile('[' + getLogEntryTimeDateString() + '] [' + sourceFile.trim() + '] ' + message, './logs/js-warning/' + getLogDateString() + '.txt', true, true);
         Packages.com.gmt2001.Console.warn.printlnRhino(java.util.Objects.toString(message));
     }
 
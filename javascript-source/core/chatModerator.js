@@ -20,8 +20,7 @@
 (function () {
     var permitList = [],
             timeouts = [],
-            whiteList = [],
-            blackList = [],
+            listMatcher = Packages.tv.phantombot.scripts.core.ModerationListMatcher.instance(),
             spamTracker = {},
             linksToggle = $.getSetIniDbBoolean('chatModerator', 'linksToggle', false),
             linksMessage = $.getSetIniDbString('chatModerator', 'linksMessage', 'you were timed out for linking.'),
@@ -310,51 +309,14 @@
      * @function loadBlackList
      */
     function loadBlackList() {
-        var keys = $.inidb.GetKeyList('blackList', '');
-        blackList = [];
-
-        for (i = 0; i < keys.length; i++) {
-            var json = JSON.parse($.getIniDbString('blackList', keys[i]));
-
-            if (json !== null) {
-                if (json.isRegex) {
-                    try {
-                        json.phrase = new RegExp(json.phrase.replace('regex:', ''));
-                    } catch (ex) {
-                        // Failed to create regex, use as non-regex.
-                        json.phrase = json.phrase.replace('regex:', '').toLowerCase();
-                        json.isRegex = false;
-                        continue;
-                    }
-                } else {
-                    json.phrase = json.phrase.toLowerCase();
-                }
-                json.isBan = parseInt(json.timeout) === -1;
-
-                blackList.push(json);
-            }
-        }
-    }
-
-    /**
-     * @function addToWhiteList
-     *
-     * @param {string} url
-     */
-    function addToWhiteList(url) {
-        whiteList.push(new RegExp(url.replace(/[-\/\\^$*+?.()|[\]{}]/g, '\\$&'), 'g'));
+        listMatcher.reload();
     }
 
     /**
      * @function loadWhiteList
      */
     function loadWhiteList() {
-        var keys = $.inidb.GetKeyList('whiteList', '');
-        whiteList = [];
-
-        for (i = 0; i < keys.length; i++) {
-            addToWhiteList(keys[i] + '');
-        }
+        listMatcher.reload();
     }
 
     function timeoutDeleteUser(username, time, reason, tags) {
@@ -512,52 +474,32 @@
      * @param {map} tags
      */
     function checkBlackList(sender, event, message, tags) {
-        for (i in blackList) {
-            if (blackList[i].isRegex) {
-                if ($.test(message, blackList[i].phrase)) {
-                    if (blackList[i].excludeRegulars && $.checkUserPermission(sender, tags, $.PERMISSION.Regular) || blackList[i].excludeSubscribers && $.checkUserPermission(sender, tags, $.PERMISSION.Sub) || blackList[i].excludeVips && $.checkUserPermission(sender, tags, $.PERMISSION.VIP)) {
-                        return false;
-                    }
+        var match = listMatcher.matchBlacklist(message),
+                entry;
 
-                    try {
-                        if (blackList[i].isBan) {
-                            banUser(sender, blackList[i].banReason);
-                            warning = $.lang.get('chatmoderator.ban');
-                            sendMessage(sender, blackList[i].message, blackList[i].isSilent);
-                        } else {
-                            timeoutDeleteUser(sender, blackList[i].timeout, blackList[i].banReason, tags);
-                            warning = $.lang.get('chatmoderator.timeout');
-                            sendMessage(sender, blackList[i].message, blackList[i].isSilent);
-                        }
-                        return true;
-                    } finally {
-                        event.moderated();
-                    }
-                }
-            } else {
-                if (message.indexOf(blackList[i].phrase) !== -1) {
-                    if (blackList[i].excludeRegulars && $.checkUserPermission(sender, tags, $.PERMISSION.Regular) || blackList[i].excludeSubscribers && $.checkUserPermission(sender, tags, $.PERMISSION.Sub) || blackList[i].excludeVips && $.checkUserPermission(sender, tags, $.PERMISSION.VIP)) {
-                        return false;
-                    }
+        if (match === null) {
+            return false;
+        }
 
-                    try {
-                        if (blackList[i].isBan) {
-                            banUser(sender, blackList[i].banReason);
-                            warning = $.lang.get('chatmoderator.ban');
-                            sendMessage(sender, blackList[i].message, blackList[i].isSilent);
-                        } else {
-                            timeoutDeleteUser(sender, blackList[i].timeout, blackList[i].banReason, tags);
-                            warning = $.lang.get('chatmoderator.timeout');
-                            sendMessage(sender, blackList[i].message, blackList[i].isSilent);
-                        }
-                        return true;
-                    } finally {
-                        event.moderated();
-                    }
-                }
+        entry = JSON.parse(match);
+        if (entry.excludeRegulars && $.checkUserPermission(sender, tags, $.PERMISSION.Regular) || entry.excludeSubscribers && $.checkUserPermission(sender, tags, $.PERMISSION.Sub) || entry.excludeVips && $.checkUserPermission(sender, tags, $.PERMISSION.VIP)) {
+            return false;
+        }
+
+        try {
+            if (parseInt(entry.timeout) === -1) {
+                banUser(sender, entry.banReason);
+                warning = $.lang.get('chatmoderator.ban');
+                sendMessage(sender, entry.message, entry.isSilent);
+            } else {
+                timeoutDeleteUser(sender, entry.timeout, entry.banReason, tags);
+                warning = $.lang.get('chatmoderator.timeout');
+                sendMessage(sender, entry.message, entry.isSilent);
             }
+            return true;
+        } finally {
+            event.moderated();
         }
-        return false;
     }
 
     /**
@@ -566,31 +508,7 @@
      * @param {string} message
      */
     function checkWhiteList(message) {
-        function checkLink(link, whiteListItem) {
-            var baseLink = $.match(link, /[^.]*[^/]*/)[0];
-            var matches = $.matchAll(link, whiteListItem);
-            for (k = 0; k < matches.length; k++) {
-                var matchStart = matches[k].index;
-                var matchEnd = matches[k].index + matches[k][0].length;
-                if (matchStart < baseLink.length && matchEnd >= baseLink.length) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-        var links = $.patternDetector.getLinks(message);
-        for (i = 0; i < whiteList.length; i++) {
-            for (j = 0; j < links.length; j++) {
-                if (checkLink(links[j], whiteList[i])) {
-                    links.splice(j--, 1);
-                }
-            }
-            if (links.length === 0) {
-                return true;
-            }
-        }
-        return false;
+        return listMatcher.isWhitelisted(message);
     }
 
     /**
@@ -1174,7 +1092,6 @@
                 }
                 var link = argString.split(' ').slice(1).join(' ').toLowerCase() + '';
                 $.inidb.set('whiteList', link, 'true');
-                addToWhiteList(link);
                 $.say($.whisperPrefix(sender) + $.lang.get('chatmoderator.whitelist.link.added'));
                 $.log.event('"' + link + '" was added the the whitelist by ' + sender);
             }
@@ -25,6 +25,6 @@
      * Logs timestamp for PONG
      */
     $.bind('ircPong', function (event) {
-        $.writeToFile($.systemTime(), './addons/healthcheck.txt', false);
+        $.writeLatestToFile($.systemTime(), './addons/healthcheck.txt');
     });
 })();
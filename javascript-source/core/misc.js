@@ -98,12 +98,12 @@
         return $.followers.follows(username);
     }
 
-    /**
-     * @function say
-     * @export $
+    /*
+     * @function sayPriority
      * @param {string} message
+     * @param {Packages.tv.phantombot.twitch.irc.chat.utils.Message.Priority} priority
      */
-    function say(message) {
+    function sayPriority(message, priority) {
         if (message === undefined || message === null) {
             return;
         }
@@ -113,14 +113,14 @@
         }
 
         if (respond && !action) {
-            Packages.tv.phantombot.PhantomBot.instance().getSession().say(message);
+            Packages.tv.phantombot.PhantomBot.instance().getSession().say(message, priority);
         } else {
             if (respond && action) {
                 // If the message is a Twitch command, remove the /me.
                 if (message.startsWith('.') || message.startsWith('/')) {
-                    Packages.tv.phantombot.PhantomBot.instance().getSession().say(message);
+                    Packages.tv.phantombot.PhantomBot.instance().getSession().say(message, priority);
                 } else {
-                    Packages.tv.phantombot.PhantomBot.instance().getSession().say('/me ' + message);
+                    Packages.tv.phantombot.PhantomBot.instance().getSession().say('/me ' + message, priority);
                 }
             }
             if (!respond) {
@@ -132,6 +132,25 @@
         $.log.file('chat', '' + $.botName.toLowerCase() + ': ' + message);
     }
 
+    /**
+     * @function say
+     * @export $
+     * @param {string} message
+     */
+    function say(message) {
+        sayPriority(message, Packages.tv.phantombot.twitch.irc.chat.utils.Message.Priority.NORMAL);
+    }
+
+    /**
+     * @function sayLowPriority
+     * @export $
+     * @param {string} message
+     * @info Queues the message behind all other chat messages; it may be dropped if it can not be sent before the `chatqueuettl` expires
+     */
+    function sayLowPriority(message) {
+        sayPriority(message, Packages.tv.phantombot.twitch.irc.chat.utils.Message.Priority.LOW);
+    }
+
     /**
      * @function sayWithTimeout
      * @export $
@@ -475,6 +494,7 @@
     $.randInterval = randInterval;
     $.randRange = randRange;
     $.say = say;
+    $.sayLowPriority = sayLowPriority;
     $.trueRand = trueRand;
     $.trueRandElement = trueRandElement;
     $.trueRandRange = trueRandRange;
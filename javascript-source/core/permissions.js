@@ -28,12 +28,10 @@
 (function () {
     let userGroups = [],
             modeOUsers = new Packages.java.util.concurrent.CopyOnWriteArrayList(),
-            subUsers = new Packages.java.util.concurrent.CopyOnWriteArrayList(),
-            vipUsers = new Packages.java.util.concurrent.CopyOnWriteArrayList(),
-            moderatorsCache = new Packages.java.util.concurrent.CopyOnWriteArrayList(),
             botList = new Packages.java.util.concurrent.CopyOnWriteArrayList(),
             lastJoinPart = $.systemTime(),
             isUpdatingUsers = false,
+            lastUsersUpdateSequence = -1,
             _isSwappedSubscriberVIP = $.getSetIniDbBoolean('settings', 'isSwappedSubscriberVIP', true),
             _usersGroupsLock = new Packages.java.util.concurrent.locks.ReentrantLock();
 
@@ -53,6 +51,8 @@
         None: 99
     };
 
+    $.permission.setSubVIPIds(PERMISSION.Sub, PERMISSION.VIP);
+
     /**
      * @function cleanTwitchBots
      */
@@ -395,36 +395,7 @@
      * A lower group id indicates a higher level of permissions
      */
     function getUserGroupId(username, tags) {
-
-        if (isOwner(username) || isBot(username)) {
-            return PERMISSION.Caster;
-        }
-
-        let id = PERMISSION.Viewer;
-
-        if (id > PERMISSION.Caster && isCaster(username)) {
-            id = PERMISSION.Caster;
-        }
-        if (id > PERMISSION.Admin && isAdmin(username)) {
-            id = PERMISSION.Admin;
-        }
-        if (id > PERMISSION.Mod && isMod(username, tags)) {
-            id = PERMISSION.Mod;
-        }
-        if (id > PERMISSION.Sub && isSub(username, tags)) {
-            id = PERMISSION.Sub;
-        }
-        if (id > PERMISSION.Donator && isDonator(username)) {
-            id = PERMISSION.Donator;
-        }
-        if (id > PERMISSION.VIP && isVIP(username, tags)) {
-            id = PERMISSION.VIP;
-        }
-        if (id > PERMISSION.Regular && isRegular(username)) {
-            id = PERMISSION.Regular;
-        }
-
-        return id;
+        return $.permission.getUserGroupId($.javaString(username), checkTags(tags) ? tags : null);
     }
 
     /**
@@ -484,7 +455,7 @@
      * @returns {Number}
      */
     function queryDBPermission(username) {
-        return $.getIniDbNumber('group', username.toLowerCase(), PERMISSION.None);
+        return $.permission.queryDBPermission($.javaString(username));
     }
 
     /**
@@ -616,7 +587,7 @@
      * @param {String} username
      */
     function addSubUsersList(username) {
-        subUsers.addIfAbsent($.javaString(username.toLowerCase()));
+        return $.permission.addSubscriber($.javaString(username));
     }
 
     /**
@@ -625,7 +596,7 @@
      * @param {String} username
      */
     function delSubUsersList(username) {
-        subUsers.remove($.javaString(username.toLowerCase()));
+        return $.permission.removeSubscriber($.javaString(username));
     }
 
     /**
@@ -635,7 +606,7 @@
      * @returns {boolean}
      */
     function isSubCache(username) {
-        return subUsers.contains($.javaString(username.toLowerCase()));
+        return $.permission.isSubscriber($.javaString(username));
     }
 
     /**
@@ -644,7 +615,7 @@
      * @param {String} username
      */
     function addVIPUsersList(username) {
-        vipUsers.addIfAbsent($.javaString(username.toLowerCase()));
+        return $.permission.addVIP($.javaString(username));
     }
 
     /**
@@ -653,7 +624,7 @@
      * @param {String} username
      */
     function delVIPUsersList(username) {
-        vipUsers.remove($.javaString(username.toLowerCase()));
+        return $.permission.removeVIP($.javaString(username));
     }
 
     /**
@@ -663,7 +634,7 @@
      * @returns {boolean}
      */
     function isVIPCache(username) {
-        return vipUsers.contains($.javaString(username.toLowerCase()));
+        return $.permission.isVIP($.javaString(username));
     }
 
     /**
@@ -673,7 +644,7 @@
      * @returns {boolean}
      */
     function isModeratorCache(username) {
-        return moderatorsCache.contains($.javaString(username.toLowerCase()));
+        return $.permission.isModerator($.javaString(username));
     }
 
     /**
@@ -682,7 +653,7 @@
      * @param {String} username
      */
     function addModeratorToCache(username) {
-        moderatorsCache.addIfAbsent($.javaString(username.toLowerCase()));
+        return $.permission.addModerator($.javaString(username));
     }
 
     /**
@@ -691,7 +662,7 @@
      * @param {String} username
      */
     function removeModeratorFromCache(username) {
-        moderatorsCache.remove($.javaString(username.toLowerCase()));
+        return $.permission.removeModerator($.javaString(username));
     }
 
     /**
@@ -699,16 +670,16 @@
      */
     function loadModeratorsCache() {
         let keys = $.inidb.GetKeyValueList('group', ''),
-            a = new Packages.java.util.ArrayList();
+            a = [];
 
         for (let i in keys) {
             if (parseInt(keys[i].getValue()) <= PERMISSION.Mod) {
-                a.add($.javaString(keys[i].getKey().toLowerCase()));
+                a.push(keys[i].getKey());
+                $.permission.addModerator(keys[i].getKey());
             }
         }
 
-        $.consoleDebug("Adding the mods to the moderator cache: " + a.toString());
-        moderatorsCache.addAllAbsent(a);
+        $.consoleDebug("Adding the mods to the moderator cache: " + a.join(', '));
     }
 
     /**
@@ -877,6 +848,7 @@
         $.inidb.SetBatchString('group', '', oldSubU, newSubU);
         $.inidb.SetBatchString('group', '', oldVIPU, newVIPU);
         _isSwappedSubscriberVIP = !_isSwappedSubscriberVIP;
+        $.permission.setSubVIPIds(PERMISSION.Sub, PERMISSION.VIP);
         $.inidb.SetBoolean('settings', '', 'isSwappedSubscriberVIP', _isSwappedSubscriberVIP);
         //Update Permission export (needs to be done since VIP and Sub are computed variables, otherwise VIP and Sub doesn't get switched)
         $.PERMISSION = PERMISSION;
@@ -940,27 +912,68 @@
         // Don't allow other events to add or remove users.
         isUpdatingUsers = true;
 
-        let chatters = event.chatters(),
+        let sequence = event.sequence(),
                 newUsers = [],
                 keys = [],
                 values = [];
 
-        // Process new users list
-        for (let i = 0; i < chatters.length; i++) {
-            let username = $.jsString(chatters.get(i).login().toLowerCase());
-            if (isTwitchBot(username)) {
-                continue;
+        if (sequence > 0 && sequence === lastUsersUpdateSequence + 1) {
+            // Apply only the joins and parts since the previous update
+            let left = event.left(),
+                    joined = event.joined(),
+                    knownUsers = new Set($.users);
+
+            if (left.size() > 0) {
+                let leftUsers = new Set();
+                for (let i = 0; i < left.size(); i++) {
+                    leftUsers.add($.jsString(left.get(i).login().toLowerCase()));
+                }
+
+                for (let i = 0; i < $.users.length; i++) {
+                    if (!leftUsers.has($.users[i])) {
+                        newUsers.push($.users[i]);
+                    }
+                }
+            } else {
+                newUsers = $.users.slice();
             }
 
-            if (!isOwner(username) && !$.users.includes(username)) { //Ignore already known users and bots as well as the streamer
-                keys.push(username);
-                values.push('true');
-                restoreSubscriberStatus(username);
+            for (let i = 0; i < joined.size(); i++) {
+                let username = $.jsString(joined.get(i).login().toLowerCase());
+                if (isTwitchBot(username) || knownUsers.has(username)) {
+                    continue;
+                }
+
+                if (!isOwner(username)) {
+                    keys.push(username);
+                    values.push('true');
+                    restoreSubscriberStatus(username);
+                }
+
+                knownUsers.add(username);
+                newUsers.push(username);
             }
+        } else {
+            let chatters = event.chatters();
 
-            newUsers.push(username);
+            // Process new users list
+            for (let i = 0; i < chatters.length; i++) {
+                let username = $.jsString(chatters.get(i).login().toLowerCase());
+                if (isTwitchBot(username)) {
+                    continue;
+                }
+
+                if (!isOwner(username) && !$.users.includes(username)) { //Ignore already known users and bots as well as the streamer
+                    keys.push(username);
+                    values.push('true');
+                    restoreSubscriberStatus(username);
+                }
+
+                newUsers.push(username);
+            }
         }
 
+        lastUsersUpdateSequence = sequence;
         $.users = newUsers;
         isUpdatingUsers = false;
 
@@ -1088,9 +1101,7 @@
     $.bind('ircPrivateMessage', function (event) {
         let sender = event.getSender().toLowerCase(),
                 message = event.getMessage().toLowerCase().trim(),
-                subsTxtList = [],
-                spl,
-                i;
+                spl;
 
         if ($.equalsIgnoreCase(sender, 'jtv')) {
             if (message.indexOf('specialuser') > -1) {
@@ -1099,11 +1110,7 @@
                     if (addSubUsersList(spl[1])) {
 
                         restoreSubscriberStatus(spl[1].toLowerCase());
-                        for (i = 0; i < subUsers.size(); i++) {
-                            subsTxtList.push(subUsers.get(i));
-                        }
-
-                        $.saveArray(subsTxtList, './addons/subs.txt', false);
+                        $.saveArray($.permission.subscribers().toArray(), './addons/subs.txt', false);
                     }
                 }
             }
@@ -1378,7 +1385,7 @@
     $.modMsg = $.lang.get('cmd.modonly');
     $.userGroups = userGroups;
     $.modeOUsers = modeOUsers;
-    $.subUsers = subUsers;
+    $.subUsers = $.permission.subscribers();
     $.users = [];
     /**
      * @deprecated
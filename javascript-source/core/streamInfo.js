@@ -551,10 +551,10 @@
     }
 
     setInterval(function() {
-        $.writeToFile(getFollows(), './addons/followHandler/followcount.txt', false);
-        $.writeToFile(getSubscriberCount(), './addons/subscribeHandler/subscribercount.txt', false);
-        $.writeToFile(getSubscriberPoints(), './addons/subscribeHandler/subscriberpoints.txt', false);
-        $.writeToFile(getViewers(), './addons/viewers.txt', false);
+        $.writeLatestToFile(getFollows(), './addons/followHandler/followcount.txt');
+        $.writeLatestToFile(getSubscriberCount(), './addons/subscribeHandler/subscribercount.txt');
+        $.writeLatestToFile(getSubscriberPoints(), './addons/subscribeHandler/subscriberpoints.txt');
+        $.writeLatestToFile(getViewers(), './addons/viewers.txt');
     }, 30e3);
 
     /** Export functions to API */
@@ -28,7 +28,8 @@
     let levelWithTime = $.getSetIniDbBoolean('timeSettings', 'timeLevel', false),
             timeLevelWarning = $.getSetIniDbBoolean('timeSettings', 'timeLevelWarning', true),
             keepTimeWhenOffline = $.getSetIniDbBoolean('timeSettings', 'keepTimeWhenOffline', true),
-            hoursForLevelUp = $.getSetIniDbNumber('timeSettings', 'timePromoteHours', 50);
+            hoursForLevelUp = $.getSetIniDbNumber('timeSettings', 'timePromoteHours', 50),
+            payout = Packages.tv.phantombot.scripts.core.PayoutService.instance();
 
     /**
      * @function updateTimeSettings
@@ -38,6 +39,7 @@
         keepTimeWhenOffline = $.getIniDbBoolean('timeSettings', 'keepTimeWhenOffline');
         hoursForLevelUp = $.getIniDbNumber('timeSettings', 'timePromoteHours');
         timeLevelWarning = $.getIniDbBoolean('timeSettings', 'timeLevelWarning');
+        payout.setTime(keepTimeWhenOffline);
     }
 
     function getZoneId(zone) {
@@ -466,6 +468,7 @@
                 if ($.equalsIgnoreCase(action, 'offlinetime')) {
                     keepTimeWhenOffline = !keepTimeWhenOffline;
                     $.setIniDbBoolean('timeSettings', 'keepTimeWhenOffline', keepTimeWhenOffline);
+                    payout.setTime(keepTimeWhenOffline);
                     $.say($.whisperPrefix(sender) + (keepTimeWhenOffline ? $.lang.get('timesystem.offlinetime.enabled') : $.lang.get('timesystem.offlinetime.disabled')));
                 }
             }
@@ -501,17 +504,8 @@
         }
     });
 
-    // Set an interval for increasing all current users logged time
-    setInterval(function () {
-        if ($.isOnline($.channelName) || keepTimeWhenOffline) {
-            let chatList = $.viewer.chatters();
-            let users = [];
-            for (let i = 0; i < chatList.size(); i++) {
-                users.push($.jsString(chatList.get(i).login().toLowerCase()));
-            }
-            $.inidb.IncreaseBatchString('time', '', users, '60');
-        }
-    }, 6e4, 'scripts::systems::timeSystem.js#1');
+    // Increase all current users logged time every minute, in the same pass as the points payout
+    payout.setTime(keepTimeWhenOffline);
 
     // Interval for auto level to regular
     setInterval(function () {
@@ -94,8 +94,8 @@
             $.say(s);
         }
 
-        $.writeToFile(username + ' ', './addons/bitsHandler/latestCheer.txt', false);
-        $.writeToFile(username + ': ' + bits + ' ', './addons/bitsHandler/latestCheer&Bits.txt', false);
+        $.writeLatestToFile(username + ' ', './addons/bitsHandler/latestCheer.txt');
+        $.writeLatestToFile(username + ': ' + bits + ' ', './addons/bitsHandler/latestCheer&Bits.txt');
     });
 
     /*
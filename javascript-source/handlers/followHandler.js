@@ -123,7 +123,7 @@
                 $.inidb.incr('points', follower, followReward);
             }
 
-            $.writeToFile(follower + ' ', './addons/followHandler/latestFollower.txt', false);
+            $.writeLatestToFile(follower + ' ', './addons/followHandler/latestFollower.txt');
             $.inidb.set('streamInfo', 'lastFollow', follower);
         }
     }
@@ -81,7 +81,7 @@
 
         $.inidb.set('donations', 'last_donation_message', $.lang.get('main.donation.last.tip.message', donationUsername, donationCurrency, donationAmount));
 
-        $.writeToFile(donationUsername + ": " + donationAmount + " ", dir + '/latestDonation.txt', false);
+        $.writeLatestToFile(donationUsername + ": " + donationAmount + " ", dir + '/latestDonation.txt');
 
         if (toggle === true && announce === true) {
             if (s.match(/\(name\)/)) {
@@ -402,8 +402,8 @@
 
             $.addSubUsersList(subscriber);
             $.restoreSubscriberStatus(subscriber);
-            $.writeToFile(subscriber + ' ', './addons/subscribeHandler/latestSub.txt', false);
-            $.writeToFile(subscriber + ' ', './addons/subscribeHandler/latestOverallSub.txt', false);
+            $.writeLatestToFile(subscriber + ' ', './addons/subscribeHandler/latestSub.txt');
+            $.writeLatestToFile(subscriber + ' ', './addons/subscribeHandler/latestOverallSub.txt');
             $.inidb.set('streamInfo', 'lastSub', subscriber);
             $.inidb.set('subplan', subscriber, plan);
 
@@ -432,9 +432,9 @@
 
             $.addSubUsersList(subscriber);
             $.restoreSubscriberStatus(subscriber);
-            $.writeToFile(subscriber + ' ', './addons/subscribeHandler/latestResub.txt', false);
-            $.writeToFile(subscriber + ' ', './addons/subscribeHandler/latestOverallSub.txt', false);
-            $.writeToFile(subscriber + ': ' + event.getMonths() + ' ', './addons/subscribeHandler/latestResub&Months.txt', false);
+            $.writeLatestToFile(subscriber + ' ', './addons/subscribeHandler/latestResub.txt');
+            $.writeLatestToFile(subscriber + ' ', './addons/subscribeHandler/latestOverallSub.txt');
+            $.writeLatestToFile(subscriber + ': ' + event.getMonths() + ' ', './addons/subscribeHandler/latestResub&Months.txt');
             $.inidb.set('streamInfo', 'lastReSub', subscriber);
             $.inidb.set('subplan', subscriber, plan);
 
@@ -465,8 +465,8 @@
 
             $.addSubUsersList(subscriber);
             $.restoreSubscriberStatus(subscriber);
-            $.writeToFile(subscriber + ' ', './addons/subscribeHandler/latestSub.txt', false);
-            $.writeToFile(subscriber + ' ', './addons/subscribeHandler/latestOverallSub.txt', false);
+            $.writeLatestToFile(subscriber + ' ', './addons/subscribeHandler/latestSub.txt');
+            $.writeLatestToFile(subscriber + ' ', './addons/subscribeHandler/latestOverallSub.txt');
             $.inidb.set('streamInfo', 'lastSub', subscriber);
             $.inidb.set('subplan', subscriber, plan);
 
@@ -522,8 +522,8 @@
 
             $.addSubUsersList(subscriber);
             $.restoreSubscriberStatus(subscriber);
-            $.writeToFile(subscriber + ' ', './addons/subscribeHandler/latestSub.txt', false);
-            $.writeToFile(subscriber + ' ', './addons/subscribeHandler/latestOverallSub.txt', false);
+            $.writeLatestToFile(subscriber + ' ', './addons/subscribeHandler/latestSub.txt');
+            $.writeLatestToFile(subscriber + ' ', './addons/subscribeHandler/latestOverallSub.txt');
             $.inidb.set('streamInfo', 'lastSub', subscriber);
             $.inidb.set('subplan', subscriber, plan);
 
@@ -16,6 +16,7 @@
  */
 
 (function() {
+    var wordCounter = Packages.tv.phantombot.scripts.core.WordCounterService.instance();
 
     /**
      * @event command
@@ -74,6 +75,7 @@
          * @commandpath count [word] - Tells you how many times that word as been said in chat.
          */
         if ($.equalsIgnoreCase(command, 'count')) {
+            wordCounter.flush();
             let counter = $.optIniDbNumber('wordCounter', action.toLowerCase());
             if (!action || !counter.isPresent()) {
                 $.say($.whisperPrefix(sender) + $.lang.get('wordcounter.err.404'));
@@ -89,20 +91,8 @@
      * @event ircChannelMessage
      */
     $.bind('ircChannelMessage', function(event) {
-        var message = event.getMessage().toLowerCase(),
-            keys = $.inidb.GetKeyList('wordCounter', ''),
-            word,
-            key;
-
         if ($.bot.isModuleEnabled('./handlers/wordCounter.js')) {
-            for (i in keys) {
-                key = keys[i].toLowerCase();
-                word = new RegExp('\\b' + key + '\\b', 'ig');
-                if (word.exec(message)) {
-                    $.inidb.incr('wordCounter', key, 1);
-                    break;
-                }
-            }
+            wordCounter.count(event.getMessage());
         }
     });
 
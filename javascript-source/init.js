@@ -25,7 +25,9 @@
     let isReady = false,
             modules = [],
             hooks = [],
-            jsOnlyHooks = ['initReady'];
+            jsOnlyHooks = ['initReady'],
+            loadedHooks = [],
+            initScript = $script;
 
     /*
      * @class Module
@@ -35,10 +37,24 @@
      * @param {Boolean} isEnabled
      */
     function Module(scriptName, script, isEnabled) {
+        let enabled = isEnabled === true;
+
         this.scriptName = scriptName;
-        this.isEnabled = isEnabled;
         this.script = script;
 
+        // Hook dispatch only calls handlers of enabled modules, so it must be told when this changes
+        Object.defineProperty(this, 'isEnabled', {
+            enumerable: true,
+            get: function () {
+                return enabled;
+            },
+            set: function (value) {
+                enabled = value === true;
+                $api.setModuleEnabled(scriptName, enabled);
+            }
+        });
+        $api.setModuleEnabled(scriptName, enabled);
+
         this.getModuleName = function () {
             return this.scriptName.match(/((\w+)\.js)$/)[2];
         };
@@ -412,14 +428,40 @@
 
         if (!jsOnlyHooks.includes(hookName) && $api.exists(hookName) === false) {
             Packages.com.gmt2001.Console.err.printlnRhino('[addHook()@init.js:254] Failed to register hook "' + hookName + '" since there is no such event.');
-        } else if (i !== -1) {
-            hooks[hookName].handlers[i].handler = handler;
         } else {
-            if (hooks[hookName] === undefined) {
-                hooks[hookName] = new HookHandler(hookName);
+            if (i !== -1) {
+                hooks[hookName].handlers[i].handler = handler;
+            } else {
+                if (hooks[hookName] === undefined) {
+                    hooks[hookName] = new HookHandler(hookName);
+                }
+                hooks[hookName].handlers.push(new Hook(scriptName, hookName, handler, $script.getRealFileName(), always));
             }
-            hooks[hookName].handlers.push(new Hook(scriptName, hookName, handler, $script.getRealFileName(), always));
+
+            $api.addHook(hookName, scriptName, $script.getRealFileName(), always === true, handler);
+            registerHookEvent(hookName);
+        }
+    }
+
+    /*
+     * @function registerHookEvent - Subscribes to an event the first time a hook is bound to it, so that the event bus can skip events no script listens to
+     *
+     * @param {String} hookName
+     */
+    function registerHookEvent(hookName) {
+        if (loadedHooks.includes(hookName) || jsOnlyHooks.includes(hookName)) {
+            return;
         }
+
+        $api.on(initScript, hookName, function (event) {
+            let hookname = String($api.formatEventName(event.getClass().getSimpleName()) + '');
+            try {
+                callHook(hookname, event, false);
+            } catch (ex) {
+                handleException(hookname, ex);
+            }
+        });
+        loadedHooks.push(hookName);
     }
 
     /*
@@ -432,9 +474,11 @@
         let scriptName = $.replace($.replace($script.getPath(), '\\', '/'), './scripts/', ''),
                 i = getHookIndex(scriptName, hookName);
 
-        if (hooks[hookName] !== undefined) {
+        if (hooks[hookName] !== undefined && i !== -1) {
             hooks[hookName].handlers.splice(i, 1);
         }
+
+        $api.removeHook(hookName, scriptName);
     }
 
     let pendingCallHook = [];
@@ -464,61 +508,11 @@
         }
 
         hookName = $api.formatEventName(hookName) + '';
-        let hook = hooks[hookName],
-                i;
-
-        if (hook === undefined) {
-            return;
-        }
 
         if (hookName === 'command') {
-            i = getHookIndex($.getCommandScript(event.getCommand()), hookName);
-
-            try {
-                hook.handlers[i].handler(event);
-            } catch (ex) {
-                let errmsg;
-                try {
-                    errmsg = 'Error with Event Handler [' + hookName + '] Script [' + hook.handlers[i].scriptPath + '] Stacktrace [' + ex.stack.trim().replace(/\r/g, '').split('\n').join(' > ').replace(/anonymous\(\)@|callHook\(\)@/g, '') + '] Exception [' + ex + ']';
-                } catch (ex2) {
-                    errmsg = 'Error with Event Handler [' + hookName + '] Script [' + hook.handlers[i].scriptPath + ']';
-                }
-                $.log.error(errmsg);
-                if (ex.javaException !== undefined) {
-                    $.consoleLn("Sending stack trace to error log...");
-                    Packages.com.gmt2001.Console.err.printStackTrace(ex.javaException, errmsg);
-                } else {
-                    try {
-                        Packages.com.gmt2001.Console.err.printStackTrace(ex, errmsg);
-                    } catch (ex3) {
-                    }
-                }
-            }
+            $api.callScriptHook(hookName, $.getCommandScript(event.getCommand()) || null, event);
         } else {
-            for (i in hook.handlers) {
-                if (isModuleEnabled(hook.handlers[i].scriptName) || hook.handlers[i].always || force) {
-                    try {
-                        hook.handlers[i].handler(event);
-                    } catch (ex) {
-                        let errmsg;
-                        try {
-                            errmsg = 'Error with Event Handler [' + hookName + '] Script [' + hook.handlers[i].scriptPath + '] Stacktrace [' + ex.stack.trim().replace(/\r/g, '').split('\n').join(' > ').replace(/anonymous\(\)@|callHook\(\)@/g, '') + '] Exception [' + ex + ']';
-                        } catch (ex2) {
-                            errmsg = 'Error with Event Handler [' + hookName + '] Script [' + hook.handlers[i].scriptPath + ']';
-                        }
-                        $.log.error(errmsg);
-                        if (ex.javaException !== undefined) {
-                            $.consoleLn("Sending stack trace to error log...");
-                            Packages.com.gmt2001.Console.err.printStackTrace(ex.javaException, errmsg);
-                        } else {
-                            try {
-                                Packages.com.gmt2001.Console.err.printStackTrace(ex, errmsg);
-                            } catch (ex3) {
-                            }
-                        }
-                    }
-                }
-            }
+            $api.callHook(hookName, event, force === true);
         }
     }
 
@@ -600,9 +594,8 @@
      */
     function events() {
         try {
-            // Load all API events.
+            // Load all API events. Other events are subscribed to by registerHookEvent when a script binds a hook to them.
 
-            let loadedHooks = [];
             /*
              * @event ircModeration
              */
@@ -887,22 +880,6 @@
                 }
             });
             loadedHooks.push('discordGuildCreate');
-
-            let hookNames = $api.getEventNames();
-            for (let i = 0; i < hookNames.size(); i++) {
-                let hookName = String(hookNames.get(i) + '');
-                if (!loadedHooks.includes(hookName)) {
-                    $api.on($script, hookName, function (event) {
-                        let hookname = String($api.formatEventName(event.getClass().getSimpleName()) + '');
-                        try {
-                            callHook(hookname, event, false);
-                        } catch (ex) {
-                            handleException(hookname, ex);
-                        }
-                    });
-                    loadedHooks.push(hookName);
-                }
-            }
         } catch (ex) {
             handleException('events', ex);
         }
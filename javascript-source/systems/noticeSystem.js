@@ -349,7 +349,7 @@
                 notice = notice.substring(1);
                 EventBus.instance().postAsync(new CommandEvent($.botName, notice, ' '));
             } else {
-                $.say(notice);
+                $.sayLowPriority(notice);
             }
 
             return true;
@@ -29,14 +29,10 @@
             onlinePayoutInterval = $.getSetIniDbNumber('pointSettings', 'onlinePayoutInterval', 10),
             offlinePayoutInterval = $.getSetIniDbNumber('pointSettings', 'offlinePayoutInterval', 0),
             activeBonus = $.getSetIniDbNumber('pointSettings', 'activeBonus', 0),
-            penalties = [],
-            pointsBonus = false,
-            pointsBonusAmount = 0,
             pointNameSingle = $.getSetIniDbString('pointSettings', 'pointNameSingle', 'point'),
             pointNameMultiple = $.getSetIniDbString('pointSettings', 'pointNameMultiple', 'points'),
             pointsMessage = $.getSetIniDbString('pointSettings', 'pointsMessage', '(userprefix) you currently have (pointsstring) and you have been in the chat for (time).'),
-            payoutInterval,
-            currentPayoutIntervalTime = -1;
+            payout = Packages.tv.phantombot.scripts.core.PayoutService.instance();
 
     /**
      * @function updateSettings
@@ -104,99 +100,11 @@
         return points + ' ' + pointNameMultiple;
     }
 
-    function calcPointsGained(username, group, isOnline) {
-        let table = 'grouppoints' + (isOnline ? '' : 'offline'),
-                defaultGain = isOnline ? Math.max(onlineGain, 0) : Math.max(offlineGain, 0);
-
-        username = $.jsString(username);
-        group = $.jsString(group);
-
-        let amount = $.getIniDbNumber(table, group, -1);
-
-        if (group === 'Subscriber') {
-            let plan = $.optIniDbString('subplan', username);
-            if (plan.isPresent()) {
-                amount = $.getIniDbNumber(table, ('Subscriber' + plan.get()), amount);
-            }
-        }
-
-        if (amount < 0) {
-            return defaultGain;
-        }
-
-        return amount;
-    }
-
-    /**
-     * @function runPointsPayout
-     */
-    function runPointsPayout() {
-        if (!$.bot.isModuleEnabled('./systems/pointSystem.js')) {
-            payoutInterval = clearInterval(payoutInterval);
-            currentPayoutIntervalTime = -1;
-            return;
-        }
-
-        let isOnline = $.isOnline($.channelName),
-                activeList,
-                active,
-                chatList = $.viewer.chatters(),
-                normalPayoutUsers = []; // users that get the normal online payout, nothing custom.
-
-        if (isOnline && activeBonus > 0) {
-            activeList = $.viewer.activeChatters();
-            active = [];
-            for (let i = 0; i < activeList.size(); i++) {
-                active.push($.jsString(activeList.get(i).login().toLowerCase()));
-            }
-        }
-
-        for (let i = 0; i < chatList.size(); i++) {
-            let username = $.jsString(chatList.get(i).login().toLowerCase()),
-                    amount = calcPointsGained(username, $.getUserGroupName(username), isOnline);
-
-            if (active !== undefined && active.includes(username)) {
-                amount += activeBonus;
-            }
-
-            if (pointsBonus && pointsBonusAmount > 0) {
-                amount += pointsBonusAmount;
-            }
-
-            if (!getUserPenalty(username)) {
-                if ((isOnline && onlineGain > 0 && amount === onlineGain) || (!isOnline && offlineGain > 0 && amount === offlineGain)) {
-                    normalPayoutUsers.push($.javaString(username));
-                } else if (amount > 0) {
-                    $.inidb.incr('points', username, amount);
-                }
-            }
-        }
-
-        // Update points for all users with the same amount of online/offline gain.
-        if (normalPayoutUsers.length > 0) {
-            $.inidb.IncreaseBatchString('points', '', normalPayoutUsers, (isOnline ? onlineGain : offlineGain));
-        }
-    }
-
     /**
      * @function setupPayoutRun
      */
     function setupPayoutRun() {
-        let minutes = $.isOnline($.channelName) ? onlinePayoutInterval : offlinePayoutInterval;
-        if (currentPayoutIntervalTime === minutes) {
-            return;
-        }
-
-        payoutInterval = clearInterval(payoutInterval);
-        currentPayoutIntervalTime = minutes;
-
-        if (minutes <= 0) {
-            return;
-        }
-
-        payoutInterval = setInterval(function () {
-            runPointsPayout();
-        }, minutes * 6e4, 'scripts::systems::pointSystem.js');
+        payout.setPoints(onlineGain, offlineGain, onlinePayoutInterval, offlinePayoutInterval, activeBonus);
     }
 
     /**
@@ -210,13 +118,8 @@
             return;
         }
 
-        let newTime = (time * 6e4) + $.systemTime();
         username = $.jsString(username.toLowerCase());
-
-        penalties.push({
-            user: username,
-            time: newTime
-        });
+        payout.setPenalty(username, time * 6e4);
 
         if (!silent) {
             time = $.getTimeStringMinutes((time * 6e4) / 1000);
@@ -224,25 +127,6 @@
         }
     }
 
-    /**
-     * @function getUserPenalty
-     * @param username
-     */
-    function getUserPenalty(username) {
-        for (let i in penalties) {
-            if ($.equalsIgnoreCase(penalties[i].user, username)) {
-                if (penalties[i].time - $.systemTime() > 0) {
-                    return true;
-                }
-
-                penalties.splice(i, 1);
-                return false;
-            }
-        }
-
-        return false;
-    }
-
     /**
      * @function setTempBonus
      * @param {Number} amount
@@ -254,13 +138,8 @@
             return;
         }
 
-        pointsBonus = true;
-        pointsBonusAmount = parseInt(amount);
-
-        setTimeout(function () {
-            pointsBonus = false;
-            pointsBonusAmount = 0;
-        }, newTime);
+        let pointsBonusAmount = parseInt(amount);
+        payout.setBonus(pointsBonusAmount, newTime);
 
         if (time >= 60) {
             newTime = $.getTimeString((time * 6e4) / 1000, true);
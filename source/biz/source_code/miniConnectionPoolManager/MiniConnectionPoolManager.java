@@ -42,6 +42,7 @@ public class MiniConnectionPoolManager {
     private PrintWriter logWriter;
     private Semaphore semaphore;
     private PoolConnectionEventListener poolConnectionEventListener;
+    private ConnectionWrapper connectionWrapper;
 
 // The following variables must only be accessed within synchronized blocks.
 // @GuardedBy("this") could by used in the future.
@@ -68,6 +69,29 @@ public class MiniConnectionPoolManager {
         }
     }
 
+    /**
+     * Allows the connections handed out by the pool to be wrapped, with the wrapper being aware of the underlying
+     * <code>PooledConnection</code>.
+     */
+    public interface ConnectionWrapper {
+
+        /**
+         * Wraps a connection which is about to be handed out by the pool.
+         *
+         * @param pconn the physical pooled connection.
+         * @param conn the logical connection handle retrieved from <code>pconn</code>.
+         * @return the connection to return from {@link MiniConnectionPoolManager#getConnection()}.
+         */
+        Connection wrap(PooledConnection pconn, Connection conn);
+
+        /**
+         * Called when a pooled connection is closed and removed from the pool.
+         *
+         * @param pconn the physical pooled connection.
+         */
+        void disposed(PooledConnection pconn);
+    }
+
     /**
      * Constructs a MiniConnectionPoolManager object with a timeout of 60 seconds.
      *
@@ -101,6 +125,15 @@ public class MiniConnectionPoolManager {
         poolConnectionEventListener = new PoolConnectionEventListener();
     }
 
+    /**
+     * Sets the wrapper which is applied to each connection handed out by the pool.
+     *
+     * @param connectionWrapper the wrapper; <code>null</code> to disable.
+     */
+    public synchronized void setConnectionWrapper(ConnectionWrapper connectionWrapper) {
+        this.connectionWrapper = connectionWrapper;
+    }
+
     /**
      * Closes all unused pooled connections.
      *
@@ -114,6 +147,9 @@ public class MiniConnectionPoolManager {
         SQLException e = null;
         while (!recycledConnections.isEmpty()) {
             PooledConnection pconn = recycledConnections.remove();
+            if (connectionWrapper != null) {
+                connectionWrapper.disposed(pconn);
+            }
             try {
                 pconn.close();
             } catch (SQLException e2) {
@@ -186,6 +222,9 @@ public class MiniConnectionPoolManager {
             // disposeConnection(), we temporarily set connectionInTransition.
             connectionInTransition = pconn;
             conn = pconn.getConnection();
+            if (connectionWrapper != null) {
+                conn = connectionWrapper.wrap(pconn, conn);
+            }
         } finally {
             connectionInTransition = null;
         }
@@ -314,6 +353,9 @@ public class MiniConnectionPoolManager {
     }
 
     private void closeConnectionAndIgnoreException(PooledConnection pconn) {
+        if (connectionWrapper != null) {
+            connectionWrapper.disposed(pconn);
+        }
         try {
             pconn.close();
         } catch (SQLException e) {
@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.gmt2001.util.concurrent.ExecutorService;
+
+/**
+ * Buffers the writes of {@link JSFileSystem#AppendLineToFile(String, String)} and {@link JSFileSystem#WriteLatestToFile(String, String)}
+ * <p>
+ * Appended lines go to a buffered writer which is kept open for each path. Buffers are written out when they fill up, when a line is
+ * appended with {@code flush} set, and once per second otherwise. Writers which have not been used for a minute are closed, which also closes the files of previous days for logs which roll over
+ * to a new file name each day
+ * <p>
+ * Overwrites only keep the latest content of each path, which is written out once per second
+ */
+final class JSFileAppender {
+
+    /**
+     * The interval between flushes of the buffers
+     */
+    private static final long FLUSH_INTERVAL_MS = 1000L;
+    /**
+     * The time after which an unused writer is closed
+     */
+    private static final long IDLE_CLOSE_MS = 60000L;
+    /**
+     * The size of the buffer of each writer, in characters
+     */
+    private static final int BUFFER_SIZE = 65536;
+    private static final Map<Path, Appender> APPENDERS = new ConcurrentHashMap<>();
+    private static final Map<Path, String> LATEST = new ConcurrentHashMap<>();
+    /**
+     * Serializes the writes of {@link #LATEST}, so that an older value can not overwrite a newer one
+     */
+    private static final Object LATEST_LOCK = new Object();
+    private static ScheduledFuture<?> future = null;
+
+    private JSFileAppender() {
+    }
+
+    /**
+     * Appends a line to a file
+     *
+     * @param path the path to the file
+     * @param line the line
+     * @throws IOException if the file can not be opened or written
+     */
+    static void append(Path path, String line) throws IOException {
+        append(path, line, false);
+    }
+
+    /**
+     * Appends a line to a file
+     *
+     * @param path the path to the file
+     * @param line the line
+     * @param flush {@code true} to write out the buffer immediately, such as for error logs which must not be lost
+     * @throws IOException if the file can not be opened or written
+     */
+    static void append(Path path, String line, boolean flush) throws IOException {
+        Path key = key(path);
+        start();
+
+        while (true) {
+            Appender appender = APPENDERS.computeIfAbsent(key, Appender::new);
+
+            if (appender.append(line, flush)) {
+                return;
+            }
+
+            APPENDERS.remove(key, appender);
+        }
+    }
+
+    /**
+     * Indicates if a file currently has an open writer
+     *
+     * @param path the path to the file
+     * @return {@code true} if lines appended to the file go to an open writer
+     */
+    static boolean isOpen(Path path) {
+        Appender appender = APPENDERS.get(key(path));
+        return appender != null && appender.isOpen();
+    }
+
+    /**
+     * Replaces the contents of a file on the next flush
+     *
+     * @param path the path to the file
+     * @param content the new contents, which are written followed by a line separator
+     */
+    static void latest(Path path, String content) {
+        LATEST.put(key(path), content);
+        start();
+    }
+
+    /**
+     * Writes out any buffered content of a file
+     *
+     * @param path the path to the file
+     */
+    static void flush(Path path) {
+        Path key = key(path);
+        Appender appender = APPENDERS.get(key);
+
+        if (appender != null) {
+            appender.flush();
+        }
+
+        writeLatest(key);
+    }
+
+    /**
+     * Writes out any buffered content of a file, then closes its writer
+     *
+     * @param path the path to the file
+     */
+    static void close(Path path) {
+        Path key = key(path);
+        Appender appender = APPENDERS.remove(key);
+
+        if (appender != null) {
+            appender.close();
+        }
+
+        writeLatest(key);
+    }
+
+    /**
+     * Writes out all buffered content, then closes all writers
+     */
+    static void closeAll() {
+        APPENDERS.keySet().forEach(JSFileAppender::close);
+        LATEST.keySet().forEach(JSFileAppender::writeLatest);
+    }
+
+    /**
+     * Starts the flush timer, if it is not already running
+     */
+    private static synchronized void start() {
+        if (future == null) {
+            future = ExecutorService.scheduleAtFixedRate(JSFileAppender::tick, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Flushes the buffers, and closes idle writers
+     */
+    private static void tick() {
+        try {
+            long idleSince = System.currentTimeMillis() - IDLE_CLOSE_MS;
+
+            APPENDERS.forEach((key, appender) -> {
+                if (appender.lastUsed < idleSince) {
+                    APPENDERS.remove(key, appender);
+                    appender.close();
+                } else {
+                    appender.flush();
+                }
+            });
+
+            LATEST.keySet().forEach(JSFileAppender::writeLatest);
+        } catch (Exception ex) {
+            com.gmt2001.Console.err.printStackTrace(ex);
+        }
+    }
+
+    /**
+     * Writes the pending contents of a file, if any
+     *
+     * @param key the normalized path to the file
+     */
+    private static void writeLatest(Path key) {
+        synchronized (LATEST_LOCK) {
+            String content = LATEST.remove(key);
+
+            if (content == null) {
+                return;
+            }
+
+            try {
+                Files.createDirectories(key.getParent());
+                Files.writeString(key, content + System.lineSeparator(), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            } catch (IOException ex) {
+                com.gmt2001.Console.err.println("Failed to write to '" + key + "': " + ex);
+            }
+        }
+    }
+
+    /**
+     * Normalizes a path for use as a key
+     *
+     * @param path the path
+     * @return the absolute, normalized path
+     */
+    private static Path key(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    /**
+     * An open, buffered writer which appends to a file
+     */
+    private static final class Appender {
+        private final Path path;
+        private Writer writer = null;
+        private boolean closed = false;
+        private boolean dirty = false;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private Appender(Path path) {
+            this.path = path;
+        }
+
+        /**
+         * Appends a line to the buffer, opening the file if needed
+         *
+         * @param line the line
+         * @param flush {@code true} to write out the buffer after appending the line
+         * @return {@code false} if this appender has been closed, and a new one must be used
+         * @throws IOException if the file can not be opened or written
+         */
+        private synchronized boolean append(String line, boolean flush) throws IOException {
+            if (this.closed) {
+                return false;
+            }
+
+            if (this.writer == null) {
+                Files.createDirectories(this.path.getParent());
+                this.writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(this.path, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND, StandardOpenOption.WRITE), StandardCharsets.UTF_8), BUFFER_SIZE);
+            }
+
+            this.writer.write(line);
+            this.writer.write(System.lineSeparator());
+            this.lastUsed = System.currentTimeMillis();
+
+            if (flush) {
+                this.writer.flush();
+                this.dirty = false;
+            } else {
+                this.dirty = true;
+            }
+
+            return true;
+        }
+
+        /**
+         * Indicates if the file is open
+         *
+         * @return {@code true} if the file has been opened and this appender has not been closed
+         */
+        private synchronized boolean isOpen() {
+            return this.writer != null && !this.closed;
+        }
+
+        /**
+         * Writes out the buffer
+         */
+        private synchronized void flush() {
+            if (this.writer == null || !this.dirty) {
+                return;
+            }
+
+            try {
+                this.writer.flush();
+            } catch (IOException ex) {
+                com.gmt2001.Console.err.println("Failed to write to '" + this.path + "': " + ex);
+            }
+
+            this.dirty = false;
+        }
+
+        /**
+         * Writes out the buffer and closes the file
+         */
+        private synchronized void close() {
+            this.closed = true;
+
+            if (this.writer == null) {
+                return;
+            }
+
+            try {
+                this.writer.close();
+            } catch (IOException ex) {
+                com.gmt2001.Console.err.println("Failed to write to '" + this.path + "': " + ex);
+            }
+
+            this.writer = null;
+        }
+    }
+}
@@ -74,6 +74,7 @@ public final class JSFileSystem {
             return CreateStringList();
         }
 
+        JSFileAppender.flush(Paths.get(path));
         return Files.readAllLines(Paths.get(path));
     }
 
@@ -89,6 +90,7 @@ public final class JSFileSystem {
             return null;
         }
 
+        JSFileAppender.flush(Paths.get(path));
         return Files.readString(Paths.get(path));
     }
 
@@ -125,6 +127,7 @@ public final class JSFileSystem {
         }
 
         MakeDir(pathToTargetDirectory);
+        JSFileAppender.close(Paths.get(pathToFile));
 
         Files.move(Paths.get(pathToFile), Paths.get(pathToTargetDirectory, Paths.get(pathToFile).getFileName().toString()));
     }
@@ -142,6 +145,7 @@ public final class JSFileSystem {
         }
 
         MakeDir(Paths.get(newPathToFile).getParent().toString());
+        JSFileAppender.close(Paths.get(pathToFile));
 
         Files.move(Paths.get(pathToFile), Paths.get(newPathToFile));
     }
@@ -160,6 +164,7 @@ public final class JSFileSystem {
         }
 
         MakeDir(Paths.get(path).getParent().toString());
+        JSFileAppender.flush(Paths.get(path));
 
         if (append) {
             Files.write(Paths.get(path), lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
@@ -182,6 +187,67 @@ public final class JSFileSystem {
         WriteLinesToFile(path, lines, append);
     }
 
+    /**
+     * Appends a single line to a file, through a buffered writer which is kept open
+     * <p>
+     * The line is written to disk within about a second, or sooner if the buffer fills up. This is intended for files which are appended to
+     * frequently, such as logs. The path is only validated when the file is opened
+     *
+     * @param path The path to the file to append to
+     * @param line The line to append to the file
+     * @return {@code true} if the line was appended; {@code false} if the path is not in an allowed location
+     * @throws IOException If an I/O error occurs opening or writing to the file
+     */
+    public static boolean AppendLineToFile(String path, String line) throws IOException {
+        return AppendLineToFile(path, line, false);
+    }
+
+    /**
+     * Appends a single line to a file, through a buffered writer which is kept open
+     * <p>
+     * If {@code flush} is {@code false}, the line is written to disk within about a second, or sooner if the buffer fills up. If {@code flush}
+     * is {@code true}, the line is written immediately, which is intended for logs which must not be lost if the bot stops, such as errors
+     *
+     * @param path The path to the file to append to
+     * @param line The line to append to the file
+     * @param flush {@code true} to write the line to disk immediately
+     * @return {@code true} if the line was appended; {@code false} if the path is not in an allowed location
+     * @throws IOException If an I/O error occurs opening or writing to the file
+     */
+    public static boolean AppendLineToFile(String path, String line, boolean flush) throws IOException {
+        if (!JSFileAppender.isOpen(Paths.get(path)) && !PathValidator.isValidPathScript(path)) {
+            return false;
+        }
+
+        JSFileAppender.append(Paths.get(path), line, flush);
+        return true;
+    }
+
+    /**
+     * Replaces the contents of a file with a single line, coalescing frequent writes
+     * <p>
+     * Only the latest line written to each file within about a second is written to disk. This is intended for files which are overwritten
+     * frequently, such as the text files read by stream overlays
+     *
+     * @param path The path to the file to write to
+     * @param line The line to write to the file
+     */
+    public static void WriteLatestToFile(String path, String line) {
+        if (!PathValidator.isValidPathScript(path)) {
+            return;
+        }
+
+        JSFileAppender.latest(Paths.get(path), line);
+    }
+
+    /**
+     * Writes out all lines buffered by {@link #AppendLineToFile(String, String)} and {@link #WriteLatestToFile(String, String)}, then
+     * closes the open files
+     */
+    public static void CloseAll() {
+        JSFileAppender.closeAll();
+    }
+
     /**
      * Creates an empty file if it doesn't exist; updates the last modified timestamp of the file if it already exists
      *
@@ -213,6 +279,7 @@ public final class JSFileSystem {
             return;
         }
 
+        JSFileAppender.close(Paths.get(path));
         Files.deleteIfExists(Paths.get(path));
     }
 
@@ -244,6 +311,7 @@ public final class JSFileSystem {
         }
 
         try {
+            JSFileAppender.flush(Paths.get(path));
             return (int) Files.size(Paths.get(path));
         } catch (IOException ex) {
             return 0;
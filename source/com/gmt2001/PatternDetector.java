@@ -18,7 +18,9 @@ package com.gmt2001;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -47,11 +49,76 @@ public final class PatternDetector {
      */
     private final static Pattern LINKS_PATTERN = Pattern.compile("(?i)(?U)(?:\\b|^)(?:(?<weburi>(?:(?<webscheme>(?:|[st])ftp(?:|s)|http(?:|s)|rtsp(?:|s)|ws(?:|s)):\\/\\/)?(?!\\S*\\.\\.)(?<webauthority>(?<webdomain>[\\p{L}\\p{S}\\p{Mn}\\p{Nd}\\p{Nl}\\p{No}\\p{Pc}\\p{Pd}\\p{Po}]+)(?:\\." + TLD_PATTERN + "|(?:\\s*\\.\\s*)" + TLD_WORKAROUND_PATTERN + ")(?:\\:(?<webport>\\d{1,5}))?))|(?<ip>(?<ipv4>(?:25[0-5]|2[0-4][0-9]|[0-1][0-9]{2}|[1-9][0-9]|[0-9])\\.(?:25[0-5]|2[0-4][0-9]|[0-1][0-9]{2}|[1-9][0-9]|[0-9])\\.(?:25[0-5]|2[0-4][0-9]|[0-1][0-9]{2}|[1-9][0-9]|[0-9])\\.(?:25[0-5]|2[0-4][0-9]|[0-1][0-9]{2}|[1-9][0-9]|[0-9]))|(?<ipv6>(?=(?:(?:[0-9a-fA-F]{0,4}:?){0,6}::|(?:[0-9a-fA-F]{1,4}:){7}))(?:(?:::)?(?:[0-9a-fA-F]{1,4}(?:::|:)){2,7}(?:[0-9a-fA-F]{1,4}|)|(?:::[0-9a-fA-F]{1,4})|(?:[0-9a-fA-F]{1,4}::(?:[0-9a-fA-F]{1,4})?))))|(?<protouri>(?<protoscheme>bitcoin(?:|cash)|c(?:allto|ontent)|ed2k|f(?:acetime|eed)|git|i(?:ntent|rc(?:|6|s))|jar|m(?:a(?:gnet|ilto|ps|rket)|ms)|payto|s(?:ip(?:|s)|kype|potify|team)|te(?:ams(?:|peak)|l)|webcal|xmpp):(?:\\/\\/)?(?<protourn>(?:[\\p{L}\\p{S}\\p{Mn}\\p{Nd}\\p{Nl}\\p{No}\\p{Pc}\\p{Pd}\\p{Po}])+)))(?:\\b|$)");
 
+    /**
+     * Trie of every TLD matched by {@link #TLD_PATTERN}, used to skip the links pattern on messages which can not match it
+     */
+    private final static TldTrie TLD_TRIE = TldTrie.fromPattern(TLD_PATTERN);
+    /**
+     * Trie of every TLD matched by {@link #TLD_WORKAROUND_PATTERN}
+     */
+    private final static TldTrie TLD_WORKAROUND_TRIE = TldTrie.fromPattern(TLD_WORKAROUND_PATTERN);
+
     /**
      * Static class. Constructor disabled
      */
     private PatternDetector() {}
 
+    /**
+     * Performs a quick check to determine if the links pattern could possibly match the input string
+     * <p>
+     * Every alternative of the links pattern requires either a colon {@code :} (IPv6 and protocol URIs), or a full stop {@code .}
+     * followed by a digit (IPv4), a TLD, or whitespace and a workaround TLD (web links). This check finds those anchors with a single
+     * scan of the string and a trie lookup at each full stop, so the full links pattern only needs to run on strings which pass
+     * <p>
+     * A return value of {@code true} does not mean that a link is present, only that the links pattern must be run
+     *
+     * @param str the string being tested
+     * @return {@code false} if the links pattern can not match the string
+     */
+    public static boolean mayContainLinks(String str) {
+        if (str == null) {
+            return false;
+        }
+
+        int len = str.length();
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+
+            if (c == ':') {
+                return true;
+            } else if (c == '.' && i + 1 < len) {
+                char next = str.charAt(i + 1);
+
+                if ((next >= '0' && next <= '9') || TLD_TRIE.matchesAt(str, i + 1)) {
+                    return true;
+                }
+
+                int j = i + 1;
+                while (j < len && isPatternWhitespace(str.charAt(j))) {
+                    j++;
+                }
+
+                if (TLD_WORKAROUND_TRIE.matchesAt(str, j)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates if the character may be matched by {@code \s} in the links pattern
+     * <p>
+     * This is intentionally broader than the Unicode {@code White_Space} property, as being too broad only causes extra runs of the links pattern
+     *
+     * @param c the character
+     * @return {@code true} if the character may be whitespace
+     */
+    private static boolean isPatternWhitespace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\u0085';
+    }
+
     /**
      * Provides a {@link Matcher} for the links pattern against the input string
      * <p>
@@ -136,7 +203,7 @@ public final class PatternDetector {
      * @return {@code true} if a link is detected
      */
     public static boolean hasAnyLinks(String str) {
-        return linksMatcher(str).find();
+        return mayContainLinks(str) && linksMatcher(str).find();
     }
 
     /**
@@ -148,6 +215,10 @@ public final class PatternDetector {
      * @return {@code true} if a link is detected in the {@code weburi} capture group
      */
     public static boolean hasWebLinks(String str) {
+        if (!mayContainLinks(str)) {
+            return false;
+        }
+
         Matcher matcher = linksMatcher(str);
 
         if (matcher.find()) {
@@ -166,6 +237,10 @@ public final class PatternDetector {
      * @return {@code true} if a link is detected in the {@code ip} capture group
      */
     public static boolean hasIpLinks(String str) {
+        if (!mayContainLinks(str)) {
+            return false;
+        }
+
         Matcher matcher = linksMatcher(str);
 
         if (matcher.find()) {
@@ -184,6 +259,10 @@ public final class PatternDetector {
      * @return {@code true} if a link is detected in the {@code protouri} capture group
      */
     public static boolean hasProtoLinks(String str) {
+        if (!mayContainLinks(str)) {
+            return false;
+        }
+
         Matcher matcher = linksMatcher(str);
 
         if (matcher.find()) {
@@ -206,6 +285,10 @@ public final class PatternDetector {
      * @return {@code null} if no links were detected; otherwise, the first link returned by the {@link Matcher}
      */
     public static String getLink(String str) {
+        if (!mayContainLinks(str)) {
+            return null;
+        }
+
         Matcher matcher = linksMatcher(str);
 
         if (matcher.find()) {
@@ -226,6 +309,10 @@ public final class PatternDetector {
      * @return a {@link List} of links returned by the {@link Matcher}
      */
     public static List<String> getLinks(String str) {
+        if (!mayContainLinks(str)) {
+            return Collections.emptyList();
+        }
+
         Matcher matcher = linksMatcher(str);
         List<String> links = new ArrayList<>();
 
@@ -235,4 +322,141 @@ public final class PatternDetector {
 
         return Collections.unmodifiableList(links);
     }
+
+    /**
+     * A case-insensitive trie of the literal alternatives of a TLD pattern
+     */
+    private static final class TldTrie {
+        private final Map<Character, TldTrie> children = new HashMap<>();
+        private boolean terminal = false;
+
+        /**
+         * Builds a trie by expanding a pattern consisting only of literals, groups, alternations, and character classes
+         *
+         * @param pattern the pattern
+         * @return the trie
+         */
+        private static TldTrie fromPattern(String pattern) {
+            TldTrie root = new TldTrie();
+            int[] pos = { 0 };
+
+            for (String tld : expandAlternation(pattern, pos)) {
+                root.add(tld);
+            }
+
+            return root;
+        }
+
+        private static List<String> expandAlternation(String pattern, int[] pos) {
+            List<String> alternatives = new ArrayList<>(expandSequence(pattern, pos));
+
+            while (pos[0] < pattern.length() && pattern.charAt(pos[0]) == '|') {
+                pos[0]++;
+                alternatives.addAll(expandSequence(pattern, pos));
+            }
+
+            return alternatives;
+        }
+
+        private static List<String> expandSequence(String pattern, int[] pos) {
+            List<String> prefixes = List.of("");
+
+            while (pos[0] < pattern.length() && pattern.charAt(pos[0]) != '|' && pattern.charAt(pos[0]) != ')') {
+                List<String> atom = expandAtom(pattern, pos);
+                List<String> combined = new ArrayList<>(prefixes.size() * atom.size());
+
+                for (String prefix : prefixes) {
+                    for (String suffix : atom) {
+                        combined.add(prefix + suffix);
+                    }
+                }
+
+                prefixes = combined;
+            }
+
+            return prefixes;
+        }
+
+        private static List<String> expandAtom(String pattern, int[] pos) {
+            char c = pattern.charAt(pos[0]);
+
+            if (c == '(') {
+                pos[0]++;
+                if (pattern.charAt(pos[0]) == '?') {
+                    pos[0] = pattern.charAt(pos[0] + 1) == '<' ? pattern.indexOf('>', pos[0]) + 1 : pos[0] + 2;
+                }
+
+                List<String> group = expandAlternation(pattern, pos);
+                pos[0]++;
+                return group;
+            } else if (c == '[') {
+                List<String> chars = new ArrayList<>();
+                pos[0]++;
+
+                while (pattern.charAt(pos[0]) != ']') {
+                    char start = pattern.charAt(pos[0]);
+
+                    if (pattern.charAt(pos[0] + 1) == '-' && pattern.charAt(pos[0] + 2) != ']') {
+                        for (char r = start; r <= pattern.charAt(pos[0] + 2); r++) {
+                            chars.add(String.valueOf(r));
+                        }
+
+                        pos[0] += 3;
+                    } else {
+                        chars.add(String.valueOf(start));
+                        pos[0]++;
+                    }
+                }
+
+                pos[0]++;
+                return chars;
+            }
+
+            pos[0]++;
+            return List.of(String.valueOf(c));
+        }
+
+        /**
+         * Folds a character the same way as a case-insensitive Unicode pattern
+         *
+         * @param c the character
+         * @return the folded character
+         */
+        private static char fold(char c) {
+            return Character.toLowerCase(Character.toUpperCase(c));
+        }
+
+        private void add(String tld) {
+            TldTrie node = this;
+
+            for (int i = 0; i < tld.length(); i++) {
+                node = node.children.computeIfAbsent(fold(tld.charAt(i)), k -> new TldTrie());
+            }
+
+            node.terminal = true;
+        }
+
+        /**
+         * Indicates if any TLD in the trie occurs in the string at the specified index
+         *
+         * @param str the string
+         * @param start the index to test at
+         * @return {@code true} if a TLD is a prefix of the string starting at {@code start}
+         */
+        private boolean matchesAt(String str, int start) {
+            TldTrie node = this;
+
+            for (int i = start; i < str.length(); i++) {
+                node = node.children.get(fold(str.charAt(i)));
+
+                if (node == null) {
+                    return false;
+                } else if (node.terminal) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
 }
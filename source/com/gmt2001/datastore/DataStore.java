@@ -21,15 +21,24 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.InsertValuesStep3;
-import org.jooq.Record1;
+import org.jooq.InsertValuesStep4;
+import org.jooq.Record2;
 import org.jooq.SelectConnectByStep;
 import org.jooq.SelectForUpdateStep;
 import org.jooq.SelectLimitPercentStep;
@@ -37,7 +46,7 @@ import org.jooq.SelectSeekStep1;
 import org.jooq.SelectWhereStep;
 import org.jooq.SortOrder;
 import org.jooq.Table;
-import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
 import org.jooq.impl.SQLDataType;
 
 import com.gmt2001.datastore2.Datastore2;
@@ -53,6 +62,7 @@ import com.gmt2001.datastore2.SQLiteStore2;
 @SuppressWarnings({"removal"})
 public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteStore {
     private static final DataStore INSTANCE = new DataStore(null);
+    private final Map<String, List<Consumer<String>>> writeListeners = new ConcurrentHashMap<>();
     /**
      * Provides an instance of {@link DataStore}
      *
@@ -70,6 +80,61 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
     protected DataStore(String unused) {
     }
 
+    /**
+     * Indicates if the given table is served through the {@link DataStoreCache}
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @return {@code true} if the table is cached
+     */
+    private boolean isCached(String fName) {
+        return this == INSTANCE && DataStoreCache.instance().isCached(fName);
+    }
+
+    /**
+     * Flushes pending writes in the {@link DataStoreCache} for the given table, if it is cached
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     */
+    private void flushCache(String fName) {
+        if (this.isCached(fName)) {
+            DataStoreCache.instance().flush(fName);
+        }
+    }
+
+    /**
+     * Registers a listener which is notified after rows of the table are written or deleted through this {@link DataStore}
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param listener receives the affected value of the {@code variable} column; {@code null} if any row of the table may have changed
+     */
+    public void addWriteListener(String fName, Consumer<String> listener) {
+        this.writeListeners.computeIfAbsent(fName.toLowerCase(), k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Notifies the write listeners of the given table
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param key the affected value of the {@code variable} column; {@code null} if any row of the table may have changed
+     */
+    private void written(String fName, String key) {
+        if (this.writeListeners.isEmpty() || fName == null) {
+            return;
+        }
+
+        List<Consumer<String>> listeners = this.writeListeners.get(fName.toLowerCase());
+
+        if (listeners != null) {
+            for (Consumer<String> listener : listeners) {
+                try {
+                    listener.accept(key);
+                } catch (Exception ex) {
+                    com.gmt2001.Console.err.printStackTrace(ex);
+                }
+            }
+        }
+    }
+
     /**
      * Converts Datastore1 driver names to Datastore2 driver names
      *
@@ -139,6 +204,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @return an array of sections
      */
     public String[] GetCategoryList(String fName) {
+        this.flushCache(fName);
         Optional<Table<?>> otbl = findTable(fName);
 
         if (otbl.isPresent()) {
@@ -158,6 +224,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @return an array of variables
      */
     public String[] GetKeyList(String fName, String section) {
+        this.flushCache(fName);
         Optional<Table<?>> otbl = findTable(fName);
 
         if (otbl.isPresent()) {
@@ -182,6 +249,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @return an array of {@link KeyValue} pairs denoting the variables and values
      */
     public KeyValue[] GetKeyValueList(String fName, String section) {
+        this.flushCache(fName);
         Optional<Table<?>> otbl = findTable(fName);
 
         if (otbl.isPresent()) {
@@ -203,6 +271,26 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
         return new KeyValue[0];
     }
 
+    /**
+     * Streams all {@code variable/value} pairs within the table to the consumer in batches
+     * <p>
+     * Every pair in a batch belongs to the same section. Stores which are able to read with a cursor override this, so that the whole table is
+     * never held in memory
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param batchSize the maximum number of pairs in each batch
+     * @param consumer receives the section and the {@link KeyValue} pairs of each batch
+     */
+    public void StreamKeyValueList(String fName, int batchSize, BiConsumer<String, List<KeyValue>> consumer) {
+        for (String section : this.GetCategoryList(fName)) {
+            List<KeyValue> kvs = Arrays.asList(this.GetKeyValueList(fName, section));
+
+            for (int i = 0; i < kvs.size(); i += batchSize) {
+                consumer.accept(section, kvs.subList(i, Math.min(kvs.size(), i + batchSize)));
+            }
+        }
+    }
+
     /**
      * Returns a list of values in the {@code variable} column within the table and section, sorted naturally
      *
@@ -217,6 +305,25 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @return a sorted list of variables
      */
     private String[] GetKeysByOrderInternal(String fName, String section, String order, int limit, int offset, boolean isValue, boolean isNumber, String like) {
+        return this.GetKeyValuesByOrderInternal(fName, section, order, limit, offset, isValue, isNumber, like).stream()
+            .map(KeyValue::getKey).toArray(String[]::new);
+    }
+
+    /**
+     * Returns a list of {@code variable/value} pairs within the table and section, sorted naturally, using a single query
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param order sort order. Valid values: {@code "ASC"} (Ascending) or {@code "DESC"} (Descending)
+     * @param limit the maximum number of results to return from this query; {@code 0} for no limit
+     * @param offset the offset to start reading from; {@code 0} for the beginning
+     * @param isValue {@code true} if sorting on the value instead of the variable
+     * @param isNumber {@code true} if the variable should be cast as an unsigned int for ordering
+     * @param like filters by partial matches on the variable; {@code null} to not use
+     * @return a sorted list of {@link KeyValue} pairs denoting the variables and values
+     */
+    private List<KeyValue> GetKeyValuesByOrderInternal(String fName, String section, String order, int limit, int offset, boolean isValue, boolean isNumber, String like) {
+        this.flushCache(fName);
         Optional<Table<?>> otbl = findTable(fName);
 
         if (otbl.isPresent()) {
@@ -232,10 +339,11 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
                 ofield = field("variable", tbl);
             }
             if (isNumber) {
-                ofield = ofield.cast(SQLDataType.INTEGERUNSIGNED);
+                Optional<Field<Long>> num = isValue ? NumericValueColumn.field(fName) : Optional.empty();
+                ofield = num.isPresent() ? num.get() : ofield.cast(SQLDataType.INTEGERUNSIGNED);
             }
-            SelectWhereStep<Record1<String>> w = dsl().select(field("variable", tbl)).from(tbl);
-            SelectConnectByStep<Record1<String>> c = w;
+            SelectWhereStep<Record2<String, String>> w = dsl().select(field("variable", tbl), field("value", tbl)).from(tbl);
+            SelectConnectByStep<Record2<String, String>> c = w;
             if (section == null) {
                 if (like == null) {
                     c = w.where(field("section", tbl).eq(section));
@@ -245,12 +353,12 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
             } else if (like != null) {
                 c = w.where(field("variable", tbl).like("%" + like + "%"));
             }
-            SelectSeekStep1<Record1<String>, ?> s = c.orderBy(ofield.sort(SortOrder.valueOf(order.toUpperCase())));
-            SelectLimitPercentStep<Record1<String>> l = null;
+            SelectSeekStep1<Record2<String, String>, ?> s = c.orderBy(ofield.sort(SortOrder.valueOf(order.toUpperCase())));
+            SelectLimitPercentStep<Record2<String, String>> l = null;
             if (limit > 0) {
                 l = s.limit(limit);
             }
-            SelectForUpdateStep<Record1<String>> o = null;
+            SelectForUpdateStep<Record2<String, String>> o = null;
             if (offset > 0) {
                 if (l != null) {
                     o = l.offset(offset);
@@ -258,17 +366,123 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
                     o = s.offset(offset);
                 }
             }
-            List<String> keys;
+            SelectForUpdateStep<Record2<String, String>> q;
             if (o != null) {
-                keys = o.fetch(field("variable", tbl));
+                q = o;
             } else if (l != null) {
-                keys = l.fetch(field("variable", tbl));
+                q = l;
             } else {
-                keys = s.fetch(field("variable", tbl));
+                q = s;
             }
-            return keys.toArray(new String[0]);
+            return q.fetch(r -> new KeyValue(r.value1(), r.value2()));
         }
-        return new String[]{};
+        return Collections.emptyList();
+    }
+
+    /**
+     * Builds {@link KeyValue} pairs by looking up the value of each variable individually
+     * <p>
+     * Used by the deprecated per-driver stores, which can not use the single query methods
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param keys the variables to lookup
+     * @return an array of {@link KeyValue} pairs denoting the variables and values
+     */
+    private KeyValue[] GetKeyValuesLegacy(String fName, String section, String[] keys) {
+        return Arrays.stream(keys).map(k -> new KeyValue(k, this.GetString(fName, section, k))).toArray(KeyValue[]::new);
+    }
+
+    /**
+     * Parses a limit or offset
+     *
+     * @param value the string value
+     * @return the parsed value; {@code 0} if the value is not a valid integer
+     */
+    private static int parseIntOrZero(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns a list of {@code variable/value} pairs within the table and section, sorted naturally on the variable, using a single query
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param order sort order. Valid values: {@code "ASC"} (Ascending) or {@code "DESC"} (Descending)
+     * @param limit the maximum number of results to return from this query
+     * @param offset the offset to start reading from
+     * @return a sorted array of {@link KeyValue} pairs denoting the variables and values
+     */
+    public KeyValue[] GetKeyValuesByOrder(String fName, String section, String order, String limit, String offset) {
+        if (this != INSTANCE) {
+            return this.GetKeyValuesLegacy(fName, section, this.GetKeysByOrder(fName, section, order, limit, offset));
+        }
+
+        return this.GetKeyValuesByOrderInternal(fName, section, order, parseIntOrZero(limit), parseIntOrZero(offset), false, false, null)
+            .toArray(KeyValue[]::new);
+    }
+
+    /**
+     * Returns a list of {@code variable/value} pairs within the table and section, sorted naturally on the value, using a single query
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param order sort order. Valid values: {@code "ASC"} (Ascending) or {@code "DESC"} (Descending)
+     * @param limit the maximum number of results to return from this query
+     * @param offset the offset to start reading from
+     * @return a sorted array of {@link KeyValue} pairs denoting the variables and values
+     */
+    public KeyValue[] GetKeyValuesByOrderValue(String fName, String section, String order, String limit, String offset) {
+        if (this != INSTANCE) {
+            return this.GetKeyValuesLegacy(fName, section, this.GetKeysByOrderValue(fName, section, order, limit, offset));
+        }
+
+        return this.GetKeyValuesByOrderInternal(fName, section, order, parseIntOrZero(limit), parseIntOrZero(offset), true, false, null)
+            .toArray(KeyValue[]::new);
+    }
+
+    /**
+     * Returns a list of {@code variable/value} pairs within the table and section, sorted naturally on the value as integers, using a single query
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param order sort order. Valid values: {@code "ASC"} (Ascending) or {@code "DESC"} (Descending)
+     * @param limit the maximum number of results to return from this query
+     * @param offset the offset to start reading from
+     * @return a sorted array of {@link KeyValue} pairs denoting the variables and values
+     */
+    public KeyValue[] GetKeyValuesByNumberOrderValue(String fName, String section, String order, String limit, String offset) {
+        if (this != INSTANCE) {
+            return this.GetKeyValuesLegacy(fName, section, this.GetKeysByNumberOrderValue(fName, section, order, limit, offset));
+        }
+
+        return this.GetKeyValuesByOrderInternal(fName, section, order, parseIntOrZero(limit), parseIntOrZero(offset), true, true, null)
+            .toArray(KeyValue[]::new);
+    }
+
+    /**
+     * Returns a list of {@code variable/value} pairs within the table and section, where the value of the {@code variable} column contains the search phrase,
+     * sorted naturally on the variable, using a single query
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param search the partial value of the {@code variable} column to match against
+     * @param order sort order. Valid values: {@code "ASC"} (Ascending) or {@code "DESC"} (Descending)
+     * @param limit the maximum number of results to return from this query
+     * @param offset the offset to start reading from
+     * @return a sorted array of {@link KeyValue} pairs denoting the variables and values
+     */
+    public KeyValue[] GetKeyValuesByLikeKeysOrder(String fName, String section, String search, String order, String limit, String offset) {
+        if (this != INSTANCE) {
+            return this.GetKeyValuesLegacy(fName, section, this.GetKeysByLikeKeysOrder(fName, section, search, order, limit, offset));
+        }
+
+        return this.GetKeyValuesByOrderInternal(fName, section, order, parseIntOrZero(limit), parseIntOrZero(offset), false, false, search)
+            .toArray(KeyValue[]::new);
     }
 
     /**
@@ -517,6 +731,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @return the variable; {@code null} if not found
      */
     public String GetKeyByValue(String fName, String section, String value) {
+        this.flushCache(fName);
         Optional<Table<?>> otbl = findTable(fName);
 
         if (otbl.isPresent()) {
@@ -546,6 +761,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @return a list of variables
      */
     public String[] GetKeysByLikeValues(String fName, String section, String search) {
+        this.flushCache(fName);
         Optional<Table<?>> otbl = findTable(fName);
 
         if (otbl.isPresent()) {
@@ -573,6 +789,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @return a list of variables
      */
     public String[] GetKeysByLikeKeys(String fName, String section, String search) {
+        this.flushCache(fName);
         Optional<Table<?>> otbl = findTable(fName);
 
         if (otbl.isPresent()) {
@@ -663,6 +880,19 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @return an {@link Optional} that may contain a {@link SectionVariableValueRecord} if the row exists
      */
     public Optional<SectionVariableValueRecord> OptRecord(String fName, String section, String key) {
+        this.flushCache(fName);
+        return this.OptRecordInternal(fName, section, key);
+    }
+
+    /**
+     * Returns the record for the given table, section, and key, bypassing the {@link DataStoreCache}
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param key the value of the {@code variable} column to retrieve
+     * @return an {@link Optional} that may contain a {@link SectionVariableValueRecord} if the row exists
+     */
+    private Optional<SectionVariableValueRecord> OptRecordInternal(String fName, String section, String key) {
         SectionVariableValueTable table = SectionVariableValueTable.instance("phantombot_" + fName, false);
 
         if (table == null) {
@@ -717,6 +947,10 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @return the value
      */
     public String GetString(String fName, String section, String key) {
+        if (this.isCached(fName) && (section == null || section.isEmpty())) {
+            return DataStoreCache.instance().lookup(fName, section, key, () -> this.OptRecordInternal(fName, section, key)).value();
+        }
+
         return this.OptRecord(fName, section, key).map(r -> r.value()).orElse(null);
     }
 
@@ -742,12 +976,34 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @param value the new value of the {@code value} column
      */
     public void SetString(String fName, String section, String key, String value) {
+        if (this.isCached(fName) && section != null && section.isEmpty()) {
+            DataStoreCache.instance().put(fName, key, value);
+            this.written(fName, key);
+            return;
+        }
+
+        this.flushCache(fName);
         SectionVariableValueTable table = SectionVariableValueTable.instance("phantombot_" + fName);
         SectionVariableValueRecord record = this.OptRecord(table, section, key)
             .orElseGet(() -> new SectionVariableValueRecord(table, section, key, value));
         record.value(value);
         record.changed(true);
-        record.merge();
+
+        if (NumericValueColumn.field(fName).isPresent()) {
+            dsl().transaction(c -> {
+                record.attach(c);
+                record.merge();
+                NumericValueColumn.sync(c.dsl(), fName, section, new String[] { key }, new String[] { value });
+            });
+        } else {
+            record.merge();
+        }
+
+        if (this.isCached(fName)) {
+            DataStoreCache.instance().invalidate(fName, key);
+        }
+
+        this.written(fName, key);
     }
 
     /**
@@ -779,49 +1035,100 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
             return;
         }
 
+        this.IncreaseBatchString(fName, section, Collections.singletonMap(amount, Arrays.asList(keys)));
+    }
+
+    /**
+     * Increases the value of the {@code value} column as an integer for groups of keys of the given table and section, each by a different amount,
+     * in a single transaction
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param amounts the values of the {@code variable} column to update, grouped by the amount to increase the {@code value} column by
+     */
+    public void IncreaseBatchString(String fName, String section, Map<Integer, ? extends Collection<String>> amounts) {
         SectionVariableValueTable table = SectionVariableValueTable.instance("phantombot_" + fName, false);
 
-        if (table != null) {
-            final int famount = amount;
-            final String sfamount = Integer.toString(famount);
-            dsl().batched(c -> {
-                try {
-                    c.dsl().startTransaction().execute();
-                } catch (DataAccessException ex) {
-                    if (!ex.getMessage().contains("cannot start a transaction within a transaction")) {
-                        throw ex;
+        if (table != null && !amounts.isEmpty()) {
+            this.flushCache(fName);
+            final Optional<Field<Long>> onum = NumericValueColumn.field(fName);
+            dsl().transaction(c -> {
+                for (Map.Entry<Integer, ? extends Collection<String>> group : amounts.entrySet()) {
+                    if (!group.getValue().isEmpty()) {
+                        this.IncreaseBatchStringInternal(c.dsl(), table, onum, section, group.getValue().toArray(String[]::new), group.getKey());
                     }
                 }
+            });
 
-                int numUpdate;
-                if (section == null) {
-                    numUpdate = c.dsl().update(table)
-                    .set(Collections.singletonMap(table.VALUE, table.VALUE.cast(SQLDataType.INTEGERUNSIGNED).add(famount)))
-                    .where(table.VARIABLE.in(keys)).execute();
-                } else {
-                    numUpdate = c.dsl().update(table)
-                    .set(Collections.singletonMap(table.VALUE, table.VALUE.cast(SQLDataType.INTEGERUNSIGNED).add(famount)))
-                    .where(table.SECTION.eq(section), table.VARIABLE.in(keys)).execute();
+            for (Collection<String> keys : amounts.values()) {
+                for (String key : keys) {
+                    if (this.isCached(fName)) {
+                        DataStoreCache.instance().invalidate(fName, key);
+                    }
+
+                    this.written(fName, key);
                 }
+            }
+        }
+    }
 
-                if (numUpdate < keys.length) {
-                    String isection = section;
-                    if (isection == null) {
-                        isection = "";
-                    }
+    /**
+     * Increases the value of the {@code value} column as an integer for all keys of the given table and section, within the caller's transaction
+     *
+     * @param dsl the context of the transaction
+     * @param table the table
+     * @param onum the numeric column of the table, if it has one
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param keys the values of the {@code variable} column to update
+     * @param amount the amount to increase the {@code value} column by
+     */
+    private void IncreaseBatchStringInternal(DSLContext dsl, SectionVariableValueTable table, Optional<Field<Long>> onum, String section, String[] keys, int amount) {
+        final String samount = Integer.toString(amount);
+        int numUpdate;
+        if (onum.isPresent()) {
+            /*
+             * value is assigned first, as MySQL evaluates the assignments in order using the updated values. Rows written without going through
+             * NumericValueColumn.sync have a NULL numvalue, so fall back to the text value before treating the row as 0
+             */
+            Field<Long> sum = DSL.coalesce(onum.get(), table.VALUE.cast(SQLDataType.BIGINT), DSL.inline(0L)).add(amount);
+            Condition where = section == null ? table.VARIABLE.in(keys) : table.SECTION.eq(section).and(table.VARIABLE.in(keys));
+            numUpdate = dsl.update(table).set(table.VALUE, sum.cast(SQLDataType.VARCHAR(255))).set(onum.get(), sum)
+            .where(where).execute();
+        } else if (section == null) {
+            numUpdate = dsl.update(table)
+            .set(Collections.singletonMap(table.VALUE, table.VALUE.cast(SQLDataType.INTEGERUNSIGNED).add(amount)))
+            .where(table.VARIABLE.in(keys)).execute();
+        } else {
+            numUpdate = dsl.update(table)
+            .set(Collections.singletonMap(table.VALUE, table.VALUE.cast(SQLDataType.INTEGERUNSIGNED).add(amount)))
+            .where(table.SECTION.eq(section), table.VARIABLE.in(keys)).execute();
+        }
 
-                    InsertValuesStep3<?, String, String, String> iq = c.dsl()
-                    .insertInto(table, table.SECTION, table.VARIABLE, table.VALUE);
+        if (numUpdate < keys.length) {
+            String isection = section;
+            if (isection == null) {
+                isection = "";
+            }
 
-                    for (String key : keys) {
-                        iq = iq.values(isection, key, sfamount);
-                    }
+            if (onum.isPresent()) {
+                InsertValuesStep4<?, String, String, String, Long> iq = dsl
+                .insertInto(table, table.SECTION, table.VARIABLE, table.VALUE, onum.get());
 
-                    iq.onDuplicateKeyIgnore().execute();
+                for (String key : keys) {
+                    iq = iq.values(isection, key, samount, (long) amount);
                 }
 
-                c.dsl().commit().execute();
-            });
+                iq.onDuplicateKeyIgnore().execute();
+            } else {
+                InsertValuesStep3<?, String, String, String> iq = dsl
+                .insertInto(table, table.SECTION, table.VARIABLE, table.VALUE);
+
+                for (String key : keys) {
+                    iq = iq.values(isection, key, samount);
+                }
+
+                iq.onDuplicateKeyIgnore().execute();
+            }
         }
     }
 
@@ -836,18 +1143,42 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @param values the new values to set the {@code value} column to
      */
     public void SetBatchString(String fName, String section, String[] keys, String[] values) {
+        if (this.isCached(fName) && section != null && section.isEmpty()) {
+            for (int i = 0; i < Math.min(keys.length, values.length); i++) {
+                DataStoreCache.instance().put(fName, keys[i], values[i]);
+                this.written(fName, keys[i]);
+            }
+
+            return;
+        }
+
+        this.flushCache(fName);
+        this.SetBatchStringInternal(fName, section, keys, values);
+
+        if (this.isCached(fName)) {
+            for (String key : keys) {
+                DataStoreCache.instance().invalidate(fName, key);
+            }
+        }
+
+        for (String key : keys) {
+            this.written(fName, key);
+        }
+    }
+
+    /**
+     * Performs a bulk {@link #SetString(String, String, String, String)} operation, bypassing the {@link DataStoreCache}
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param keys the values of the {@code variable} column to update
+     * @param values the new values to set the {@code value} column to
+     */
+    void SetBatchStringInternal(String fName, String section, String[] keys, String[] values) {
         SectionVariableValueTable table = SectionVariableValueTable.instance("phantombot_" + fName, false);
 
         if (table != null) {
-            dsl().batched(c -> {
-                try {
-                    c.dsl().startTransaction().execute();
-                } catch (DataAccessException ex) {
-                    if (!ex.getMessage().contains("cannot start a transaction within a transaction")) {
-                        throw ex;
-                    }
-                }
-
+            dsl().transaction(c -> {
                 List<SectionVariableValueRecord> records = new ArrayList<>();
                 for (int i = 0; i < Math.min(keys.length, values.length); i++) {
                     SectionVariableValueRecord record = new SectionVariableValueRecord(table, section, keys[i], values[i]);
@@ -856,8 +1187,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
                 }
 
                 c.dsl().batchMerge(records).execute();
-
-                c.dsl().commit().execute();
+                NumericValueColumn.sync(c.dsl(), fName, section, keys, values);
             });
         }
     }
@@ -1178,6 +1508,23 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @param key the value of the {@code variable} column
      */
     public void RemoveKey(String fName, String section, String key) {
+        if (this.isCached(fName)) {
+            DataStoreCache.instance().remove(fName, section, key, () -> this.RemoveKeyInternal(fName, section, key));
+        } else {
+            this.RemoveKeyInternal(fName, section, key);
+        }
+
+        this.written(fName, key);
+    }
+
+    /**
+     * Deletes the row that matches the given table, section, and key, bypassing the {@link DataStoreCache}
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param key the value of the {@code variable} column
+     */
+    private void RemoveKeyInternal(String fName, String section, String key) {
         Optional<Table<?>> otbl = findTable(fName);
 
         if (otbl.isPresent()) {
@@ -1200,6 +1547,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @param section a section name. {@code ""} (empty string) for the default section
      */
     public void RemoveSection(String fName, String section) {
+        this.flushCache(fName);
         Optional<Table<?>> otbl = findTable(fName);
 
         if (otbl.isPresent()) {
@@ -1207,6 +1555,12 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
             dsl().deleteFrom(tbl)
             .where(field("section", tbl).eq(section)).execute();
         }
+
+        if (this.isCached(fName)) {
+            DataStoreCache.instance().invalidate(fName);
+        }
+
+        this.written(fName, null);
     }
 
     /**
@@ -1224,7 +1578,13 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @param fName a table name, without the {@code phantombot_} prefix
      */
     public void RemoveFile(String fName) {
+        if (this.isCached(fName)) {
+            DataStoreCache.instance().invalidate(fName);
+        }
+
         SectionVariableValueTable.instance(fName).drop();
+        NumericValueColumn.forget(fName);
+        this.written(fName, null);
     }
 
     /**
@@ -1234,7 +1594,19 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @param fNameDest a new table name that does not yet exist, without the {@code phantombot_} prefix
      */
     public void RenameFile(String fNameSource, String fNameDest) {
+        if (this.isCached(fNameSource)) {
+            DataStoreCache.instance().invalidate(fNameSource);
+        }
+
+        if (this.isCached(fNameDest)) {
+            DataStoreCache.instance().invalidate(fNameDest);
+        }
+
         SectionVariableValueTable.instance(fNameSource).rename(fNameDest);
+        NumericValueColumn.forget(fNameSource);
+        NumericValueColumn.forget(fNameDest);
+        this.written(fNameSource, null);
+        this.written(fNameDest, null);
     }
 
     /**
@@ -1256,6 +1628,11 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * @return {@code true} if the key exists
      */
     public boolean HasKey(String fName, String section, String key) {
+        if (this.isCached(fName) && (section == null || section.isEmpty())) {
+            return DataStoreCache.instance().lookup(fName, section, key, () -> this.OptRecordInternal(fName, section, key)).exists();
+        }
+
+        this.flushCache(fName);
         Optional<Table<?>> otbl = findTable(fName);
 
         if (otbl.isPresent()) {
@@ -1586,6 +1963,11 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      */
     public List<List<String>> query(String sql, String[] replacements) {
         List<List<String>> results = new ArrayList<>();
+        boolean cached = this == INSTANCE && DataStoreCache.instance().isEnabled();
+
+        if (cached) {
+            DataStoreCache.instance().flushAll();
+        }
 
         try (Connection conn = Datastore2.instance().getConnection()) {
             try ( PreparedStatement statement = conn.prepareStatement(sql)) {
@@ -1608,6 +1990,8 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
                             results.add(row);
                         }
                     }
+                } else if (cached) {
+                    DataStoreCache.instance().invalidateAll();
                 }
             }
         } catch (SQLException ex) {
@@ -0,0 +1,472 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.datastore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.gmt2001.util.concurrent.ExecutorService;
+import com.gmt2001.util.concurrent.KeyVersions;
+
+import tv.phantombot.CaselessProperties;
+
+/**
+ * Provides an optional read-through, write-behind cache in front of {@link DataStore} for frequently accessed tables
+ * <p>
+ * Only the default section ({@code ""}) of a configured table is cached. Reads of the default section, or of all sections, are served from memory
+ * when possible. Writes to the default section are applied to memory immediately and coalesced into a single batched transaction per table on
+ * every flush interval. All other operations on a cached table flush the pending writes first, then invalidate any affected entries
+ */
+public final class DataStoreCache {
+
+    private static final DataStoreCache INSTANCE = new DataStoreCache();
+    private static final int DEFAULT_MAXENTRIES = 10000;
+    private static final int DEFAULT_TTL = 900;
+    private final Map<String, TableCache> tables = new ConcurrentHashMap<>();
+    private final long flushInterval;
+    private volatile ScheduledFuture<?> future = null;
+    private volatile boolean shutdown = false;
+
+    /**
+     * Provides an instance of {@link DataStoreCache}
+     *
+     * @return an instance of {@link DataStoreCache}
+     */
+    public static DataStoreCache instance() {
+        return INSTANCE;
+    }
+
+    private DataStoreCache() {
+        /**
+         * @botproperty datastorecache - A comma-separated list of tables to cache in memory, in the format `table[:maxentries[:ttlseconds]]`. Default entries `10000`, default TTL `900`. Example: `points,time:50000:600,lastseen`. Default none
+         * @botpropertycatsort datastorecache 500 30 Datastore
+         * @botpropertyrestart datastorecache
+         */
+        String config = CaselessProperties.instance().getProperty("datastorecache", "");
+        /**
+         * @botproperty datastorecacheflushinterval - The interval, in milliseconds, between flushes of pending writes from the datastore cache to the database. Default `5000`
+         * @botpropertycatsort datastorecacheflushinterval 510 30 Datastore
+         * @botpropertyrestart datastorecacheflushinterval
+         */
+        this.flushInterval = Math.max(100L, CaselessProperties.instance().getPropertyAsLong("datastorecacheflushinterval", 5000L));
+
+        for (String table : config.split(",")) {
+            String[] parts = table.trim().split(":");
+
+            if (parts[0].isBlank()) {
+                continue;
+            }
+
+            int maxEntries = DEFAULT_MAXENTRIES;
+            int ttl = DEFAULT_TTL;
+
+            try {
+                if (parts.length > 1) {
+                    maxEntries = Integer.parseInt(parts[1].trim());
+                }
+
+                if (parts.length > 2) {
+                    ttl = Integer.parseInt(parts[2].trim());
+                }
+            } catch (NumberFormatException ex) {
+                com.gmt2001.Console.err.println("Invalid datastorecache entry: " + table);
+            }
+
+            this.tables.put(parts[0].trim().toLowerCase(), new TableCache(parts[0].trim().toLowerCase(), maxEntries, ttl));
+        }
+
+        if (!this.tables.isEmpty()) {
+            com.gmt2001.Console.debug.println("Caching tables: " + String.join(", ", this.tables.keySet()));
+        }
+    }
+
+    /**
+     * Indicates if any tables are configured to be cached
+     *
+     * @return {@code true} if the cache is enabled
+     */
+    public boolean isEnabled() {
+        return !this.tables.isEmpty() && !this.shutdown;
+    }
+
+    /**
+     * Indicates if the specified table is cached
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @return {@code true} if the table is cached
+     */
+    public boolean isCached(String fName) {
+        return this.isEnabled() && fName != null && this.tables.containsKey(fName.toLowerCase());
+    }
+
+    /**
+     * Returns the cache for the specified table, starting the flush timer if it is not running
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @return the table cache
+     */
+    private TableCache table(String fName) {
+        if (this.future == null) {
+            synchronized (this) {
+                if (this.future == null && !this.shutdown) {
+                    this.future = ExecutorService.scheduleAtFixedRate(this::maintenance, this.flushInterval, this.flushInterval, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        return this.tables.get(fName.toLowerCase());
+    }
+
+    /**
+     * Looks up a row, loading it with the provided loader on a cache miss
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param key the value of the {@code variable} column
+     * @param loader a loader which reads the row directly from the database
+     * @return the cached value
+     */
+    CachedValue lookup(String fName, String section, String key, Supplier<Optional<SectionVariableValueRecord>> loader) {
+        return this.table(fName).lookup(section, key, loader);
+    }
+
+    /**
+     * Writes a value to the default section of a cached table, queueing it to be flushed to the database
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param key the value of the {@code variable} column
+     * @param value the new value of the {@code value} column
+     */
+    void put(String fName, String key, String value) {
+        this.table(fName).put(key, value);
+    }
+
+    /**
+     * Deletes a row from a cached table, ordered after any pending writes
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param key the value of the {@code variable} column
+     * @param delete the operation which deletes the row from the database
+     */
+    void remove(String fName, String section, String key, Runnable delete) {
+        this.table(fName).remove(section, key, delete);
+    }
+
+    /**
+     * Removes a key from the cache of the specified table, flushing any pending write for it first
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param key the value of the {@code variable} column
+     */
+    void invalidate(String fName, String key) {
+        if (this.isCached(fName)) {
+            this.table(fName).invalidate(key);
+        }
+    }
+
+    /**
+     * Removes all keys from the cache of the specified table, flushing any pending writes first
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     */
+    void invalidate(String fName) {
+        if (this.isCached(fName)) {
+            this.table(fName).invalidateAll();
+        }
+    }
+
+    /**
+     * Removes all keys from the cache of all tables, flushing any pending writes first
+     */
+    void invalidateAll() {
+        if (this.isEnabled()) {
+            this.tables.values().forEach(TableCache::invalidateAll);
+        }
+    }
+
+    /**
+     * Flushes all pending writes for the specified table to the database
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     */
+    public void flush(String fName) {
+        if (this.isCached(fName)) {
+            this.table(fName).flush();
+        }
+    }
+
+    /**
+     * Flushes all pending writes for all tables to the database
+     */
+    public void flushAll() {
+        this.tables.values().forEach(TableCache::flush);
+    }
+
+    /**
+     * Flushes all pending writes, then disables the cache
+     * <p>
+     * Once this is called, all further operations go directly to the database
+     */
+    public synchronized void shutdown() {
+        if (this.future != null) {
+            this.future.cancel(false);
+        }
+
+        this.flushAll();
+        this.shutdown = true;
+        this.tables.values().forEach(t -> t.entries.clear());
+    }
+
+    /**
+     * Returns human-readable statistics for each cached table
+     *
+     * @return a list of statistics lines
+     */
+    public List<String> stats() {
+        List<String> stats = new ArrayList<>();
+        this.tables.values().forEach(t -> stats.add(t.toString()));
+        Collections.sort(stats);
+        return stats;
+    }
+
+    /**
+     * Periodically flushes pending writes and evicts expired and excess entries
+     */
+    private void maintenance() {
+        try {
+            this.tables.values().forEach(t -> {
+                t.flush();
+                t.evict();
+            });
+        } catch (Exception ex) {
+            com.gmt2001.Console.err.printStackTrace(ex);
+        }
+    }
+
+    /**
+     * A value returned from the cache
+     *
+     * @param exists {@code true} if the row exists
+     * @param value the value of the {@code value} column; {@code null} if the row does not exist
+     */
+    record CachedValue(boolean exists, String value) {
+    }
+
+    /**
+     * An entry in a table cache
+     */
+    private static final class Entry {
+        private final CachedValue value;
+        private final boolean allSections;
+        private final long expires;
+        private volatile long lastAccess;
+
+        /**
+         * Constructor
+         *
+         * @param value the value
+         * @param allSections {@code true} if a non-existent value was looked up across all sections, rather than just the default section
+         * @param ttl the TTL, in nanoseconds
+         */
+        private Entry(CachedValue value, boolean allSections, long ttl) {
+            this.value = value;
+            this.allSections = allSections;
+            this.lastAccess = System.nanoTime();
+            this.expires = this.lastAccess + ttl;
+        }
+
+        private boolean expired(long now) {
+            return now - this.expires > 0;
+        }
+    }
+
+    /**
+     * The cache for a single table
+     */
+    private static final class TableCache {
+        private final String fName;
+        private final int maxEntries;
+        private final long ttl;
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        private final Map<String, String> dirty = new ConcurrentHashMap<>();
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private final KeyVersions versions = new KeyVersions();
+        private final AtomicLong hits = new AtomicLong(0L);
+        private final AtomicLong misses = new AtomicLong(0L);
+        private final AtomicLong writes = new AtomicLong(0L);
+        private final AtomicLong flushes = new AtomicLong(0L);
+        private final AtomicLong flushedRows = new AtomicLong(0L);
+        private final AtomicLong evictions = new AtomicLong(0L);
+
+        private TableCache(String fName, int maxEntries, int ttl) {
+            this.fName = fName;
+            this.maxEntries = Math.max(1, maxEntries);
+            this.ttl = TimeUnit.SECONDS.toNanos(Math.max(1, ttl));
+        }
+
+        private CachedValue lookup(String section, String key, Supplier<Optional<SectionVariableValueRecord>> loader) {
+            Entry entry = this.entries.get(key);
+
+            if (entry != null && (!entry.expired(System.nanoTime()) || this.dirty.containsKey(key))) {
+                if (entry.value.exists() || section != null || entry.allSections) {
+                    entry.lastAccess = System.nanoTime();
+                    this.hits.incrementAndGet();
+                    return entry.value;
+                }
+            }
+
+            this.misses.incrementAndGet();
+            long stamp = this.versions.stamp(key);
+            Optional<SectionVariableValueRecord> record = loader.get();
+            CachedValue value = record.map(r -> new CachedValue(true, r.value())).orElseGet(() -> new CachedValue(false, null));
+
+            if (record.isEmpty() || record.get().section().isEmpty()) {
+                Entry loaded = new Entry(value, section == null, this.ttl);
+                // Only replace the entry that was missed, and only if nothing invalidated the key while it was loading
+                this.entries.compute(key, (k, current) -> (current == null || current == entry) && this.versions.unchanged(k, stamp) ? loaded : current);
+            }
+
+            return value;
+        }
+
+        private void put(String key, String value) {
+            this.versions.bump(key);
+            this.entries.put(key, new Entry(new CachedValue(true, value), false, this.ttl));
+            this.dirty.put(key, value);
+            this.writes.incrementAndGet();
+        }
+
+        private void remove(String section, String key, Runnable delete) {
+            if (section != null && !section.isEmpty()) {
+                delete.run();
+                return;
+            }
+
+            this.flushLock.lock();
+            try {
+                this.versions.bump(key);
+                this.dirty.remove(key);
+                delete.run();
+                this.entries.put(key, new Entry(new CachedValue(false, null), section == null, this.ttl));
+            } finally {
+                this.flushLock.unlock();
+            }
+        }
+
+        private void invalidate(String key) {
+            this.flushLock.lock();
+            try {
+                this.flush();
+                this.versions.bump(key);
+                this.entries.remove(key);
+            } finally {
+                this.flushLock.unlock();
+            }
+        }
+
+        private void invalidateAll() {
+            this.flushLock.lock();
+            try {
+                this.flush();
+                this.versions.bumpAll();
+                this.entries.clear();
+            } finally {
+                this.flushLock.unlock();
+            }
+        }
+
+        private void flush() {
+            if (this.dirty.isEmpty()) {
+                return;
+            }
+
+            this.flushLock.lock();
+            try {
+                Map<String, String> pending = new HashMap<>(this.dirty);
+
+                if (pending.isEmpty()) {
+                    return;
+                }
+
+                String[] keys = new String[pending.size()];
+                String[] values = new String[pending.size()];
+                int i = 0;
+                for (Map.Entry<String, String> kv : pending.entrySet()) {
+                    keys[i] = kv.getKey();
+                    values[i] = kv.getValue();
+                    i++;
+                }
+
+                SectionVariableValueTable.instance("phantombot_" + this.fName);
+                DataStore.instance().SetBatchStringInternal(this.fName, "", keys, values);
+                pending.forEach((k, v) -> this.dirty.remove(k, v));
+                this.flushes.incrementAndGet();
+                this.flushedRows.addAndGet(keys.length);
+            } catch (Exception ex) {
+                com.gmt2001.Console.err.println("Failed to flush datastore cache for table " + this.fName + ", will retry");
+                com.gmt2001.Console.err.printStackTrace(ex);
+            } finally {
+                this.flushLock.unlock();
+            }
+        }
+
+        private void evict() {
+            long now = System.nanoTime();
+            this.entries.entrySet().removeIf(kv -> {
+                if (kv.getValue().expired(now) && !this.dirty.containsKey(kv.getKey())) {
+                    this.evictions.incrementAndGet();
+                    return true;
+                }
+
+                return false;
+            });
+
+            int excess = this.entries.size() - this.maxEntries;
+
+            if (excess > 0) {
+                this.entries.entrySet().stream().filter(kv -> !this.dirty.containsKey(kv.getKey()))
+                    .sorted(Comparator.comparingLong(kv -> kv.getValue().lastAccess)).limit(excess)
+                    .map(Map.Entry::getKey).toList().forEach(key -> {
+                        if (!this.dirty.containsKey(key) && this.entries.remove(key) != null) {
+                            this.evictions.incrementAndGet();
+                        }
+                    });
+            }
+        }
+
+        @Override
+        public String toString() {
+            long h = this.hits.get();
+            long m = this.misses.get();
+            return String.format("%s: entries=%d/%d pending=%d hits=%d misses=%d hitrate=%.1f%% writes=%d flushes=%d flushedrows=%d evictions=%d",
+                this.fName, this.entries.size(), this.maxEntries, this.dirty.size(), h, m, h + m == 0 ? 0.0 : (h * 100.0) / (h + m),
+                this.writes.get(), this.flushes.get(), this.flushedRows.get(), this.evictions.get());
+        }
+    }
+}
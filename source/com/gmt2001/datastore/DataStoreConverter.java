@@ -16,14 +16,56 @@
  */
 package com.gmt2001.datastore;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import tv.phantombot.CaselessProperties;
+
 /**
  * Final class that is used to convert datastores.
+ * <p>
+ * Each table is read from the source with a cursor and written to the destination in large batched transactions, and independent tables
+ * are converted in parallel. The name of each table is recorded in {@link #PROGRESS_FILE} once it has been fully written, so that an
+ * interrupted conversion resumes with the tables which were not yet completed
+ *
  * @deprecated No replacement planned
  * @author ScaniaTV
  */
 @Deprecated(since = "3.9.0.0", forRemoval = true)
 public final class DataStoreConverter {
 
+    /**
+     * The maximum number of rows written in a single transaction
+     */
+    private static final int BATCH_SIZE = 5000;
+    /**
+     * How often progress is printed while converting
+     */
+    private static final long PROGRESS_INTERVAL_MS = 5000L;
+    /**
+     * Records the tables which have been completed by an unfinished conversion
+     */
+    private static final Path PROGRESS_FILE = Paths.get("./config/datastoreconverter.progress");
+    private static final AtomicReference<Progress> CURRENT = new AtomicReference<>();
+
     /*
 	 * Class constructor.
      */
@@ -32,45 +74,282 @@ public final class DataStoreConverter {
     }
 
     /**
-	 * Method that converts a datastore to another one.
+     * Indicates if a previous conversion was interrupted before it completed
+     *
+     * @return {@code true} if the conversion must be resumed
+     */
+    public static boolean isIncomplete() {
+        return Files.exists(PROGRESS_FILE);
+    }
+
+    /**
+     * Indicates if a conversion is currently running
+     *
+     * @return {@code true} if running
+     */
+    public static boolean isRunning() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Returns the legacy destination datastore which matches the {@code datastore} property, to convert the old SQLite database into
+     * <p>
+     * The returned store writes to the database directly, bypassing {@link DataStoreCache} and the write listeners of
+     * {@link DataStore#instance()}, so it must only be used before the bot starts
+     *
+     * @return the datastore; {@code null} if the configured datastore is SQLite
+     */
+    @SuppressWarnings("removal")
+    public static DataStore legacyDestination() {
+        String oldds = CaselessProperties.instance().getProperty("datastore", "h2store").toLowerCase();
+
+        if (oldds.startsWith("mysql") || oldds.startsWith("mariadb")) {
+            String conn = (oldds.startsWith("mysql") ? "jdbc:mysql://" : "jdbc:mariadb://") + CaselessProperties.instance().getProperty("mysqlhost", "");
+            if (!CaselessProperties.instance().getProperty("mysqlport", "").isEmpty()) {
+                conn += ":" + CaselessProperties.instance().getProperty("mysqlport", "");
+            }
+            conn += "/" + CaselessProperties.instance().getProperty("mysqlname", "") + "?useSSL=" + (CaselessProperties.instance().getPropertyAsBoolean("mysqlssl", false) ? "true" : "false") + "&user=" + CaselessProperties.instance().getProperty("mysqluser", "") + "&password=" + CaselessProperties.instance().getProperty("mysqlpass", "");
+
+            if (oldds.startsWith("mysql")) {
+                // Allows the batches to be sent as multi-row statements
+                return MySQLStore.instance(conn + "&rewriteBatchedStatements=true");
+            }
+
+            return MariaDBStore.instance(conn);
+        } else if (oldds.startsWith("h2")) {
+            return H2Store.instance(CaselessProperties.instance().getProperty("datastoreconfig", ""));
+        }
+
+        return null;
+    }
+
+    /**
+	 * Method that converts a datastore to another one, then disposes of the source.
 	 *
 	 * @param primaryDbInstance - The destination datastore
 	 * @param secondaryDbInstance - The source datastore
      */
     public static void convertDataStore(DataStore primaryDbInstance, DataStore secondaryDbInstance) {
+        convertDataStore(primaryDbInstance, secondaryDbInstance, true);
+    }
+
+    /**
+	 * Method that converts a datastore to another one.
+	 *
+	 * @param primaryDbInstance - The destination datastore
+	 * @param secondaryDbInstance - The source datastore
+	 * @param dispose - If the source datastore should be disposed once complete
+     */
+    public static void convertDataStore(DataStore primaryDbInstance, DataStore secondaryDbInstance, boolean dispose) {
         com.gmt2001.Console.out.println("Starting datatore conversion. This could take time...");
         com.gmt2001.Console.warn.println();
         com.gmt2001.Console.warn.println("DO NOT SHUTDOWN THE BOT UNTIL THIS IS COMPLETE");
-        com.gmt2001.Console.warn.println("DATA LOSS COULD OCCUR");
+        com.gmt2001.Console.warn.println("IF INTERRUPTED, THE CONVERSION WILL RESUME ON THE NEXT START");
         com.gmt2001.Console.warn.println();
 
-        // Convert our old database to our new one.
-        com.gmt2001.Console.out.println("Converting old datastore to the new one...");
         String[] tables = secondaryDbInstance.GetFileList();
+        Set<String> completed = readProgress();
+        List<String> remaining = new ArrayList<>();
+
         for (String table : tables) {
-            com.gmt2001.Console.out.print("Converting table " + table + "... 0");
-            int i = 0;
-            // Get the list of sections for this table.
-            String[] sections = secondaryDbInstance.GetCategoryList(table);
-            for (String section : sections) {
-                // Get all keys for this table.
-                String[] keys = secondaryDbInstance.GetKeyList(table, section);
-                for (String key : keys) {
-                    // Get the value from the old database and set it in the new one.
-                    primaryDbInstance.SetString(table, section, key, secondaryDbInstance.GetString(table, section, key));
-                    i++;
-                    if (i % 100 == 0) {
-                        com.gmt2001.Console.out.print("\rConverting table " + table + "... " + i);
-                    }
+            if (!completed.contains(table)) {
+                remaining.add(table);
+            }
+        }
+
+        if (!completed.isEmpty()) {
+            com.gmt2001.Console.out.println("Resuming previous conversion, " + completed.size() + " of " + tables.length + " tables were already completed");
+        }
+
+        /**
+         * @botproperty datastoreconverterthreads - The number of tables converted at the same time when converting an old datastore. Default `4` or the number of processors, whichever is lower
+         * @botpropertycatsort datastoreconverterthreads 600 30 Datastore
+         */
+        int threads = Math.max(1, CaselessProperties.instance().getPropertyAsInt("datastoreconverterthreads", Math.min(4, Runtime.getRuntime().availableProcessors())));
+        Progress progress = new Progress(tables.length, completed.size());
+
+        if (!CURRENT.compareAndSet(null, progress)) {
+            com.gmt2001.Console.err.println("A datastore conversion is already running");
+            return;
+        }
+
+        com.gmt2001.Console.out.println("Converting old datastore to the new one, " + remaining.size() + " tables using " + threads + " threads...");
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "DataStoreConverter-" + progress.threadNum.incrementAndGet());
+            t.setDaemon(true);
+            t.setUncaughtExceptionHandler(com.gmt2001.UncaughtExceptionHandler.instance());
+            return t;
+        });
+        ScheduledFuture<?> reporter = com.gmt2001.util.concurrent.ExecutorService.scheduleAtFixedRate(() -> com.gmt2001.Console.out.println(progress.toString()),
+                PROGRESS_INTERVAL_MS, PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        boolean success = true;
+
+        try {
+            writeProgress(null);
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (String table : remaining) {
+                futures.add(pool.submit(() -> convertTable(primaryDbInstance, secondaryDbInstance, table, progress)));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    success = false;
+                    com.gmt2001.Console.err.printStackTrace(ex.getCause());
                 }
             }
-            com.gmt2001.Console.out.print("\rConverting table " + table + "... " + i + System.lineSeparator());
+        } catch (InterruptedException ex) {
+            success = false;
+            com.gmt2001.Console.err.printStackTrace(ex);
+        } finally {
+            reporter.cancel(false);
+            pool.shutdownNow();
+            CURRENT.set(null);
+        }
+
+        com.gmt2001.Console.out.println(progress.toString());
+
+        if (!success) {
+            com.gmt2001.Console.err.println("Datastore conversion did not complete, it will be resumed on the next start");
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(PROGRESS_FILE);
+        } catch (IOException ex) {
+            com.gmt2001.Console.err.printStackTrace(ex);
         }
 
         // Close the old database.
-        secondaryDbInstance.dispose();
+        if (dispose) {
+            secondaryDbInstance.dispose();
+        }
+
         com.gmt2001.Console.out.println();
         com.gmt2001.Console.out.println("Finished converting datastore.");
         com.gmt2001.Console.out.println();
     }
+
+    /**
+     * Returns the progress of the running conversion
+     *
+     * @return the progress; {@code null} if no conversion is running
+     */
+    public static String status() {
+        Progress progress = CURRENT.get();
+        return progress == null ? null : progress.toString();
+    }
+
+    /**
+     * Copies all rows of a table, then records the table as completed
+     * <p>
+     * The legacy datastores print and discard their SQL errors, so the table is only recorded as completed once every row counted in the
+     * source has been read, and the destination contains at least as many rows as the source
+     *
+     * @param primaryDbInstance - The destination datastore
+     * @param secondaryDbInstance - The source datastore
+     * @param table - The table to convert
+     * @param progress - The progress counters
+     */
+    private static void convertTable(DataStore primaryDbInstance, DataStore secondaryDbInstance, String table, Progress progress) {
+        progress.running.add(table);
+        try {
+            long expected = secondaryDbInstance.GetKeyList(table, null).length;
+            LongAdder streamed = new LongAdder();
+            primaryDbInstance.AddFile(table);
+            secondaryDbInstance.StreamKeyValueList(table, BATCH_SIZE, (section, batch) -> {
+                String[] keys = new String[batch.size()];
+                String[] values = new String[batch.size()];
+
+                for (int i = 0; i < batch.size(); i++) {
+                    keys[i] = batch.get(i).getKey();
+                    values[i] = batch.get(i).getValue();
+                }
+
+                primaryDbInstance.SetBatchString(table, section, keys, values);
+                progress.rows.add(batch.size());
+                streamed.add(batch.size());
+            });
+
+            if (streamed.sum() != expected) {
+                throw new IllegalStateException("Read " + streamed.sum() + " of " + expected + " rows from the source table " + table);
+            }
+
+            long written = primaryDbInstance.GetKeyList(table, null).length;
+
+            if (written < expected) {
+                throw new IllegalStateException("The destination table " + table + " has " + written + " rows, expected at least " + expected);
+            }
+
+            writeProgress(table);
+            progress.tablesDone.incrementAndGet();
+        } finally {
+            progress.running.remove(table);
+        }
+    }
+
+    /**
+     * Reads the names of the tables completed by an interrupted conversion
+     *
+     * @return the table names
+     */
+    private static Set<String> readProgress() {
+        Set<String> completed = new HashSet<>();
+
+        if (Files.exists(PROGRESS_FILE)) {
+            try {
+                for (String line : Files.readAllLines(PROGRESS_FILE, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) {
+                        completed.add(line.trim());
+                    }
+                }
+            } catch (IOException ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+        }
+
+        return completed;
+    }
+
+    /**
+     * Records a completed table in the progress file
+     *
+     * @param table - The table name; {@code null} to only create the file
+     */
+    private static synchronized void writeProgress(String table) {
+        try {
+            Files.writeString(PROGRESS_FILE, table == null ? "" : table + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        } catch (IOException ex) {
+            com.gmt2001.Console.err.printStackTrace(ex);
+        }
+    }
+
+    /**
+     * Counters for a running conversion
+     */
+    private static final class Progress {
+        private final int tablesTotal;
+        private final AtomicInteger tablesDone;
+        private final AtomicInteger threadNum = new AtomicInteger(0);
+        private final LongAdder rows = new LongAdder();
+        private final Set<String> running = ConcurrentHashMap.newKeySet();
+        private final long started = System.nanoTime();
+
+        private Progress(int tablesTotal, int tablesDone) {
+            this.tablesTotal = tablesTotal;
+            this.tablesDone = new AtomicInteger(tablesDone);
+        }
+
+        @Override
+        public String toString() {
+            long r = this.rows.sum();
+            double seconds = Math.max(0.001, (System.nanoTime() - this.started) / 1_000_000_000.0);
+            return String.format("Converted %d/%d tables, %d rows in %.1fs (%.0f rows/sec)%s", this.tablesDone.get(), this.tablesTotal, r, seconds,
+                    r / seconds, this.running.isEmpty() ? "" : " converting: " + String.join(", ", this.running));
+        }
+    }
 }
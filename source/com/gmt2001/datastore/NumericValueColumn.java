@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.datastore;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jooq.BatchBindStep;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Index;
+import org.jooq.Record3;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+
+import com.gmt2001.datastore2.Datastore2;
+
+import tv.phantombot.CaselessProperties;
+
+/**
+ * Maintains an indexed {@code BIGINT} shadow of the {@code value} column for selected {@link DataStore} tables
+ * <p>
+ * The {@code numvalue} column holds the value parsed as a whole number, or {@code NULL} if it is not numeric. It is kept in sync by the write
+ * methods of {@link DataStore}, and is indexed in descending order, so that ordering by value as a number, such as for a top points list,
+ * reads the first rows of the index instead of casting and sorting every row
+ * <p>
+ * The index is on the column alone, since the top lists read the default section without a section predicate, and H2 only serves an
+ * {@code ORDER BY} from an index which matches its direction and is not competing with the primary key for a {@code section} predicate
+ * <p>
+ * The column and index are added, and existing rows are filled in, the first time a configured table is used
+ */
+final class NumericValueColumn {
+
+    private static final String COLUMN = "numvalue";
+    /**
+     * The number of rows updated in each batch while filling in the column of an existing table
+     */
+    private static final int FILL_BATCH_SIZE = 5000;
+    /**
+     * The numeric column of each table which has been prepared, by lowercase table name
+     */
+    private static final Map<String, Field<Long>> FIELDS = new ConcurrentHashMap<>();
+    private static volatile Set<String> configured = null;
+
+    private NumericValueColumn() {
+    }
+
+    /**
+     * Returns the tables which are configured to have a numeric column
+     *
+     * @return the lowercase table names, without the {@code phantombot_} prefix
+     */
+    private static Set<String> configured() {
+        if (configured == null) {
+            /**
+             * @botproperty datastorenumerictables - A comma-separated list of tables which store an indexed numeric copy of their values, to speed up top lists and batch increments. Default `points,time,deaths`
+             * @botpropertycatsort datastorenumerictables 530 30 Datastore
+             * @botpropertyrestart datastorenumerictables
+             */
+            configured = Stream.of(CaselessProperties.instance().getProperty("datastorenumerictables", "points,time,deaths").split(","))
+                .map(s -> s.trim().toLowerCase(Locale.ROOT)).filter(s -> !s.isEmpty()).collect(Collectors.toUnmodifiableSet());
+        }
+
+        return configured;
+    }
+
+    /**
+     * Returns the numeric column of a table, preparing it if this is the first use of the table
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @return an {@link Optional} that contains the column, if the table is configured to have one and it exists
+     */
+    static Optional<Field<Long>> field(String fName) {
+        if (fName == null || !configured().contains(fName.toLowerCase(Locale.ROOT))) {
+            return Optional.empty();
+        }
+
+        Field<Long> field = FIELDS.get(fName.toLowerCase(Locale.ROOT));
+
+        if (field != null) {
+            return Optional.of(field);
+        }
+
+        SectionVariableValueTable table = SectionVariableValueTable.instance("phantombot_" + fName, false);
+
+        if (table == null) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.ofNullable(FIELDS.computeIfAbsent(fName.toLowerCase(Locale.ROOT), k -> prepare(table)));
+        } catch (Exception ex) {
+            com.gmt2001.Console.err.printStackTrace(ex);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Forgets the prepared column of a table which has been dropped or renamed
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     */
+    static void forget(String fName) {
+        if (fName != null) {
+            FIELDS.remove(fName.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Parses a value into the number stored in the numeric column
+     *
+     * @param value the value
+     * @return the number; {@code null} if the value is not numeric
+     */
+    static Long parse(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        String trimmed = value.trim();
+
+        try {
+            return Long.valueOf(trimmed);
+        } catch (NumberFormatException ex) {
+            try {
+                double d = Double.parseDouble(trimmed);
+                return Double.isFinite(d) ? Math.round(d) : null;
+            } catch (NumberFormatException ex2) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Updates the numeric column of the given rows to match the values which were just written
+     *
+     * @param dsl the context to execute in, which may be part of a transaction
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param keys the values of the {@code variable} column which were written
+     * @param values the values which were written
+     */
+    static void sync(DSLContext dsl, String fName, String section, String[] keys, String[] values) {
+        Optional<Field<Long>> onum = field(fName);
+
+        if (onum.isEmpty()) {
+            return;
+        }
+
+        SectionVariableValueTable table = SectionVariableValueTable.instance("phantombot_" + fName, false);
+
+        if (table == null) {
+            return;
+        }
+
+        int count = Math.min(keys.length, values.length);
+
+        if (count == 1) {
+            if (section == null) {
+                dsl.update(table).set(onum.get(), parse(values[0])).where(table.VARIABLE.eq(keys[0])).execute();
+            } else {
+                dsl.update(table).set(onum.get(), parse(values[0])).where(table.SECTION.eq(section), table.VARIABLE.eq(keys[0])).execute();
+            }
+
+            return;
+        }
+
+        BatchBindStep batch;
+        if (section == null) {
+            batch = dsl.batch(dsl.update(table).set(onum.get(), DSL.param(COLUMN, Long.class))
+                .where(table.VARIABLE.eq(DSL.param("variable", String.class))));
+        } else {
+            batch = dsl.batch(dsl.update(table).set(onum.get(), DSL.param(COLUMN, Long.class))
+                .where(table.SECTION.eq(DSL.param("section", String.class)), table.VARIABLE.eq(DSL.param("variable", String.class))));
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (section == null) {
+                batch = batch.bind(parse(values[i]), keys[i]);
+            } else {
+                batch = batch.bind(parse(values[i]), section, keys[i]);
+            }
+        }
+
+        if (count > 0) {
+            batch.execute();
+        }
+    }
+
+    /**
+     * Adds the numeric column and its index to a table if they are missing, then fills in the column for rows where it is {@code NULL}
+     *
+     * @param table the table
+     * @return the numeric column
+     */
+    private static Field<Long> prepare(SectionVariableValueTable table) {
+        DSLContext dsl = Datastore2.instance().dslContext();
+        Table<?> meta = Datastore2.instance().findTable(table.getName()).orElse(table);
+        Optional<Field<?>> existing = meta.fieldStream().filter(f -> f.getName().equalsIgnoreCase(COLUMN)).findFirst();
+
+        if (existing.isEmpty()) {
+            com.gmt2001.Console.debug.println("Adding " + COLUMN + " to " + table.getName());
+            dsl.alterTable(table).addColumn(DSL.name(COLUMN), SQLDataType.BIGINT.nullable(true)).execute();
+            Datastore2.instance().invalidateTableCache();
+        }
+
+        String column = existing.map(Field::getName).orElse(COLUMN);
+        Field<Long> num = DSL.field(DSL.name(table.getName(), column), SQLDataType.BIGINT);
+        boolean indexed = false;
+
+        try {
+            for (Index index : meta.getIndexes()) {
+                if (!index.getFields().isEmpty() && index.getFields().get(0).getName().equalsIgnoreCase(COLUMN)) {
+                    indexed = true;
+                    break;
+                }
+            }
+        } catch (Exception ex) {
+            com.gmt2001.Console.debug.printStackTrace(ex);
+        }
+
+        if (!indexed) {
+            try {
+                com.gmt2001.Console.debug.println("Indexing " + COLUMN + " on " + table.getName());
+                dsl.createIndex(DSL.name(table.getName() + "_" + COLUMN)).on(table, DSL.field(DSL.name(column)).desc()).execute();
+            } catch (Exception ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+        }
+
+        fill(dsl, table, num);
+
+        return num;
+    }
+
+    /**
+     * Fills in the numeric column of an existing table
+     *
+     * @param dsl the context
+     * @param table the table
+     * @param num the numeric column
+     */
+    private static void fill(DSLContext dsl, SectionVariableValueTable table, Field<Long> num) {
+        List<Record3<String, String, String>> rows = dsl.select(table.SECTION, table.VARIABLE, table.VALUE).from(table)
+            .where(num.isNull(), table.VALUE.isNotNull()).fetch();
+        int filled = 0;
+
+        for (int start = 0; start < rows.size(); start += FILL_BATCH_SIZE) {
+            BatchBindStep batch = dsl.batch(dsl.update(table).set(num, DSL.param(COLUMN, Long.class))
+                .where(table.SECTION.eq(DSL.param("section", String.class)), table.VARIABLE.eq(DSL.param("variable", String.class))));
+            int size = 0;
+
+            for (Record3<String, String, String> row : rows.subList(start, Math.min(rows.size(), start + FILL_BATCH_SIZE))) {
+                Long value = parse(row.value3());
+
+                if (value != null) {
+                    batch = batch.bind(value, row.value1(), row.value2());
+                    size++;
+                }
+            }
+
+            if (size > 0) {
+                batch.execute();
+                filled += size;
+            }
+        }
+
+        if (filled > 0) {
+            com.gmt2001.Console.debug.println("Filled " + COLUMN + " of " + filled + " rows in " + table.getName());
+        }
+    }
+}
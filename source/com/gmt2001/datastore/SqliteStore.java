@@ -41,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
 import org.apache.commons.io.FileUtils;
 import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteDataSource;
@@ -561,6 +562,48 @@ public final class SqliteStore extends DataStore {
         }
     }
 
+    @Override
+    public void StreamKeyValueList(String fName, int batchSize, BiConsumer<String, List<KeyValue>> consumer) {
+        try {
+            this.rwl.readLock().lock();
+
+            try ( Connection connection = GetConnection()) {
+                fName = validateFname(fName);
+
+                if (FileExists(connection, fName)) {
+                    try ( PreparedStatement statement = connection.prepareStatement("SELECT section, variable, value FROM phantombot_" + fName + " ORDER BY section;")) {
+                        statement.setFetchSize(batchSize);
+
+                        try ( ResultSet rs = statement.executeQuery()) {
+                            List<KeyValue> batch = new ArrayList<>(batchSize);
+                            String batchSection = null;
+
+                            while (rs.next()) {
+                                String section = rs.getString("section");
+
+                                if (!batch.isEmpty() && (batch.size() >= batchSize || (section == null ? batchSection != null : !section.equals(batchSection)))) {
+                                    consumer.accept(batchSection, batch);
+                                    batch = new ArrayList<>(batchSize);
+                                }
+
+                                batchSection = section;
+                                batch.add(new KeyValue(rs.getString("variable"), rs.getString("value")));
+                            }
+
+                            if (!batch.isEmpty()) {
+                                consumer.accept(batchSection, batch);
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+        } finally {
+            this.rwl.readLock().unlock();
+        }
+    }
+
     @Override
     public String[] GetKeysByOrder(String fName, String section, String order, String limit, String offset) {
         return GetKeysByOrderInternal(fName, section, order, limit, offset, false);
@@ -80,6 +80,10 @@ public abstract class Datastore2 {
      * Instance of {@link MiniConnectionPoolManager} that provides pooled {@link Connection} objects on demand
      */
     private MiniConnectionPoolManager connectionPoolManager;
+    /**
+     * Instance of {@link StatementCache} that caches prepared statements for each pooled connection; {@code null} if disabled
+     */
+    private StatementCache statementCache = null;
     /**
      * Instance of {@link DSLContext} for generating and executing SQL statements
      */
@@ -289,6 +293,17 @@ public abstract class Datastore2 {
     protected void init(ConnectionPoolDataSource dataSource, int maxConnections, int timeout, SQLDialect sqlDialect) {
         this.connectionPoolManager = new MiniConnectionPoolManager(dataSource, maxConnections, timeout);
 
+        /**
+         * @botproperty datastorestatementcachesize - The maximum number of prepared statements to cache for each database connection. `0` to disable. Default `64`
+         * @botpropertycatsort datastorestatementcachesize 520 30 Datastore
+         * @botpropertyrestart datastorestatementcachesize
+         */
+        int statementCacheSize = CaselessProperties.instance().getPropertyAsInt("datastorestatementcachesize", 64);
+        if (statementCacheSize > 0 && this.supportsStatementCache()) {
+            this.statementCache = new StatementCache(statementCacheSize);
+            this.connectionPoolManager.setConnectionWrapper(this.statementCache);
+        }
+
         Configuration configuration = new DefaultConfiguration().set(new ConnectionProvider() {
             @Override
             public Connection acquire() throws DataAccessException {
@@ -344,6 +359,28 @@ public abstract class Datastore2 {
         return this.connectionPoolManager.getConnection();
     }
 
+    /**
+     * Indicates if prepared statements created on a pooled connection remain valid after the logical connection handle is closed,
+     * allowing them to be cached by {@link StatementCache}
+     * <p>
+     * Drivers which already cache statements internally, or which invalidate statements when the logical connection handle is closed,
+     * should leave this disabled
+     *
+     * @return {@code true} if supported
+     */
+    protected boolean supportsStatementCache() {
+        return false;
+    }
+
+    /**
+     * Returns the {@link StatementCache} which caches prepared statements for each pooled connection
+     *
+     * @return an {@link Optional} which contains the {@link StatementCache}, if enabled
+     */
+    public Optional<StatementCache> statementCache() {
+        return Optional.ofNullable(this.statementCache);
+    }
+
     /**
      * Tests if the database is accessible
      * <p>
@@ -112,7 +112,9 @@ public final class H2Store2 extends Datastore2 {
         this.restoreBackup();
 
         JdbcDataSource dataSource = new JdbcDataSource();
-        dataSource.setURL("jdbc:h2:./config/" + getDbFile() + ";DB_CLOSE_ON_EXIT=FALSE;MAX_LENGTH_INPLACE_LOB=2048");
+        // H2 invalidates statements when the logical connection is closed, so use the per-session query cache instead of StatementCache
+        dataSource.setURL("jdbc:h2:./config/" + getDbFile() + ";DB_CLOSE_ON_EXIT=FALSE;MAX_LENGTH_INPLACE_LOB=2048;QUERY_CACHE_SIZE="
+            + Math.max(0, CaselessProperties.instance().getPropertyAsInt("datastorestatementcachesize", 64)));
         this.init(dataSource, SQLDialect.H2);
     }
 
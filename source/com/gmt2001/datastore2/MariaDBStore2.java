@@ -66,6 +66,12 @@ public final class MariaDBStore2 extends Datastore2 {
             connectionString = "jdbc:mariadb://" + CaselessProperties.instance().getProperty("mysqlhost", "") + ":" + CaselessProperties.instance().getProperty("mysqlport", "") + "/" + dbname + "?useSSL=" + (CaselessProperties.instance().getPropertyAsBoolean("mysqlssl", false) ? "true" : "false") + "&user=" + CaselessProperties.instance().getProperty("mysqluser", "") + "&password=" + CaselessProperties.instance().getProperty("mysqlpass", "");
         }
 
+        int statementCacheSize = CaselessProperties.instance().getPropertyAsInt("datastorestatementcachesize", 64);
+        if (statementCacheSize > 0 && CaselessProperties.instance().getPropertyAsBoolean("mysqlserverprepstmts", false)) {
+            //Use server-side prepared statements, cached by the driver for each connection
+            connectionString += "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=" + statementCacheSize;
+        }
+
         MariaDbDataSource dataSource = new MariaDbDataSource();
         try {
             dataSource.setUrl(connectionString);
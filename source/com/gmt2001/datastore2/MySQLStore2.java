@@ -112,6 +112,20 @@ public final class MySQLStore2 extends Datastore2 {
              * @botpropertyrestart mysqlallowpublickeyretrieval
              */
             dataSource.setAllowPublicKeyRetrieval(CaselessProperties.instance().getPropertyAsBoolean("mysqlallowpublickeyretrieval", false));
+            int statementCacheSize = CaselessProperties.instance().getPropertyAsInt("datastorestatementcachesize", 64);
+            if (statementCacheSize > 0) {
+                //Cache prepared statements in the driver
+                dataSource.setCachePrepStmts(true);
+                dataSource.setPrepStmtCacheSize(statementCacheSize);
+                dataSource.setPrepStmtCacheSqlLimit(2048);
+                /**
+                 * @botproperty mysqlserverprepstmts - If `true`, prepared statements are prepared on the MySQL or MariaDB server instead of in the driver. Ignored if `datastorestatementcachesize` is `0`. Default `false`
+                 * @botpropertytype mysqlserverprepstmts Boolean
+                 * @botpropertycatsort mysqlserverprepstmts 270 30 Datastore
+                 * @botpropertyrestart mysqlserverprepstmts
+                 */
+                dataSource.setUseServerPrepStmts(CaselessProperties.instance().getPropertyAsBoolean("mysqlserverprepstmts", false));
+            }
         } catch (SQLException ex) {
             ex.printStackTrace(System.err);
         }
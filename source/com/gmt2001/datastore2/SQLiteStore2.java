@@ -154,6 +154,11 @@ public final class SQLiteStore2 extends Datastore2 {
         return LONGTEXT;
     }
 
+    @Override
+    protected boolean supportsStatementCache() {
+        return true;
+    }
+
     @Override
     public boolean supportsBackup() {
         return true;
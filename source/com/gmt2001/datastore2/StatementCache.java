@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.datastore2;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.PooledConnection;
+
+import biz.source_code.miniConnectionPoolManager.MiniConnectionPoolManager;
+
+/**
+ * Caches {@link PreparedStatement} objects for each physical connection in the pool, so that repeated queries with the same SQL do not need to be
+ * parsed and planned again
+ * <p>
+ * Only DML and DQL statements are cached. Statements are keyed by their SQL, which already encodes the table and operation shape. When a cached
+ * statement is closed by the caller, its parameters are cleared and it is returned to the cache instead of being closed
+ */
+public final class StatementCache implements MiniConnectionPoolManager.ConnectionWrapper {
+    /**
+     * The maximum number of statements cached per connection
+     */
+    private final int maxStatements;
+    /**
+     * The statement caches for each physical connection
+     */
+    private final Map<PooledConnection, ConnectionCache> caches = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong(0L);
+    private final AtomicLong misses = new AtomicLong(0L);
+    private final AtomicLong evictions = new AtomicLong(0L);
+    private final AtomicLong invalidations = new AtomicLong(0L);
+
+    /**
+     * Constructor
+     *
+     * @param maxStatements the maximum number of statements to cache for each physical connection
+     */
+    public StatementCache(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    @Override
+    public Connection wrap(PooledConnection pconn, Connection conn) {
+        ConnectionCache cache = this.caches.computeIfAbsent(pconn, p -> new ConnectionCache());
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+            new ConnectionHandler(cache, conn));
+    }
+
+    @Override
+    public void disposed(PooledConnection pconn) {
+        ConnectionCache cache = this.caches.remove(pconn);
+
+        if (cache != null) {
+            cache.closeAll();
+        }
+    }
+
+    /**
+     * Returns the number of prepare requests which were served from the cache
+     *
+     * @return the number of hits
+     */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the number of prepare requests which required a new statement
+     *
+     * @return the number of misses
+     */
+    public long misses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns human-readable statistics for the cache
+     *
+     * @return the statistics
+     */
+    public String stats() {
+        long h = this.hits.get();
+        long m = this.misses.get();
+        return String.format("Statement cache: connections=%d statements=%d hits=%d misses=%d reuse=%.1f%% evictions=%d invalidations=%d",
+            this.caches.size(), this.caches.values().stream().mapToInt(ConnectionCache::size).sum(), h, m,
+            h + m == 0 ? 0.0 : (h * 100.0) / (h + m), this.evictions.get(), this.invalidations.get());
+    }
+
+    /**
+     * Indicates if the SQL is a statement which should be cached
+     *
+     * @param sql the SQL
+     * @return {@code true} if the statement is DML or DQL
+     */
+    private static boolean isCacheable(String sql) {
+        int i = 0;
+        while (i < sql.length() && (Character.isWhitespace(sql.charAt(i)) || sql.charAt(i) == '(')) {
+            i++;
+        }
+
+        String start = sql.substring(i, Math.min(sql.length(), i + 7)).toUpperCase();
+        return start.startsWith("SELECT") || start.startsWith("INSERT") || start.startsWith("UPDATE") || start.startsWith("DELETE")
+            || start.startsWith("MERGE") || start.startsWith("REPLACE") || start.startsWith("WITH");
+    }
+
+    /**
+     * Unwraps exceptions thrown by reflective invocation
+     *
+     * @param target the object to invoke the method on
+     * @param method the method
+     * @param args the arguments
+     * @return the return value of the method
+     * @throws Throwable the exception thrown by the method
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * A statement held in the cache
+     */
+    private static final class CachedStatement {
+        private final String sql;
+        private final PreparedStatement statement;
+        private boolean inUse = false;
+        private boolean evicted = false;
+
+        private CachedStatement(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+    }
+
+    /**
+     * The statement cache for a single physical connection
+     */
+    private final class ConnectionCache {
+        private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (this.size() > StatementCache.this.maxStatements) {
+                    StatementCache.this.evictions.incrementAndGet();
+                    if (eldest.getValue().inUse) {
+                        eldest.getValue().evicted = true;
+                    } else {
+                        close(eldest.getValue());
+                    }
+
+                    return true;
+                }
+
+                return false;
+            }
+        };
+
+        private synchronized int size() {
+            return this.statements.size();
+        }
+
+        /**
+         * Retrieves a cached statement, or prepares a new one
+         *
+         * @param sql the SQL
+         * @param conn the logical connection to prepare new statements on
+         * @param connProxy the connection proxy which was handed out by the pool
+         * @return the statement
+         * @throws SQLException if a database access error occurs
+         */
+        private PreparedStatement prepare(String sql, Connection conn, Connection connProxy) throws SQLException {
+            synchronized (this) {
+                CachedStatement cached = this.statements.get(sql);
+
+                if (cached != null && !cached.inUse) {
+                    if (cached.statement.isClosed()) {
+                        this.statements.remove(sql);
+                        StatementCache.this.invalidations.incrementAndGet();
+                    } else {
+                        cached.inUse = true;
+                        StatementCache.this.hits.incrementAndGet();
+                        return this.proxy(cached, connProxy);
+                    }
+                }
+            }
+
+            StatementCache.this.misses.incrementAndGet();
+            PreparedStatement statement = conn.prepareStatement(sql);
+
+            synchronized (this) {
+                if (!this.statements.containsKey(sql)) {
+                    CachedStatement cached = new CachedStatement(sql, statement);
+                    cached.inUse = true;
+                    this.statements.put(sql, cached);
+                    return this.proxy(cached, connProxy);
+                }
+            }
+
+            return statement;
+        }
+
+        /**
+         * Returns a statement to the cache
+         *
+         * @param cached the statement
+         */
+        private synchronized void release(CachedStatement cached) {
+            cached.inUse = false;
+
+            if (cached.evicted) {
+                close(cached);
+                return;
+            }
+
+            try {
+                cached.statement.clearParameters();
+                cached.statement.clearBatch();
+                cached.statement.clearWarnings();
+            } catch (SQLException ex) {
+                this.statements.remove(cached.sql, cached);
+                StatementCache.this.invalidations.incrementAndGet();
+                close(cached);
+            }
+        }
+
+        /**
+         * Closes all statements which are not in use
+         */
+        private synchronized void closeAll() {
+            List<CachedStatement> toClose = new ArrayList<>(this.statements.values());
+            this.statements.clear();
+            toClose.forEach(cached -> {
+                if (cached.inUse) {
+                    cached.evicted = true;
+                } else {
+                    close(cached);
+                }
+            });
+        }
+
+        private void close(CachedStatement cached) {
+            try {
+                cached.statement.close();
+            } catch (SQLException ex) {
+                com.gmt2001.Console.debug.printStackTrace(ex);
+            }
+        }
+
+        private PreparedStatement proxy(CachedStatement cached, Connection connProxy) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                new StatementHandler(this, cached, connProxy));
+        }
+    }
+
+    /**
+     * Intercepts {@link Connection#prepareStatement(String)} to serve statements from the cache
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final ConnectionCache cache;
+        private final Connection conn;
+
+        private ConnectionHandler(ConnectionCache cache, Connection conn) {
+            this.cache = cache;
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals") && args != null && args.length == 1) {
+                return proxy == args[0];
+            } else if (method.getName().equals("hashCode") && args == null) {
+                return System.identityHashCode(proxy);
+            } else if (method.getName().equals("prepareStatement") && args != null && args.length == 1 && isCacheable((String) args[0])) {
+                return this.cache.prepare((String) args[0], this.conn, (Connection) proxy);
+            } else if (method.getName().equals("unwrap") && args != null && args.length == 1 && ((Class<?>) args[0]).isInstance(proxy)) {
+                return proxy;
+            }
+
+            return StatementCache.invoke(this.conn, method, args);
+        }
+    }
+
+    /**
+     * Intercepts {@link PreparedStatement#close()} to return the statement to the cache
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final ConnectionCache cache;
+        private final CachedStatement cached;
+        private final Connection connProxy;
+        private boolean closed = false;
+
+        private StatementHandler(ConnectionCache cache, CachedStatement cached, Connection connProxy) {
+            this.cache = cache;
+            this.cached = cached;
+            this.connProxy = connProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return this.cached.statement.toString();
+                case "close":
+                    if (!this.closed) {
+                        this.closed = true;
+                        this.cache.release(this.cached);
+                    }
+                    return null;
+                case "isClosed":
+                    return this.closed || this.cached.statement.isClosed();
+                case "getConnection":
+                    return this.connProxy;
+                default:
+                    if (this.closed) {
+                        throw new SQLException("Statement is closed");
+                    }
+
+                    return StatementCache.invoke(this.cached.statement, method, args);
+            }
+        }
+    }
+}
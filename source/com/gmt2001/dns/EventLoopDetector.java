@@ -16,6 +16,8 @@
  */
 package com.gmt2001.dns;
 
+import java.util.concurrent.ThreadFactory;
+
 import io.netty.channel.Channel;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
@@ -96,6 +98,25 @@ public final class EventLoopDetector {
         return new NioEventLoopGroup();
     }
 
+    /**
+     * If an operating system specific {@link EventLoopGroup} is available, returns a new instance of it
+     * <p>
+     * Otherwise, returns an instance of {@link NioEventLoopGroup}
+     *
+     * @param threads the number of threads
+     * @param threadFactory the factory which creates the threads
+     * @return the {@link EventLoopGroup}
+     */
+    public static EventLoopGroup createEventLoopGroup(int threads, ThreadFactory threadFactory) {
+        if (ISEPOLLAVAILABLE) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        } else if (ISKQUEUEAVAILABLE) {
+            return new KQueueEventLoopGroup(threads, threadFactory);
+        }
+
+        return new NioEventLoopGroup(threads, threadFactory);
+    }
+
     /**
      * Returns the class which should be used for {@link ServerChannel}, associated with the {@link EventLoopGroup}
      *
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.dns;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gmt2001.util.concurrent.ExecutorService;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import tv.phantombot.CaselessProperties;
+
+/**
+ * Provides the process-wide {@link EventLoopGroup} which is shared by all Netty server and client bootstraps
+ * <p>
+ * The outbound HTTP client runs on its own loops, since handlers running on this group block on its responses
+ * <p>
+ * Each event loop is probed periodically with an empty task, to measure the time tasks wait before they are run
+ */
+public final class EventLoopRegistry {
+
+    /**
+     * The interval between latency probes
+     */
+    private static final long PROBE_INTERVAL_MS = 10000L;
+    private static EventLoopGroup group = null;
+    private static Probe[] probes = new Probe[0];
+    private static ScheduledFuture<?> prober = null;
+
+    private EventLoopRegistry() {
+    }
+
+    /**
+     * Returns the shared {@link EventLoopGroup}, creating it on first use
+     * <p>
+     * The group must not be shut down by callers
+     *
+     * @return the event loop group
+     */
+    public static synchronized EventLoopGroup group() {
+        if (group == null || group.isShuttingDown()) {
+            /**
+             * @botproperty eventloopthreads - The number of threads shared by all network connections, including the web server and chat. `0` for the number of processors, with a minimum of 2. Default `0`
+             * @botpropertycatsort eventloopthreads 140 700 HTTP/WS
+             * @botpropertyrestart eventloopthreads
+             */
+            int threads = CaselessProperties.instance().getPropertyAsInt("eventloopthreads", 0);
+
+            if (threads <= 0) {
+                threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            }
+
+            if (prober != null) {
+                prober.cancel(false);
+            }
+
+            group = EventLoopDetector.createEventLoopGroup(threads, new DefaultThreadFactory("phantombot-eventloop", true));
+            List<Probe> newProbes = new ArrayList<>();
+            group.forEach(executor -> newProbes.add(new Probe(executor)));
+            probes = newProbes.toArray(Probe[]::new);
+            prober = ExecutorService.scheduleAtFixedRate(EventLoopRegistry::probe, PROBE_INTERVAL_MS, PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            com.gmt2001.Console.debug.println("Created shared event loop group with " + threads + " threads");
+        }
+
+        return group;
+    }
+
+    /**
+     * Returns the class which should be used for {@link ServerChannel}, associated with the shared {@link EventLoopGroup}
+     *
+     * @return the server channel class
+     */
+    public static Class<? extends ServerChannel> serverChannelClass() {
+        return EventLoopDetector.getServerChannelClass();
+    }
+
+    /**
+     * Returns the class which should be used for {@link Channel}, associated with the shared {@link EventLoopGroup}
+     *
+     * @return the channel class
+     */
+    public static Class<? extends Channel> channelClass() {
+        return EventLoopDetector.getChannelClass();
+    }
+
+    /**
+     * Submits a latency probe to each event loop
+     */
+    private static void probe() {
+        for (Probe probe : probes) {
+            probe.submit();
+        }
+    }
+
+    /**
+     * Returns human-readable statistics for each event loop
+     *
+     * @return the statistics
+     */
+    public static synchronized List<String> stats() {
+        List<String> lines = new ArrayList<>();
+
+        if (group == null) {
+            lines.add("The shared event loop group has not been created");
+            return lines;
+        }
+
+        lines.add(String.format("Event loop group: %s threads=%d", group.getClass().getSimpleName(), probes.length));
+
+        for (int i = 0; i < probes.length; i++) {
+            lines.add(String.format("loop %d: pending=%d latency last=%.3fms max=%.3fms", i, probes[i].pendingTasks(),
+                    probes[i].last.get() / 1_000_000.0, probes[i].max.get() / 1_000_000.0));
+        }
+
+        return lines;
+    }
+
+    /**
+     * Shuts down the shared {@link EventLoopGroup}, with a grace period for ongoing tasks to finish
+     */
+    public static synchronized void shutdown() {
+        if (prober != null) {
+            prober.cancel(false);
+            prober = null;
+        }
+
+        if (group != null) {
+            group.shutdownGracefully(3, 5, TimeUnit.SECONDS).awaitUninterruptibly(6, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Measures the time tasks wait before they are run on an event loop
+     */
+    private static final class Probe {
+        private final EventExecutor executor;
+        private final AtomicLong last = new AtomicLong(0L);
+        private final AtomicLong max = new AtomicLong(0L);
+
+        private Probe(EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        private void submit() {
+            if (this.executor.isShuttingDown()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            this.executor.execute(() -> {
+                long latency = System.nanoTime() - start;
+                this.last.set(latency);
+                this.max.accumulateAndGet(latency, Math::max);
+            });
+        }
+
+        private int pendingTasks() {
+            return this.executor instanceof SingleThreadEventExecutor s ? s.pendingTasks() : -1;
+        }
+    }
+}
@@ -16,10 +16,16 @@
  */
 package com.gmt2001.httpclient;
 
+import java.net.SocketAddress;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -36,11 +42,18 @@ import io.netty.handler.codec.http.HttpMethod;
 import io.netty.resolver.DefaultAddressResolverGroup;
 import reactor.core.publisher.Mono;
 import reactor.netty.ByteBufFlux;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient.RequestSender;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
 import tv.phantombot.CaselessProperties;
 
 /**
  * Performs HTTP requests
+ * <p>
+ * All requests share a pooled client, so that connections, and their TLS sessions, are kept alive and reused across requests to the same
+ * host. HTTPS requests use HTTP/2 when the server supports it
  *
  * @author gmt2001
  */
@@ -48,6 +61,20 @@ public final class HttpClient {
 
     private static final String DEFAULT_USER_AGENT = "PhantomBot/2022";
     private static final int TIMEOUT_TIME = 10;
+    private static final int MAX_CONNECTIONS = 50;
+    private static final int IDLE_TIME = 30;
+    /**
+     * The maximum lifetime, in seconds, of a pooled connection, so that DNS changes are eventually picked up
+     */
+    private static final int MAX_LIFE_TIME = 300;
+    private static final Map<String, ConnectionPoolMetrics> POOL_METRICS = new ConcurrentHashMap<>();
+    private static final PoolRegistrar POOL_REGISTRAR = new PoolRegistrar();
+    /**
+     * The event loops of the outbound requests, which are kept apart from the shared server loops since handlers on those loops block on
+     * outbound requests
+     */
+    private static final LoopResources LOOPS = LoopResources.create("phantombot-httpclient", LoopResources.DEFAULT_IO_WORKER_COUNT, true);
+    private static volatile Clients clients = null;
 
     private HttpClient() {
     }
@@ -63,20 +90,63 @@ public final class HttpClient {
      * @return a {@link HttpClientResponse} with the results
      */
     public static HttpClientResponse request(HttpMethod method, URI url, HttpHeaders requestHeaders, String requestBody) {
-        reactor.netty.http.client.HttpClient client = reactor.netty.http.client.HttpClient.create();
-        if (url.getScheme().equals("https")) {
-            client = client.secure();
+        try {
+            return send(method, url, requestHeaders, requestBody).toFuture().get(timeout(), TimeUnit.SECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
+            return errorResponse(ex, method, url, requestHeaders, requestBody);
         }
+    }
 
-        /**
-         * @botproperty usedefaultdnsresolver - If `true`, only the default Java/System DNS resolver is used. Default `false`
-         * @botpropertycatsort usedefaultdnsresolver 10 700 HTTP/WS
-         */
-        if (CaselessProperties.instance().getPropertyAsBoolean("usedefaultdnsresolver", false)) {
-            client = client.resolver(DefaultAddressResolverGroup.INSTANCE);
-        } else {
-            client = client.resolver(CompositeAddressResolverGroup.INSTANCE);
-        }
+    /**
+     * Performs an HTTP request without blocking
+     * <p>
+     * The returned {@link Mono} does not emit an error; failures, including timeouts, are emitted as a {@link HttpClientResponse} with the
+     * exception set, the same as {@link #request(HttpMethod, URI, HttpHeaders, String)}
+     *
+     * @param method the HTTP method
+     * @param url the URL to request
+     * @param requestHeaders the request headers to send
+     * @param requestBody the request body to send if method is {@link HttpMethod#POST}, {@link HttpMethod#PUT},
+     * or {@link HttpMethod#PATCH}; {@code null} for other methods
+     * @return a {@link Mono} which emits a {@link HttpClientResponse} with the results
+     */
+    public static Mono<HttpClientResponse> requestAsync(HttpMethod method, URI url, HttpHeaders requestHeaders, String requestBody) {
+        return Mono.defer(() -> send(method, url, requestHeaders, requestBody)).timeout(Duration.ofSeconds(timeout()))
+                .onErrorResume(ex -> Mono.just(errorResponse(ex, method, url, requestHeaders, requestBody)));
+    }
+
+    /**
+     * Shortcut to perform a {@link HttpMethod#GET} request with the specified headers without blocking
+     *
+     * @param url the URL to request
+     * @param requestHeaders the headers to send
+     * @return a {@link Mono} which emits a {@link HttpClientResponse} with the results
+     */
+    public static Mono<HttpClientResponse> getAsync(URI url, HttpHeaders requestHeaders) {
+        return requestAsync(HttpMethod.GET, url, requestHeaders, null);
+    }
+
+    /**
+     * Returns human-readable statistics for each host in the connection pool
+     *
+     * @return the statistics
+     */
+    public static List<String> poolStats() {
+        List<String> lines = new ArrayList<>();
+        Clients c = clients;
+        lines.add(String.format("HTTP client pool: maxConnections=%d http2=%s hosts=%d", c == null ? 0 : c.maxConnections,
+                c == null ? "n/a" : Boolean.toString(c.http2), POOL_METRICS.size()));
+        new TreeMap<>(POOL_METRICS).forEach((host, metrics) -> lines.add(String.format("%s: acquired=%d allocated=%d idle=%d pending=%d",
+                host, metrics.acquiredSize(), metrics.allocatedSize(), metrics.idleSize(), metrics.pendingAcquireSize())));
+        return lines;
+    }
+
+    /**
+     * Builds the request and sends it on the shared client
+     */
+    private static Mono<HttpClientResponse> send(HttpMethod method, URI url, HttpHeaders requestHeaders, String requestBody) {
+        Clients c = clients();
+        reactor.netty.http.client.HttpClient client = url.getScheme().equals("https") ? c.secure : c.plain;
 
         client = client.headers(h -> {
             h.add(requestHeaders);
@@ -100,19 +170,106 @@ public final class HttpClient {
             _requestBody = "";
         }
 
-        RequestSender sender = client.followRedirect(true).request(method).uri(url);
+        RequestSender sender = client.request(method).uri(url);
 
-        try {
-            /**
-             * @botproperty httpclienttimeout - The timeout, in seconds, for an HTTP request to complete. Default `10`
-             * @botpropertycatsort httpclienttimeout 100 700 HTTP/WS
-             */
-            return sender.send(ByteBufFlux.fromString(Mono.just(_requestBody)))
-                    .responseSingle((res, buf) -> buf.asByteArray().map(content -> new HttpClientResponse(null, requestBody, content, url, res))
-                    .defaultIfEmpty(new HttpClientResponse(null, requestBody, new byte[0], url, res)))
-                    .toFuture().get(CaselessProperties.instance().getPropertyAsInt("httpclienttimeout", TIMEOUT_TIME), TimeUnit.SECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            return new HttpClientResponse(ex, false, method, requestBody, ex.getClass().getName().getBytes(StandardCharsets.UTF_8), requestHeaders, null, null, url);
+        return sender.send(ByteBufFlux.fromString(Mono.just(_requestBody)))
+                .responseSingle((res, buf) -> buf.asByteArray().map(content -> new HttpClientResponse(null, requestBody, content, url, res))
+                .defaultIfEmpty(new HttpClientResponse(null, requestBody, new byte[0], url, res)));
+    }
+
+    private static HttpClientResponse errorResponse(Throwable ex, HttpMethod method, URI url, HttpHeaders requestHeaders, String requestBody) {
+        return new HttpClientResponse(ex instanceof Exception exception ? exception : new Exception(ex), false, method, requestBody,
+                ex.getClass().getName().getBytes(StandardCharsets.UTF_8), requestHeaders, null, null, url);
+    }
+
+    private static int timeout() {
+        /**
+         * @botproperty httpclienttimeout - The timeout, in seconds, for an HTTP request to complete. Default `10`
+         * @botpropertycatsort httpclienttimeout 100 700 HTTP/WS
+         */
+        return CaselessProperties.instance().getPropertyAsInt("httpclienttimeout", TIMEOUT_TIME);
+    }
+
+    /**
+     * Returns the shared clients, creating them if they do not exist or if the properties which configure them have changed
+     *
+     * @return the shared clients
+     */
+    private static Clients clients() {
+        /**
+         * @botproperty usedefaultdnsresolver - If `true`, only the default Java/System DNS resolver is used. Default `false`
+         * @botpropertycatsort usedefaultdnsresolver 10 700 HTTP/WS
+         */
+        boolean defaultResolver = CaselessProperties.instance().getPropertyAsBoolean("usedefaultdnsresolver", false);
+        /**
+         * @botproperty httpclientmaxconnections - The maximum number of pooled connections to each host for outbound HTTP requests. Default `50`
+         * @botpropertycatsort httpclientmaxconnections 110 700 HTTP/WS
+         */
+        int maxConnections = Math.max(1, CaselessProperties.instance().getPropertyAsInt("httpclientmaxconnections", MAX_CONNECTIONS));
+        /**
+         * @botproperty httpclientidletime - The time, in seconds, after which an idle pooled connection for outbound HTTP requests is closed. Default `30`
+         * @botpropertycatsort httpclientidletime 120 700 HTTP/WS
+         */
+        int idleTime = Math.max(1, CaselessProperties.instance().getPropertyAsInt("httpclientidletime", IDLE_TIME));
+        /**
+         * @botproperty httpclienthttp2 - If `true`, outbound HTTPS requests use HTTP/2 when the server supports it. Default `true`
+         * @botpropertycatsort httpclienthttp2 130 700 HTTP/WS
+         */
+        boolean http2 = CaselessProperties.instance().getPropertyAsBoolean("httpclienthttp2", true);
+
+        Clients c = clients;
+        if (c != null && c.defaultResolver == defaultResolver && c.maxConnections == maxConnections && c.idleTime == idleTime && c.http2 == http2) {
+            return c;
+        }
+
+        synchronized (HttpClient.class) {
+            c = clients;
+            if (c != null && c.defaultResolver == defaultResolver && c.maxConnections == maxConnections && c.idleTime == idleTime
+                    && c.http2 == http2) {
+                return c;
+            }
+
+            ConnectionProvider provider = ConnectionProvider.builder("phantombot-httpclient").maxConnections(maxConnections)
+                    .maxIdleTime(Duration.ofSeconds(idleTime)).maxLifeTime(Duration.ofSeconds(MAX_LIFE_TIME))
+                    .evictInBackground(Duration.ofSeconds(idleTime)).metrics(true, () -> POOL_REGISTRAR).build();
+
+            reactor.netty.http.client.HttpClient base = reactor.netty.http.client.HttpClient.create(provider).runOn(LOOPS).keepAlive(true)
+                    .followRedirect(true).resolver(defaultResolver ? DefaultAddressResolverGroup.INSTANCE : CompositeAddressResolverGroup.INSTANCE);
+            reactor.netty.http.client.HttpClient secure = base.secure();
+            if (http2) {
+                secure = secure.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+            }
+
+            Clients old = clients;
+            clients = new Clients(base, secure, provider, defaultResolver, maxConnections, idleTime, http2);
+
+            if (old != null) {
+                old.provider.disposeLater().subscribe();
+            }
+
+            return clients;
+        }
+    }
+
+    /**
+     * The shared clients and the configuration they were created with
+     */
+    private record Clients(reactor.netty.http.client.HttpClient plain, reactor.netty.http.client.HttpClient secure, ConnectionProvider provider,
+            boolean defaultResolver, int maxConnections, int idleTime, boolean http2) {
+    }
+
+    /**
+     * Receives the pool metrics for each remote host
+     */
+    private static final class PoolRegistrar implements ConnectionProvider.MeterRegistrar {
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+            POOL_METRICS.put(remoteAddress.toString() + " [" + id + "]", metrics);
+        }
+
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+            POOL_METRICS.remove(remoteAddress.toString() + " [" + id + "]");
         }
     }
 
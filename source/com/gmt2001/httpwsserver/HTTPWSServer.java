@@ -45,7 +45,7 @@ import javax.net.ssl.TrustManagerFactory;
 
 import com.gmt2001.PathValidator;
 import com.gmt2001.Console.err;
-import com.gmt2001.dns.EventLoopDetector;
+import com.gmt2001.dns.EventLoopRegistry;
 import com.gmt2001.httpwsserver.x509.SelfSignedX509CertificateGenerator;
 import com.gmt2001.util.concurrent.ExecutorService;
 
@@ -89,9 +89,9 @@ public final class HTTPWSServer {
         }
     }
     /**
-     * The server's {@link EventLoopGroup}
+     * The shared {@link EventLoopGroup}
      */
-    private final EventLoopGroup group = EventLoopDetector.createEventLoopGroup();
+    private final EventLoopGroup group = EventLoopRegistry.group();
     /**
      * The server's listen {@link Channel}
      */
@@ -196,7 +196,7 @@ public final class HTTPWSServer {
 
             ServerBootstrap b = new ServerBootstrap();
             b.group(this.group)
-                    .channel(EventLoopDetector.getServerChannelClass())
+                    .channel(EventLoopRegistry.serverChannelClass())
                     .childHandler(new HTTPWSServerInitializer());
 
             if (ipOrHostname.isBlank()) {
@@ -220,7 +220,6 @@ public final class HTTPWSServer {
             }
         } catch (IOException | NoSuchAlgorithmException | CertificateException | KeyStoreException | UnrecoverableKeyException | InterruptedException ex) {
             com.gmt2001.Console.err.printStackTrace(ex);
-            this.group.shutdownGracefully();
         }
     }
 
@@ -555,9 +554,5 @@ public final class HTTPWSServer {
         if (this.ch2 != null) {
             this.ch2.close().awaitUninterruptibly(5, TimeUnit.SECONDS);
         }
-
-        if (this.group != null) {
-            this.group.shutdownGracefully(3, 5, TimeUnit.SECONDS);
-        }
     }
 }
@@ -0,0 +1,505 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.httpwsserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedFile;
+import tv.phantombot.CaselessProperties;
+
+/**
+ * Serves static files from disk, keeping the contents of small files in memory
+ * <p>
+ * Entries are keyed by absolute path and are revalidated against the last modified time and size of the file on every request, so edits on
+ * disk are picked up immediately. Compressible files also keep a gzip variant, which is sent to clients that accept it. Each response carries
+ * a strong {@code ETag} and a {@code Last-Modified} header, and conditional requests which match are answered with {@code 304 Not Modified}
+ * <p>
+ * Files which are larger than the entry limit are not cached, and are sent with a zero-copy {@link DefaultFileRegion}, or a
+ * {@link ChunkedFile} when the connection is encrypted
+ */
+public final class StaticFileCache {
+
+    private static final StaticFileCache INSTANCE = new StaticFileCache();
+    /**
+     * The size of each chunk when a file is streamed over an encrypted connection
+     */
+    private static final int CHUNK_SIZE = 8192;
+    /**
+     * The gzip variant is only kept if it is at most this fraction of the size of the file
+     */
+    private static final double MIN_GZIP_RATIO = 0.9;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private long bytes = 0L;
+
+    /**
+     * Provides an instance of {@link StaticFileCache}
+     *
+     * @return an instance of {@link StaticFileCache}
+     */
+    public static StaticFileCache instance() {
+        return INSTANCE;
+    }
+
+    private StaticFileCache() {
+        /**
+         * @botproperty httpfilecachesize - The maximum memory, in KB, used to cache static files served by the bots webserver. `0` to disable. Default `32768`
+         * @botpropertycatsort httpfilecachesize 210 700 HTTP/WS
+         * @botpropertyrestart httpfilecachesize
+         */
+        /**
+         * @botproperty httpfilecachemaxfile - The size, in KB, above which static files are streamed from disk instead of cached. Default `1024`
+         * @botpropertycatsort httpfilecachemaxfile 220 700 HTTP/WS
+         * @botpropertyrestart httpfilecachemaxfile
+         */
+        this.maxBytes = Math.max(0L, CaselessProperties.instance().getPropertyAsLong("httpfilecachesize", 32768L)) * 1024L;
+        this.maxEntryBytes = Math.min(this.maxBytes, Math.max(0L, CaselessProperties.instance().getPropertyAsLong("httpfilecachemaxfile", 1024L)) * 1024L);
+    }
+
+    /**
+     * Sends a file to the client, answering conditional requests and {@code HEAD} requests
+     * <p>
+     * The permissions of the file must already have been checked by the caller
+     *
+     * @param ctx The {@link ChannelHandlerContext} of the session
+     * @param req The {@link FullHttpRequest} containing the request
+     * @param p The {@link Path} to the file to send
+     * @throws IOException if the file can not be read
+     */
+    public void sendFile(ChannelHandlerContext ctx, FullHttpRequest req, Path p) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        String contentType = HttpServerPageHandler.detectContentType(p.getFileName().toString());
+
+        if (attrs.size() > this.maxEntryBytes) {
+            this.streamFile(ctx, req, p, attrs.size(), lastModified, contentType);
+            return;
+        }
+
+        Entry entry = this.get(p, attrs.size(), lastModified);
+        boolean useGzip = entry.gzip() != null && acceptsGzip(req);
+        String etag = useGzip ? entry.gzipEtag() : entry.etag();
+
+        if (isNotModified(req, etag, lastModified)) {
+            this.sendNotModified(ctx, req, etag, lastModified, true);
+            return;
+        }
+
+        byte[] content = useGzip ? entry.gzip() : entry.content();
+        FullHttpResponse res = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                req.method().equals(HttpMethod.HEAD) ? Unpooled.EMPTY_BUFFER : Unpooled.wrappedBuffer(content));
+        setHeaders(res.headers(), contentType, etag, lastModified, true);
+
+        /*
+         * Uncompressed content is left to HttpContentCompressor, which may still encode it with another algorithm the client accepts
+         */
+        if (useGzip) {
+            res.headers().set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+        }
+
+        HttpUtil.setContentLength(res, content.length);
+        HttpServerPageHandler.sendHttpResponse(ctx, req, res);
+    }
+
+    /**
+     * Reads the contents of a file, using the cache if the file is small enough
+     * <p>
+     * The returned array may be shared, and must not be modified
+     *
+     * @param p The {@link Path} to the file to read
+     * @return the contents of the file
+     * @throws IOException if the file can not be read
+     */
+    public byte[] read(Path p) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+
+        if (attrs.size() > this.maxEntryBytes) {
+            return Files.readAllBytes(p);
+        }
+
+        return this.get(p, attrs.size(), attrs.lastModifiedTime().toMillis()).content();
+    }
+
+    /**
+     * Removes all entries from the cache
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.bytes = 0L;
+    }
+
+    /**
+     * Returns the cached entry of a file, loading it if it is missing or stale
+     *
+     * @param p The {@link Path} to the file
+     * @param size the current size of the file
+     * @param lastModified the current last modified time of the file
+     * @return the entry
+     * @throws IOException if the file can not be read
+     */
+    private Entry get(Path p, long size, long lastModified) throws IOException {
+        Path key = p.toAbsolutePath().normalize();
+        Entry entry;
+
+        synchronized (this) {
+            entry = this.entries.get(key);
+        }
+
+        if (entry != null && entry.size() == size && entry.lastModified() == lastModified) {
+            return entry;
+        }
+
+        entry = load(p, lastModified);
+
+        /*
+         * The file changed while it was being read, serve it without caching so the next request reads it again
+         */
+        if (entry.size() != size) {
+            return entry;
+        }
+
+        synchronized (this) {
+            Entry old = this.entries.put(key, entry);
+
+            if (old != null) {
+                this.bytes -= old.footprint();
+            }
+
+            this.bytes += entry.footprint();
+
+            Iterator<Map.Entry<Path, Entry>> it = this.entries.entrySet().iterator();
+            while (this.bytes > this.maxBytes && it.hasNext()) {
+                this.bytes -= it.next().getValue().footprint();
+                it.remove();
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Reads a file and prepares its cache entry
+     *
+     * @param p The {@link Path} to the file
+     * @param lastModified the last modified time of the file
+     * @return the entry
+     * @throws IOException if the file can not be read
+     */
+    private static Entry load(Path p, long lastModified) throws IOException {
+        byte[] content = Files.readAllBytes(p);
+        byte[] gzip = null;
+
+        if (isCompressible(HttpServerPageHandler.detectContentType(p.getFileName().toString()))) {
+            gzip = gzip(content);
+
+            if (gzip.length > content.length * MIN_GZIP_RATIO) {
+                gzip = null;
+            }
+        }
+
+        String hash = hash(content);
+
+        return new Entry(content, gzip, content.length, lastModified, "\"" + hash + "\"", "\"" + hash + "-gz\"");
+    }
+
+    /**
+     * Sends a file which is too large to cache, directly from disk
+     *
+     * @param ctx The {@link ChannelHandlerContext} of the session
+     * @param req The {@link FullHttpRequest} containing the request
+     * @param p The {@link Path} to the file
+     * @param size the size of the file
+     * @param lastModified the last modified time of the file
+     * @param contentType the MIME type of the file
+     * @throws IOException if the file can not be opened
+     */
+    private void streamFile(ChannelHandlerContext ctx, FullHttpRequest req, Path p, long size, long lastModified, String contentType)
+            throws IOException {
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+
+        if (isNotModified(req, etag, lastModified)) {
+            this.sendNotModified(ctx, req, etag, lastModified, false);
+            return;
+        }
+
+        if (req.method().equals(HttpMethod.HEAD)) {
+            FullHttpResponse res = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.EMPTY_BUFFER);
+            setHeaders(res.headers(), contentType, etag, lastModified, false);
+            res.headers().set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.IDENTITY);
+            HttpUtil.setContentLength(res, size);
+            HttpServerPageHandler.sendHttpResponse(ctx, req, res);
+            return;
+        }
+
+        HttpResponse res = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        setHeaders(res.headers(), contentType, etag, lastModified, false);
+        /*
+         * The body is written as raw bytes, which must not pass through HttpContentCompressor
+         */
+        res.headers().set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.IDENTITY);
+        HttpUtil.setContentLength(res, size);
+
+        boolean keepAlive = HttpUtil.isKeepAlive(req);
+        if (!keepAlive) {
+            res.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        } else if (req.protocolVersion().equals(HttpVersion.HTTP_1_0)) {
+            res.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        }
+
+        ctx.write(res);
+
+        ChannelFuture last;
+        if (ctx.pipeline().get(SslHandler.class) == null) {
+            ctx.write(new DefaultFileRegion(p.toFile(), 0, size));
+            last = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        } else {
+            last = ctx.writeAndFlush(new HttpChunkedInput(new ChunkedFile(new RandomAccessFile(p.toFile(), "r"), 0, size, CHUNK_SIZE)));
+        }
+
+        if (!keepAlive) {
+            last.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    /**
+     * Sends a {@code 304 Not Modified} response
+     *
+     * @param ctx The {@link ChannelHandlerContext} of the session
+     * @param req The {@link FullHttpRequest} containing the request
+     * @param etag the {@code ETag} of the representation
+     * @param lastModified the last modified time of the file
+     * @param varies if the representation depends on the {@code Accept-Encoding} header
+     */
+    private void sendNotModified(ChannelHandlerContext ctx, FullHttpRequest req, String etag, long lastModified, boolean varies) {
+        FullHttpResponse res = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_MODIFIED, Unpooled.EMPTY_BUFFER);
+        res.headers().set(HttpHeaderNames.ETAG, etag);
+        res.headers().set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(lastModified)));
+        res.headers().set(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE);
+
+        if (varies) {
+            res.headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        }
+
+        HttpServerPageHandler.sendHttpResponse(ctx, req, res);
+    }
+
+    /**
+     * Sets the headers which are common to all {@code 200 OK} responses
+     * <p>
+     * Browsers may store the file, but must revalidate it before each use
+     *
+     * @param headers the headers to modify
+     * @param contentType the MIME type of the file
+     * @param etag the {@code ETag} of the representation
+     * @param lastModified the last modified time of the file
+     * @param varies if the representation depends on the {@code Accept-Encoding} header
+     */
+    private static void setHeaders(HttpHeaders headers, String contentType, String etag, long lastModified, boolean varies) {
+        headers.set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        headers.set(HttpHeaderNames.ETAG, etag);
+        headers.set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(lastModified)));
+        headers.set(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE);
+
+        if (varies) {
+            headers.set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        }
+    }
+
+    /**
+     * Indicates if the client already has the current representation, based on {@code If-None-Match}, or on {@code If-Modified-Since} if
+     * there is no {@code If-None-Match}
+     *
+     * @param req The {@link FullHttpRequest} containing the request
+     * @param etag the {@code ETag} of the representation
+     * @param lastModified the last modified time of the file
+     * @return {@code true} if a {@code 304 Not Modified} should be sent
+     */
+    private static boolean isNotModified(FullHttpRequest req, String etag, long lastModified) {
+        if (!req.method().equals(HttpMethod.GET) && !req.method().equals(HttpMethod.HEAD)) {
+            return false;
+        }
+
+        String ifNoneMatch = req.headers().get(HttpHeaderNames.IF_NONE_MATCH);
+
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        String ifModifiedSince = req.headers().get(HttpHeaderNames.IF_MODIFIED_SINCE);
+
+        if (ifModifiedSince != null) {
+            Date since = DateFormatter.parseHttpDate(ifModifiedSince);
+            return since != null && lastModified / 1000L <= since.getTime() / 1000L;
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates if the client accepts gzip content encoding
+     *
+     * @param req The {@link FullHttpRequest} containing the request
+     * @return {@code true} if {@code gzip} is listed in {@code Accept-Encoding} without {@code q=0}
+     */
+    private static boolean acceptsGzip(FullHttpRequest req) {
+        String acceptEncoding = req.headers().get(HttpHeaderNames.ACCEPT_ENCODING);
+
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String[] param = parts[i].split("=", 2);
+
+                    if (param.length == 2 && param[0].trim().equalsIgnoreCase("q")) {
+                        try {
+                            return Double.parseDouble(param[1].trim()) > 0.0;
+                        } catch (NumberFormatException ex) {
+                            return false;
+                        }
+                    }
+                }
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates if content of the given MIME type benefits from compression
+     *
+     * @param contentType the MIME type
+     * @return {@code true} if the content is text
+     */
+    private static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.contains("javascript") || contentType.contains("json")
+                || contentType.contains("xml") || contentType.startsWith("application/vnd.ms-fontobject") || contentType.startsWith("font/ttf")
+                || contentType.startsWith("font/otf");
+    }
+
+    /**
+     * Compresses content with gzip
+     *
+     * @param content the content
+     * @return the compressed content
+     * @throws IOException if compression fails
+     */
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 64);
+
+        try (GZIPOutputStream gz = new GZIPOutputStream(out) {
+            {
+                this.def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gz.write(content);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Computes the hash of the content which is used in the {@code ETag}
+     *
+     * @param content the content
+     * @return the URL-safe base64 encoding of the first 128 bits of the SHA-256 of the content
+     */
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * A cached file
+     *
+     * @param content the contents of the file
+     * @param gzip the gzip variant of the contents; {@code null} if the file is not compressible
+     * @param size the size of the file
+     * @param lastModified the last modified time of the file
+     * @param etag the {@code ETag} of the contents
+     * @param gzipEtag the {@code ETag} of the gzip variant
+     */
+    private record Entry(byte[] content, byte[] gzip, long size, long lastModified, String etag, String gzipEtag) {
+        /**
+         * Returns the memory used by the contents of the entry
+         *
+         * @return the size, in bytes
+         */
+        long footprint() {
+            return this.content.length + (this.gzip == null ? 0L : this.gzip.length);
+        }
+    }
+}
@@ -40,6 +40,10 @@ public final class Viewer {
     private boolean turbo = false;
     private boolean vip = false;
     private boolean hasAttributes = false;
+    /**
+     * The cache which holds this viewer, to be notified of login changes
+     */
+    private ViewerCache cache = null;
 
     /**
      * Constructor
@@ -65,14 +69,35 @@ public final class Viewer {
      * @param login The Twitch user login name
      * @return {@code this}
      */
-    public synchronized Viewer login(String login) {
-        if (login != null && !login.isBlank()) {
+    public Viewer login(String login) {
+        String oldLogin;
+        ViewerCache notify;
+        synchronized (this) {
+            if (login == null || login.isBlank() || login.equals(this.login)) {
+                return this;
+            }
+
+            oldLogin = this.login;
             this.login = login;
+            notify = this.cache;
+        }
+
+        if (notify != null) {
+            notify.loginChanged(this, oldLogin);
         }
 
         return this;
     }
 
+    /**
+     * Sets the cache which holds this viewer
+     *
+     * @param cache The cache; {@code null} if removed from the cache
+     */
+    synchronized void cache(ViewerCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * The Twitch user login name
      *
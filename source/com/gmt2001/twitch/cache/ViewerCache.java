@@ -20,8 +20,12 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
@@ -57,6 +61,15 @@ public final class ViewerCache implements Listener {
     private boolean registered = false;
     private boolean chattersUpdated = false;
     private final ConcurrentMap<String, Viewer> viewers = new ConcurrentHashMap<>();
+    /**
+     * Secondary index of user login to user id
+     */
+    private final ConcurrentMap<String, String> loginIndex = new ConcurrentHashMap<>();
+    /**
+     * The chatters sent in the last {@link IrcChannelUsersUpdateEvent}, keyed by user id
+     */
+    private Map<String, Viewer> lastSentChatters = new HashMap<>();
+    private long updateSequence = 0L;
     private Viewer bot;
     private Viewer broadcaster;
 
@@ -161,18 +174,77 @@ public final class ViewerCache implements Listener {
         Thread.currentThread().setName("ViewerCache::GC");
         final Instant expiresBefore = Instant.now().minus(15, ChronoUnit.MINUTES);
         this.viewers.forEach((k, v) -> {
-            if (v.lastSeen().isBefore(expiresBefore) && !v.bot() && !v.broadcaster()) {
-                this.viewers.remove(k);
+            if (v.lastSeen().isBefore(expiresBefore) && !v.bot() && !v.broadcaster() && this.viewers.remove(k, v)) {
+                this.unindex(v);
             }
         });
     }
 
+    /**
+     * Adds a viewer which was just placed into {@link #viewers} to the login index
+     *
+     * @param viewer The viewer
+     */
+    private void index(Viewer viewer) {
+        viewer.cache(this);
+
+        if (!viewer.login().isEmpty()) {
+            this.loginIndex.put(viewer.login(), viewer.id());
+        }
+    }
+
+    /**
+     * Removes a viewer which was just removed from {@link #viewers} from the login index
+     *
+     * @param viewer The viewer
+     */
+    private void unindex(Viewer viewer) {
+        viewer.cache(null);
+        this.loginIndex.remove(viewer.login(), viewer.id());
+    }
+
+    /**
+     * Updates the login index when the login of a cached viewer changes
+     *
+     * @param viewer The viewer
+     * @param oldLogin The previous login
+     */
+    void loginChanged(Viewer viewer, String oldLogin) {
+        if (this.viewers.get(viewer.id()) == viewer) {
+            this.loginIndex.remove(oldLogin, viewer.id());
+            this.loginIndex.put(viewer.login(), viewer.id());
+        }
+    }
+
     /**
      * Sends IrcChannelUsersUpdateEvent if a change has occurred
+     * <p>
+     * The event contains the full list of chatters, as well as the users who joined and left since the previous event
      */
     private void sendUpdate() {
         if (this.chattersUpdated(false)) {
-            EventBus.instance().postAsync(new IrcChannelUsersUpdateEvent(this.viewers.entrySet().stream().filter(kv -> kv.getValue().inChat()).map(kv -> kv.getValue()).collect(Collectors.toList())));
+            List<Viewer> chatters = this.chatters();
+            Map<String, Viewer> current = new HashMap<>(chatters.size() * 2);
+            List<Viewer> joined = new ArrayList<>();
+
+            for (Viewer viewer : chatters) {
+                current.put(viewer.id(), viewer);
+
+                if (!this.lastSentChatters.containsKey(viewer.id())) {
+                    joined.add(viewer);
+                }
+            }
+
+            List<Viewer> left = new ArrayList<>();
+            this.lastSentChatters.forEach((id, viewer) -> {
+                if (!current.containsKey(id)) {
+                    left.add(viewer);
+                }
+            });
+
+            this.lastSentChatters = current;
+            this.updateSequence++;
+            EventBus.instance().postAsync(new IrcChannelUsersUpdateEvent(chatters, joined, left, this.updateSequence));
         }
     }
 
@@ -185,7 +257,8 @@ public final class ViewerCache implements Listener {
             String cursor = null;
             do {
                 try {
-                    final JSONObject jso = Helix.instance().getChattersAsync(1000, cursor).block();
+                    final String after = cursor;
+                    final JSONObject jso = Helix.background(() -> Helix.instance().getChattersAsync(1000, after)).block();
                     if (jso != null) {
                         if (!jso.has("error")) {
                             if (jso.has("data") && !jso.isNull("data")) {
@@ -221,14 +294,17 @@ public final class ViewerCache implements Listener {
             emitter.success(newChatters);
         }).doOnSuccess(newChattersList -> {
             final Instant after = Instant.now().minus(ACTIVE_TIMEOUT);
-            final List<String> found = new ArrayList<>();
-            final long count = this.viewers.entrySet().stream().filter(kv -> kv.getValue().inChat()).count();
-            this.viewers.entrySet().stream().filter(kv -> kv.getValue().inChat()).forEach(kv -> {
-                if (newChattersList.stream().filter(jso -> jso.getString("user_id").equals(kv.getValue().id())).findAny().isPresent()) {
-                    kv.getValue().seen();
-                    found.add(kv.getValue().id());
-                } else if (kv.getValue().lastActive().isBefore(after)) {
-                    kv.getValue().inChat(false);
+            final Set<String> newChatterIds = new HashSet<>(newChattersList.size() * 2);
+            newChattersList.forEach(jso -> newChatterIds.add(jso.getString("user_id")));
+            final Set<String> found = new HashSet<>();
+            this.viewers.forEach((id, viewer) -> {
+                if (viewer.inChat()) {
+                    if (newChatterIds.contains(id)) {
+                        viewer.seen();
+                        found.add(id);
+                    } else if (viewer.lastActive().isBefore(after)) {
+                        viewer.inChat(false);
+                    }
                 }
             });
             newChattersList.stream().forEach(jso -> {
@@ -408,6 +484,7 @@ public final class ViewerCache implements Listener {
             return false;
         }
 
+        this.index(viewer);
         this.updateDatabase(viewer.id(), viewer.login());
 
         return true;
@@ -422,9 +499,19 @@ public final class ViewerCache implements Listener {
      * @return The {@link Viewer} object for the user; {@code null} if not found
      */
     public Viewer get(String id) {
-        return this.viewers.computeIfAbsent(id, k -> {
-            return this.lookup(id, null);
-        });
+        Viewer viewer = this.viewers.get(id);
+
+        if (viewer == null) {
+            viewer = this.viewers.computeIfAbsent(id, k -> {
+                return this.lookup(id, null);
+            });
+
+            if (viewer != null) {
+                this.index(viewer);
+            }
+        }
+
+        return viewer;
     }
 
     /**
@@ -434,7 +521,20 @@ public final class ViewerCache implements Listener {
      * @return An {@link Optional} containing the {@link Viewer} object for the user; an empty Optional if not in the cache
      */
     private Optional<Viewer> getByLoginInternal(String login) {
-        return this.viewers.entrySet().stream().filter(kv -> kv.getValue().login().equals(login)).map(kv -> kv.getValue()).findFirst();
+        String id = this.loginIndex.get(login);
+
+        if (id == null) {
+            return Optional.empty();
+        }
+
+        Viewer viewer = this.viewers.get(id);
+
+        if (viewer == null || !viewer.login().equals(login)) {
+            this.loginIndex.remove(login, id);
+            return Optional.empty();
+        }
+
+        return Optional.of(viewer);
     }
 
     /**
@@ -485,7 +585,11 @@ public final class ViewerCache implements Listener {
      * @param id The user id to remove
      */
     public void remove(String id) {
-        this.viewers.remove(id);
+        Viewer viewer = this.viewers.remove(id);
+
+        if (viewer != null) {
+            this.unindex(viewer);
+        }
     }
 
     /**
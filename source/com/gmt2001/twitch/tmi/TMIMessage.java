@@ -49,10 +49,22 @@ public final class TMIMessage {
     }
 
     private final TMIMessageType messageType;
-    private final Map<String, String> tags;
-    private final Map<String, String> badges;
-    private final Map<String, List<EmoteLocation>> emotes;
-    private final List<String> emoteSets;
+    /**
+     * The raw IRC line; {@code null} for {@link TMIMessageType#OPEN} and {@link TMIMessageType#CLOSE}
+     */
+    private final String raw;
+    /**
+     * The index of the first character of the rawTagsComponent in {@link #raw}; {@code -1} if there are no tags
+     */
+    private final int tagsStart;
+    /**
+     * The index after the last character of the rawTagsComponent in {@link #raw}
+     */
+    private final int tagsEnd;
+    private volatile Map<String, String> tags;
+    private volatile Map<String, String> badges;
+    private volatile Map<String, List<EmoteLocation>> emotes;
+    private volatile List<String> emoteSets;
     private final String nick;
     private final String host;
     private final String command;
@@ -61,76 +73,52 @@ public final class TMIMessage {
 
     /**
      * Constructs a TMIMessage and parses the message into it's individual components
+     * <p>
+     * Only the source, command, and parameters are parsed immediately. The offsets of the IRCv3 tags are recorded, and the tags, badges,
+     * emotes, and emote-sets are only parsed on first access
      *
      * @param messageType The type of message
      * @param message A single raw IRC line conforming to the BNF in RFC1459
      */
     TMIMessage(TMIMessageType messageType, String message) {
-        String[] messageParts = this.parseMessage(message);
         this.messageType = messageType;
-        this.tags = Collections.unmodifiableMap(this.parseTags(messageParts[0]));
-        this.badges = Collections.unmodifiableMap(this.parseBadges(this.tags.getOrDefault("badges", ""), this.tags.getOrDefault("badge-info", "")));
-        this.emotes = Collections.unmodifiableMap(this.parseEmotes(this.tags.getOrDefault("emotes", "")));
-        this.emoteSets = Collections.unmodifiableList(this.parseEmoteSets(this.tags.getOrDefault("emote-sets", "")));
-        this.nick = messageParts[1];
-        this.host = messageParts[2];
-        this.command = messageParts[3];
-        this.channel = messageParts[4];
-        this.parameters = messageParts[5];
-    }
+        this.raw = message;
 
-    /**
-     * Constructs a TMIMessage with only a message type. Only really useful for {@link TMIMessageType.OPEN} and {@link TMIMessageType.CLOSE}
-     *
-     * @param messageType The type of message
-     */
-    TMIMessage(TMIMessageType messageType) {
-        this.messageType = messageType;
-        this.tags = null;
-        this.badges = null;
-        this.emotes = null;
-        this.emoteSets = null;
-        this.nick = null;
-        this.host = null;
-        this.command = null;
-        this.channel = null;
-        this.parameters = null;
-    }
-
-    // https://dev.twitch.tv/docs/irc/example-parser
-    /**
-     * Parses a raw IRC message into it's constituent parts.
-     *
-     * rawTagsComponent - IRCv3 tags component, if present, with the leading {@code @ removed, but not split into individual tags<br />
-     * nick - The nick, if present. This is the name before the {@code !} in the rawSourceComponent<br />
-     * host - The user@host component of the rawSourceComponent. If the {@code !} is present, this is everything after it<br />
-     * command - The IRC command name, this is the first word of the rawCommandComponent. For
-     * {@code CAP} commands, the {@code ACK} or {@code NAK} part is appended to this, with a space in between<br />
-     * channel - The channel name. This is the second word, if present, of the rawCommandComponent<br />
-     * rawParametersComponent - The IRC parameters component, if present, with the leading {@code :} removed
-     *
-     * @param message A single raw IRC line conforming to the BNF in RFC1459
-     * @return String[] { rawTagsComponent, nick, host, command, channel, rawParametersComponent };
-     */
-    private String[] parseMessage(String message) {
+        // https://dev.twitch.tv/docs/irc/example-parser
         int idx = 0;
         int endIdx;
-        String rawTagsComponent = null;
-        String rawSourceComponent = null;
-        String rawCommandComponent;
-        String rawParametersComponent = null;
 
         if (message.charAt(idx) == '@') {
             idx++;
             endIdx = message.indexOf(' ', idx);
-            rawTagsComponent = message.substring(idx, endIdx);
+            this.tagsStart = idx;
+            this.tagsEnd = endIdx;
             idx = endIdx + 1;
+        } else {
+            this.tagsStart = -1;
+            this.tagsEnd = -1;
         }
 
+        String rnick = null;
+        String rhost = null;
         if (message.charAt(idx) == ':') {
             idx++;
             endIdx = message.indexOf(' ', idx);
-            rawSourceComponent = message.substring(idx, endIdx);
+            int bang = message.indexOf('!', idx);
+
+            if (bang == -1 || bang > endIdx) {
+                rhost = message.substring(idx, endIdx);
+            } else {
+                int bang2 = message.indexOf('!', bang + 1);
+
+                if (bang2 == -1 || bang2 > endIdx) {
+                    rnick = message.substring(idx, bang);
+                    rhost = message.substring(bang + 1, endIdx);
+                } else {
+                    rhost = message.substring(idx, bang);
+                }
+            }
+
             idx = endIdx + 1;
         }
 
@@ -139,69 +127,178 @@ public final class TMIMessage {
             endIdx = message.length();
         }
 
-        rawCommandComponent = message.substring(idx, endIdx).trim();
-
-        if (endIdx != message.length()) {
-            idx = endIdx + 1;
-            rawParametersComponent = message.substring(idx);
+        int commandStart = idx;
+        int commandEnd = endIdx;
+        while (commandStart < commandEnd && message.charAt(commandStart) <= ' ') {
+            commandStart++;
         }
-
-        String rnick = null;
-        String rhost = null;
-        if (rawSourceComponent != null) {
-            String[] sourceParts = rawSourceComponent.split("!");
-            rnick = sourceParts.length == 2 ? sourceParts[0] : null;
-            rhost = sourceParts.length == 2 ? sourceParts[1] : sourceParts[0];
+        while (commandEnd > commandStart && message.charAt(commandEnd - 1) <= ' ') {
+            commandEnd--;
         }
 
         String rcommand;
         String rchannel = null;
-        if (rawCommandComponent.contains(" ")) {
-            String[] commandParts = rawCommandComponent.split(" ");
-            rcommand = commandParts[0];
-            rchannel = commandParts[1];
+        int space = message.indexOf(' ', commandStart);
+        if (space != -1 && space < commandEnd) {
+            rcommand = message.substring(commandStart, space);
+            int channelEnd = nextSpace(message, space + 1, commandEnd);
+            rchannel = message.substring(space + 1, channelEnd);
 
             if (rcommand.equals("CAP")) {
-                rcommand += " " + commandParts[2];
+                rcommand += " " + message.substring(channelEnd + 1, nextSpace(message, channelEnd + 1, commandEnd));
             } else if (rcommand.equals("353")) {
-                rchannel = commandParts[3];
+                int thirdEnd = nextSpace(message, channelEnd + 1, commandEnd);
+                rchannel = message.substring(thirdEnd + 1, nextSpace(message, thirdEnd + 1, commandEnd));
             }
         } else {
-            rcommand = rawCommandComponent;
+            rcommand = message.substring(commandStart, commandEnd);
         }
 
-        return new String[]{rawTagsComponent, rnick == null ? rhost : rnick, rhost, rcommand, rchannel, rawParametersComponent};
+        this.nick = rnick == null ? rhost : rnick;
+        this.host = rhost;
+        this.command = rcommand;
+        this.channel = rchannel;
+        this.parameters = endIdx != message.length() ? message.substring(endIdx + 1) : null;
+    }
+
+    /**
+     * Constructs a TMIMessage with only a message type. Only really useful for {@link TMIMessageType.OPEN} and {@link TMIMessageType.CLOSE}
+     *
+     * @param messageType The type of message
+     */
+    TMIMessage(TMIMessageType messageType) {
+        this.messageType = messageType;
+        this.raw = null;
+        this.tagsStart = -1;
+        this.tagsEnd = -1;
+        this.nick = null;
+        this.host = null;
+        this.command = null;
+        this.channel = null;
+        this.parameters = null;
     }
 
     /**
-     * Parses the rawTagsComponent into a Map.
+     * Finds the next space in a range
+     *
+     * @param str The string to search
+     * @param from The index to start searching from
+     * @param end The index after the end of the range
+     * @return The index of the next space; {@code end} if there are no more spaces in the range
+     * @throws ArrayIndexOutOfBoundsException if {@code from} is past the end of the range
+     */
+    private static int nextSpace(String str, int from, int end) {
+        if (from > end) {
+            throw new ArrayIndexOutOfBoundsException(from);
+        }
+
+        int idx = str.indexOf(' ', from);
+        return idx == -1 || idx > end ? end : idx;
+    }
+
+    /**
+     * Unescapes an IRCv3 tag value in a single pass
+     * <p>
+     * Unescaped {@code :} characters are converted to {@code ;}, as the previous parser did, since consumers of the {@code emotes} tag
+     * expect {@code emoteId;positions}
+     *
+     * @param str The string containing the escaped value
+     * @param start The index of the first character of the value
+     * @param end The index after the last character of the value
+     * @return The unescaped value
+     */
+    private static String unescapeTagValue(String str, int start, int end) {
+        int i = start;
+        while (i < end && str.charAt(i) != '\\' && str.charAt(i) != ':') {
+            i++;
+        }
+
+        if (i == end) {
+            return str.substring(start, end);
+        }
+
+        StringBuilder sb = new StringBuilder(end - start);
+        sb.append(str, start, i);
+
+        for (; i < end; i++) {
+            char c = str.charAt(i);
+
+            if (c == ':') {
+                sb.append(';');
+            } else if (c != '\\') {
+                sb.append(c);
+            } else if (i + 1 < end) {
+                i++;
+                switch (str.charAt(i)) {
+                    case ':':
+                        sb.append(';');
+                        break;
+                    case 's':
+                        sb.append(' ');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    default:
+                        sb.append(str.charAt(i));
+                        break;
+                }
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Parses the rawTagsComponent into a Map in a single pass.
      *
      * Certain special badges are additionally added to their legacy tags, if not already present, via a call to
      * {@link #parseLegacyBadges(java.lang.String)}
      *
-     * @param sTags The rawTagsComponent
      * @return A Map of tags
      */
-    private Map<String, String> parseTags(String sTags) {
+    private Map<String, String> parseTags() {
         Map<String, String> rtags = new HashMap<>();
 
-        if (sTags == null) {
+        if (this.tagsStart == -1) {
             return rtags;
         }
 
-        String[] tagParts = sTags.split(";");
+        int idx = this.tagsStart;
+        while (idx < this.tagsEnd) {
+            int partEnd = this.raw.indexOf(';', idx);
+            if (partEnd == -1 || partEnd > this.tagsEnd) {
+                partEnd = this.tagsEnd;
+            }
+
+            if (partEnd > idx) {
+                int eq = this.raw.indexOf('=', idx);
+                String key;
+                String value;
+
+                if (eq == -1 || eq >= partEnd) {
+                    key = this.raw.substring(idx, partEnd);
+                    value = "";
+                } else {
+                    key = this.raw.substring(idx, eq);
+                    value = unescapeTagValue(this.raw, eq + 1, partEnd);
+                }
 
-        for (String tagPart : tagParts) {
-            String[] tagSpl = tagPart.split("=");
-            rtags.putIfAbsent(tagSpl[0], tagSpl.length > 1 ? tagSpl[1].replaceAll("\\\\s", " ").replaceAll("\\\\", "\\").replaceAll("\\:", ";") : "");
+                rtags.putIfAbsent(key, value);
 
-            if (tagSpl[0].equals("badges") && tagSpl.length > 1) {
-                Map<String, String> rbadges = parseLegacyBadges(tagSpl[1]);
+                if (key.equals("badges") && !value.isEmpty()) {
+                    Map<String, String> rbadges = parseLegacyBadges(value);
 
-                for (Map.Entry<String, String> badge : rbadges.entrySet()) {
-                    rtags.putIfAbsent(badge.getKey(), badge.getValue());
+                    for (Map.Entry<String, String> badge : rbadges.entrySet()) {
+                        rtags.putIfAbsent(badge.getKey(), badge.getValue());
+                    }
                 }
             }
+
+            idx = partEnd + 1;
         }
 
         return rtags;
@@ -214,28 +311,43 @@ public final class TMIMessage {
      * @param rawBadgeInfo The raw {@code badge-info} value of {@link #tags}
      * @return A Map of badges
      */
-    private Map<String, String> parseBadges(String rawBadges, String rawBadgeInfo) {
+    private static Map<String, String> parseBadges(String rawBadges, String rawBadgeInfo) {
         Map<String, String> rbadges = new HashMap<>();
+        parseBadgeList(rawBadges, rbadges);
+        parseBadgeList(rawBadgeInfo, rbadges);
+        return rbadges;
+    }
 
-        if (!rawBadges.isBlank()) {
-            String[] badgeParts = rawBadges.split(",");
-
-            for (String badgePart : badgeParts) {
-                String[] badge = badgePart.split("/");
-                rbadges.putIfAbsent(badge[0], badge.length > 1 ? badge[1] : "");
-            }
+    /**
+     * Parses a comma-separated list of {@code name/version} badges into a Map, without overwriting existing entries
+     *
+     * @param rawBadges The raw badge list
+     * @param rbadges The Map to add the badges to
+     */
+    private static void parseBadgeList(String rawBadges, Map<String, String> rbadges) {
+        if (rawBadges.isBlank()) {
+            return;
         }
 
-        if (!rawBadgeInfo.isBlank()) {
-            String[] badgeParts = rawBadgeInfo.split(",");
+        int idx = 0;
+        int len = rawBadges.length();
+        while (idx < len) {
+            int partEnd = rawBadges.indexOf(',', idx);
+            if (partEnd == -1) {
+                partEnd = len;
+            }
 
-            for (String badgePart : badgeParts) {
-                String[] badge = badgePart.split("/");
-                rbadges.putIfAbsent(badge[0], badge.length > 1 ? badge[1] : "");
+            int slash = rawBadges.indexOf('/', idx);
+            if (slash == -1 || slash > partEnd) {
+                rbadges.putIfAbsent(rawBadges.substring(idx, partEnd), "");
+            } else {
+                int slash2 = rawBadges.indexOf('/', slash + 1);
+                rbadges.putIfAbsent(rawBadges.substring(idx, slash),
+                    rawBadges.substring(slash + 1, slash2 == -1 || slash2 > partEnd ? partEnd : slash2));
             }
-        }
 
-        return rbadges;
+            idx = partEnd + 1;
+        }
     }
 
     /**
@@ -243,33 +355,59 @@ public final class TMIMessage {
      *
      * Note: These values are only provided for emotes that Twitch recognizes and that the sender had access to at the time of sending the message
      *
-     * @param rawEmotes The raw {@code emotes} value of {@link #tags}
+     * @param rawEmotes The {@code emotes} value of {@link #tags}, in the format {@code emoteId;start-end,start-end/emoteId;start-end}
      * @return A Map of emotes. The key is the emoteID; the value is a List of {@link TMIMessage.EmoteLocation} that describe which characters of
      * {@link #parameters} matches that emote and would be replaced by the image in the Twitch chat window
      */
     private Map<String, List<EmoteLocation>> parseEmotes(String rawEmotes) {
         Map<String, List<EmoteLocation>> remotes = new HashMap<>();
 
-        if (!rawEmotes.isBlank()) {
-            String[] emotesParts = rawEmotes.split("/");
+        if (rawEmotes.isBlank()) {
+            return remotes;
+        }
 
-            for (String emote : emotesParts) {
-                String[] emoteParts = emote.split(":");
+        int idx = 0;
+        int len = rawEmotes.length();
+        while (idx < len) {
+            int emoteEnd = rawEmotes.indexOf('/', idx);
+            if (emoteEnd == -1) {
+                emoteEnd = len;
+            }
+
+            int colon = rawEmotes.indexOf(';', idx);
+            boolean valid = colon != -1 && colon + 1 < emoteEnd;
+            if (valid) {
+                int colon2 = rawEmotes.indexOf(';', colon + 1);
+                valid = colon2 == -1 || colon2 > emoteEnd;
+            }
+
+            if (valid) {
+                List<EmoteLocation> emoteLocations = new ArrayList<>();
+                int pos = colon + 1;
 
-                if (emoteParts.length == 2) {
-                    List<EmoteLocation> emoteLocations = new ArrayList<>();
-                    String[] positions = emoteParts[1].split(",");
+                while (pos < emoteEnd) {
+                    int posEnd = rawEmotes.indexOf(',', pos);
+                    if (posEnd == -1 || posEnd > emoteEnd) {
+                        posEnd = emoteEnd;
+                    }
 
-                    for (String position : positions) {
-                        String[] positionParts = position.split("-");
-                        if (positionParts.length == 2) {
-                            emoteLocations.add(new EmoteLocation(positionParts[0], positionParts[1]));
+                    int dash = rawEmotes.indexOf('-', pos);
+                    if (dash != -1 && dash < posEnd) {
+                        try {
+                            emoteLocations.add(new EmoteLocation(Integer.parseInt(rawEmotes, pos, dash, 10),
+                                Integer.parseInt(rawEmotes, dash + 1, posEnd, 10)));
+                        } catch (NumberFormatException ex) {
+                            com.gmt2001.Console.debug.printStackTrace(ex);
                         }
                     }
 
-                    remotes.putIfAbsent(emoteParts[0], Collections.unmodifiableList(emoteLocations));
+                    pos = posEnd + 1;
                 }
+
+                remotes.putIfAbsent(rawEmotes.substring(idx, colon), Collections.unmodifiableList(emoteLocations));
             }
+
+            idx = emoteEnd + 1;
         }
 
         return remotes;
@@ -283,7 +421,7 @@ public final class TMIMessage {
      * @param rawEmoteSets The raw {@code emote-sets} value of {@link #tags}
      * @return A List of emoteSetIDs
      */
-    private List<String> parseEmoteSets(String rawEmoteSets) {
+    private static List<String> parseEmoteSets(String rawEmoteSets) {
         return Arrays.asList(rawEmoteSets.split(","));
     }
 
@@ -295,48 +433,54 @@ public final class TMIMessage {
      * @deprecated Please use official Twitch IRC tags instead {@link https://dev.twitch.tv/docs/irc/tags/}
      */
     @Deprecated(since = "3.8.2.0", forRemoval = true)
-    private Map<String, String> parseLegacyBadges(String rawBadges) {
+    private static Map<String, String> parseLegacyBadges(String rawBadges) {
         Map<String, String> rbadges = new HashMap<>();
 
         if (rawBadges.isBlank()) {
             return rbadges;
         }
 
-        if (rawBadges.length() > 0) {
-            String badgeParts[] = rawBadges.split(",");
+        int idx = 0;
+        int len = rawBadges.length();
+        while (idx < len) {
+            int partEnd = rawBadges.indexOf(',', idx);
+            if (partEnd == -1) {
+                partEnd = len;
+            }
 
-            for (String badge : badgeParts) {
-                int idx = badge.indexOf('/');
-                if (idx == -1) {
-                    idx = badge.length();
-                }
-                badge = badge.substring(0, idx);
-
-                switch (badge) {
-                    case "staff":
-                    case "global_mod":
-                    case "admin":
-                    case "broadcaster":
-                    case "moderator":
-                        rbadges.put("user-type", badge);
-                        break;
-                    case "subscriber":
-                    case "founder":
-                        rbadges.put("subscriber", "1");
-                        break;
-                    case "turbo":
-                        rbadges.put("turbo", "1");
-                        break;
-                    case "premium":
-                        rbadges.put("premium", "1");
-                        break;
-                    case "vip":
-                        rbadges.put("vip", "1");
-                        break;
-                    default:
-                        break;
-                }
+            int nameEnd = rawBadges.indexOf('/', idx);
+            if (nameEnd == -1 || nameEnd > partEnd) {
+                nameEnd = partEnd;
+            }
+
+            String badge = rawBadges.substring(idx, nameEnd);
+
+            switch (badge) {
+                case "staff":
+                case "global_mod":
+                case "admin":
+                case "broadcaster":
+                case "moderator":
+                    rbadges.put("user-type", badge);
+                    break;
+                case "subscriber":
+                case "founder":
+                    rbadges.put("subscriber", "1");
+                    break;
+                case "turbo":
+                    rbadges.put("turbo", "1");
+                    break;
+                case "premium":
+                    rbadges.put("premium", "1");
+                    break;
+                case "vip":
+                    rbadges.put("vip", "1");
+                    break;
+                default:
+                    break;
             }
+
+            idx = partEnd + 1;
         }
 
         return rbadges;
@@ -353,28 +497,68 @@ public final class TMIMessage {
      * @return The IRCv3 tags. Badges, emotes, and emote-sets are still in raw form in this Map
      */
     public Map<String, String> tags() {
-        return this.tags;
+        if (this.raw == null) {
+            return null;
+        }
+
+        Map<String, String> rtags = this.tags;
+        if (rtags == null) {
+            rtags = Collections.unmodifiableMap(this.parseTags());
+            this.tags = rtags;
+        }
+
+        return rtags;
     }
 
     /**
      * @return The badges and badge-info components of the IRCv3 tags
      */
     public Map<String, String> badges() {
-        return this.badges;
+        if (this.raw == null) {
+            return null;
+        }
+
+        Map<String, String> rbadges = this.badges;
+        if (rbadges == null) {
+            rbadges = Collections.unmodifiableMap(parseBadges(this.tags().getOrDefault("badges", ""), this.tags().getOrDefault("badge-info", "")));
+            this.badges = rbadges;
+        }
+
+        return rbadges;
     }
 
     /**
      * @return The emotes component of the IRCv3 tags, parsed into emoteId: List<{@link EmoteLocation}> pairs
      */
     public Map<String, List<EmoteLocation>> emotes() {
-        return this.emotes;
+        if (this.raw == null) {
+            return null;
+        }
+
+        Map<String, List<EmoteLocation>> remotes = this.emotes;
+        if (remotes == null) {
+            remotes = Collections.unmodifiableMap(this.parseEmotes(this.tags().getOrDefault("emotes", "")));
+            this.emotes = remotes;
+        }
+
+        return remotes;
     }
 
     /**
      * @return The emote-sets component of the IRCv3 tags
      */
     public List<String> emoteSets() {
-        return this.emoteSets;
+        if (this.raw == null) {
+            return null;
+        }
+
+        List<String> remoteSets = this.emoteSets;
+        if (remoteSets == null) {
+            remoteSets = Collections.unmodifiableList(parseEmoteSets(this.tags().getOrDefault("emote-sets", "")));
+            this.emoteSets = remoteSets;
+        }
+
+        return remoteSets;
     }
 
     /**
@@ -421,8 +605,12 @@ public final class TMIMessage {
         private final int end;
 
         EmoteLocation(String start, String end) {
-            this.start = Integer.parseInt(start);
-            this.end = Integer.parseInt(end);
+            this(Integer.parseInt(start), Integer.parseInt(end));
+        }
+
+        EmoteLocation(int start, int end) {
+            this.start = start;
+            this.end = end;
         }
 
         /**
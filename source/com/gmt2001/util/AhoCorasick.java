@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An Aho-Corasick automaton, which finds every occurrence of a set of literal patterns in a single pass over the text
+ * <p>
+ * Matching is case-sensitive; callers which need case-insensitive matching should normalize the patterns and the text
+ */
+public final class AhoCorasick {
+
+    private static final int[] NONE = new int[0];
+    private final Node root;
+    private final int[] lengths;
+    private final int[] empty;
+
+    /**
+     * Receives the occurrences found by {@link AhoCorasick#forEachMatch(CharSequence, Visitor)}
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * Called for each occurrence of a pattern, in order of the end index
+         *
+         * @param pattern the index of the pattern in the list given to the constructor
+         * @param start the index of the first character of the occurrence
+         * @param end the index after the last character of the occurrence
+         * @return {@code true} to continue searching; {@code false} to stop
+         */
+        boolean visit(int pattern, int start, int end);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param patterns the patterns to search for; {@code null} entries are ignored, and empty patterns occur once at index {@code 0}
+     */
+    public AhoCorasick(List<String> patterns) {
+        BuildNode broot = new BuildNode();
+        List<Integer> emptyPatterns = new ArrayList<>();
+        this.lengths = new int[patterns.size()];
+
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = patterns.get(i);
+
+            if (pattern == null) {
+                continue;
+            }
+
+            this.lengths[i] = pattern.length();
+
+            if (pattern.isEmpty()) {
+                emptyPatterns.add(i);
+                continue;
+            }
+
+            BuildNode node = broot;
+            for (int c = 0; c < pattern.length(); c++) {
+                node = node.children.computeIfAbsent(pattern.charAt(c), k -> new BuildNode());
+            }
+
+            node.out.add(i);
+        }
+
+        this.empty = emptyPatterns.stream().mapToInt(Integer::intValue).toArray();
+        this.root = freeze(broot);
+        this.link();
+    }
+
+    /**
+     * Converts the build tree into nodes with sorted transition arrays
+     */
+    private static Node freeze(BuildNode bnode) {
+        Node node = new Node();
+        node.keys = new char[bnode.children.size()];
+        node.next = new Node[bnode.children.size()];
+        node.out = bnode.out.isEmpty() ? NONE : bnode.out.stream().mapToInt(Integer::intValue).toArray();
+
+        int i = 0;
+        for (Map.Entry<Character, BuildNode> child : bnode.children.entrySet()) {
+            node.keys[i] = child.getKey();
+            node.next[i] = freeze(child.getValue());
+            i++;
+        }
+
+        return node;
+    }
+
+    /**
+     * Computes the failure and output links breadth-first
+     */
+    private void link() {
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        this.root.fail = this.root;
+
+        for (Node child : this.root.next) {
+            child.fail = this.root;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+
+            for (int i = 0; i < node.keys.length; i++) {
+                char c = node.keys[i];
+                Node child = node.next[i];
+                Node fail = node.fail;
+
+                while (fail != this.root && fail.child(c) == null) {
+                    fail = fail.fail;
+                }
+
+                Node target = fail.child(c);
+                child.fail = target == null || target == child ? this.root : target;
+                child.dict = child.fail.out.length > 0 ? child.fail : child.fail.dict;
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Finds every occurrence of the patterns in the text, including overlapping occurrences
+     *
+     * @param text the text to search
+     * @param visitor receives each occurrence
+     */
+    public void forEachMatch(CharSequence text, Visitor visitor) {
+        for (int pattern : this.empty) {
+            if (!visitor.visit(pattern, 0, 0)) {
+                return;
+            }
+        }
+
+        Node node = this.root;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Node child = node.child(c);
+
+            while (child == null && node != this.root) {
+                node = node.fail;
+                child = node.child(c);
+            }
+
+            node = child == null ? this.root : child;
+
+            for (Node out = node.out.length > 0 ? node : node.dict; out != null; out = out.dict) {
+                for (int pattern : out.out) {
+                    if (!visitor.visit(pattern, i + 1 - this.lengths[pattern], i + 1)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the lowest index of the patterns which occur in the text
+     *
+     * @param text the text to search
+     * @return the index of the pattern; {@code -1} if none occur
+     */
+    public int firstPattern(CharSequence text) {
+        int[] first = { -1 };
+
+        this.forEachMatch(text, (pattern, start, end) -> {
+            if (first[0] == -1 || pattern < first[0]) {
+                first[0] = pattern;
+            }
+
+            return first[0] != 0;
+        });
+
+        return first[0];
+    }
+
+    /**
+     * A node of the automaton while it is being built
+     */
+    private static final class BuildNode {
+        private final Map<Character, BuildNode> children = new TreeMap<>();
+        private final List<Integer> out = new ArrayList<>(1);
+    }
+
+    /**
+     * A node of the automaton
+     */
+    private static final class Node {
+        private char[] keys;
+        private Node[] next;
+        private int[] out;
+        private Node fail;
+        /**
+         * The nearest node along the failure links which has output
+         */
+        private Node dict;
+
+        private Node child(char c) {
+            int i = Arrays.binarySearch(this.keys, c);
+            return i < 0 ? null : this.next[i];
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Striped version counters used by caches to detect an invalidation which raced a load
+ * <p>
+ * A cache takes a {@link #stamp(Object)} before reading the backing store, and then only inserts the loaded value,
+ * from inside {@link java.util.concurrent.ConcurrentHashMap#compute(Object, java.util.function.BiFunction)}, if
+ * {@link #unchanged(Object, long)} still returns {@code true}. Invalidators call {@link #bump(Object)} or {@link #bumpAll()}
+ * <i>before</i> removing the entry from the map, so either the stale insert is rejected or it is removed afterwards
+ * <p>
+ * Keys which share a stripe also share a counter, so an unrelated invalidation may cause a load to be discarded, but a
+ * racing invalidation is never missed
+ */
+public final class KeyVersions {
+
+    private static final int STRIPES = 256;
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+    private final AtomicLong generation = new AtomicLong();
+
+    private static int stripe(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Returns the current version of the key, to be taken before loading its value
+     *
+     * @param key the key
+     * @return the version stamp
+     */
+    public long stamp(Object key) {
+        // Both counters only increase, so the sum changes whenever either one does
+        return this.generation.get() + this.versions.get(stripe(key));
+    }
+
+    /**
+     * Indicates if the key has not been invalidated since the stamp was taken
+     *
+     * @param key the key
+     * @param stamp the stamp returned by {@link #stamp(Object)}
+     * @return {@code true} if the loaded value may be inserted
+     */
+    public boolean unchanged(Object key, long stamp) {
+        return this.stamp(key) == stamp;
+    }
+
+    /**
+     * Marks the key as invalidated, causing any in-flight load of it to be discarded
+     *
+     * @param key the key
+     */
+    public void bump(Object key) {
+        this.versions.incrementAndGet(stripe(key));
+    }
+
+    /**
+     * Marks every key as invalidated, causing all in-flight loads to be discarded
+     */
+    public void bumpAll() {
+        this.generation.incrementAndGet();
+    }
+}
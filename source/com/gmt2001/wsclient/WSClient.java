@@ -17,7 +17,7 @@
 package com.gmt2001.wsclient;
 
 import com.gmt2001.dns.CompositeAddressResolverGroup;
-import com.gmt2001.dns.EventLoopDetector;
+import com.gmt2001.dns.EventLoopRegistry;
 import com.gmt2001.wspinger.WSClientPinger;
 import com.gmt2001.wspinger.WSPinger;
 import io.netty.bootstrap.Bootstrap;
@@ -75,9 +75,9 @@ public class WSClient {
      */
     private Channel channel = null;
     /**
-     * The client's {@link EventLoopGroup}
+     * The shared {@link EventLoopGroup}
      */
-    private final EventLoopGroup group = EventLoopDetector.createEventLoopGroup();
+    private final EventLoopGroup group = EventLoopRegistry.group();
 
     /**
      * Constructor that does not initialize a {@link WSPinger}
@@ -101,39 +101,34 @@ public class WSClient {
      * @throws IllegalArgumentException URI scheme is not ws or wss
      */
     public WSClient(URI uri, WsClientFrameHandler handler, WSClientPinger pinger) throws SSLException, IllegalArgumentException {
-        try {
-            this.uri = uri;
+        this.uri = uri;
 
-            String scheme = uri.getScheme() == null ? "ws" : uri.getScheme();
+        String scheme = uri.getScheme() == null ? "ws" : uri.getScheme();
 
-            if (!"ws".equalsIgnoreCase(scheme) && !"wss".equalsIgnoreCase(scheme)) {
-                throw new IllegalArgumentException("URI Scheme must be ws or wss");
-            }
+        if (!"ws".equalsIgnoreCase(scheme) && !"wss".equalsIgnoreCase(scheme)) {
+            throw new IllegalArgumentException("URI Scheme must be ws or wss");
+        }
 
-            this.host = uri.getHost() == null ? "127.0.0.1" : uri.getHost();
+        this.host = uri.getHost() == null ? "127.0.0.1" : uri.getHost();
 
-            if (uri.getPort() == -1) {
-                if ("ws".equalsIgnoreCase(scheme)) {
-                    this.port = 80;
-                } else if ("wss".equalsIgnoreCase(scheme)) {
-                    this.port = 443;
-                } else {
-                    this.port = -1;
-                }
+        if (uri.getPort() == -1) {
+            if ("ws".equalsIgnoreCase(scheme)) {
+                this.port = 80;
+            } else if ("wss".equalsIgnoreCase(scheme)) {
+                this.port = 443;
             } else {
-                this.port = uri.getPort();
+                this.port = -1;
             }
+        } else {
+            this.port = uri.getPort();
+        }
 
-            this.handler = handler;
-            this.pinger = pinger;
-            if ("wss".equalsIgnoreCase(scheme)) {
-                this.sslCtx = SslContextBuilder.forClient().trustManager(InsecureTrustManagerFactory.INSTANCE).build();
-            } else {
-                this.sslCtx = null;
-            }
-        } catch (IllegalArgumentException | SSLException ex) {
-            group.shutdownGracefully();
-            throw ex;
+        this.handler = handler;
+        this.pinger = pinger;
+        if ("wss".equalsIgnoreCase(scheme)) {
+            this.sslCtx = SslContextBuilder.forClient().trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+        } else {
+            this.sslCtx = null;
         }
     }
 
@@ -145,28 +140,23 @@ public class WSClient {
      * @throws IllegalStateException Attempting to use a closed client
      */
     public boolean connect() throws InterruptedException, IllegalStateException {
-        try {
-            if (this.channel != null) {
-                throw new IllegalStateException("Reusing a closed client");
-            }
+        if (this.channel != null) {
+            throw new IllegalStateException("Reusing a closed client");
+        }
 
-            Bootstrap b = new Bootstrap();
-            b.group(this.group);
+        Bootstrap b = new Bootstrap();
+        b.group(this.group);
 
-            if (CaselessProperties.instance().getPropertyAsBoolean("usedefaultdnsresolver", false)) {
-                b.resolver(DefaultAddressResolverGroup.INSTANCE);
-            } else {
-                b.resolver(CompositeAddressResolverGroup.INSTANCE);
-            }
+        if (CaselessProperties.instance().getPropertyAsBoolean("usedefaultdnsresolver", false)) {
+            b.resolver(DefaultAddressResolverGroup.INSTANCE);
+        } else {
+            b.resolver(CompositeAddressResolverGroup.INSTANCE);
+        }
 
-            b.channel(EventLoopDetector.getChannelClass())
-                    .handler(new WSClientInitializer(this));
+        b.channel(EventLoopRegistry.channelClass())
+                .handler(new WSClientInitializer(this));
 
-            this.channel = b.connect(this.host, this.port).sync().channel();
-        } catch (InterruptedException | IllegalStateException ex) {
-            group.shutdownGracefully();
-            throw ex;
-        }
+        this.channel = b.connect(this.host, this.port).sync().channel();
 
         return this.channel != null;
     }
@@ -272,7 +262,5 @@ public class WSClient {
     public void close(WebSocketFrame closeFrame) {
         com.gmt2001.Console.debug.println("caller " + com.gmt2001.Console.debug.findCallerInfo("com.gmt2001.wsclient.WSClient"));
         WebSocketFrameHandler.close(this.channel(), closeFrame).awaitUninterruptibly(5, TimeUnit.SECONDS);
-
-        group.shutdownGracefully(3, 5, TimeUnit.SECONDS);
     }
 }
@@ -17,8 +17,15 @@
 package com.illusionaryone;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
@@ -28,22 +35,37 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 import com.gmt2001.PathValidator;
 import com.gmt2001.RollbarProvider;
 
 import net.engio.mbassy.listener.Handler;
+import tv.phantombot.CaselessProperties;
 import tv.phantombot.PhantomBot;
 import tv.phantombot.event.EventBus;
 import tv.phantombot.event.Listener;
 import tv.phantombot.event.jvm.PropertiesLoadedEvent;
 import tv.phantombot.event.jvm.PropertiesReloadedEvent;
 
+/**
+ * Writes log lines to the daily log files
+ * <p>
+ * Lines are published to a dedicated writer thread. By default, the writer keeps one open {@link FileChannel} for each log file of the
+ * current day and drains the queue in batches, writing everything that is pending in a single call. If the queue is full, lines are
+ * dropped rather than blocking the caller, and a marker with the number of dropped lines is written once the queue drains. When the
+ * {@code logbatched} property is {@code false}, each line is instead appended by opening and closing the file
+ */
 public final class Logger extends SubmissionPublisher<Logger.LogItem> implements Flow.Processor<Logger.LogItem, Logger.LogItem>, Listener {
 
     private Flow.Subscription subscription = null;
@@ -59,9 +81,46 @@ public final class Logger extends SubmissionPublisher<Logger.LogItem> implements
             LogType.Warning, "./logs/core-warnings/",
             LogType.Moderation, "./logs/moderation/"
     );
-    private static final Logger INSTANCE = new Logger();
+    /**
+     * The maximum number of items waiting to be written
+     */
+    private static final int QUEUE_CAPACITY = 16384;
+    /**
+     * The number of pending characters which triggers a write, even if more items are waiting
+     */
+    private static final int BATCH_CHARS = 65536;
+    /**
+     * The interval at which pending lines are written, even if more items are waiting, and open files are checked
+     */
+    private static final long FLUSH_INTERVAL_MS = 1000L;
+    private static final Logger INSTANCE = new Logger(new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "PhantomBot-Logger");
+        t.setDaemon(true);
+        return t;
+    }));
     private static boolean subscribed = false;
     private final boolean pathsCreated;
+    private final ScheduledThreadPoolExecutor executor;
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private volatile boolean batched = true;
+    /**
+     * Pending lines for each log directory; only accessed from the writer thread
+     */
+    private final Map<String, StringBuilder> pending = new LinkedHashMap<>();
+    /**
+     * Open log files for each log directory; only accessed from the writer thread
+     */
+    private final Map<String, OpenLog> channels = new HashMap<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BATCH_CHARS);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private String channelsDate = null;
+    private int pendingChars = 0;
+    private long unreportedDrops = 0L;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder errors = new LongAdder();
 
     public enum LogType {
         Output,
@@ -75,19 +134,148 @@ public final class Logger extends SubmissionPublisher<Logger.LogItem> implements
     @Override
     public void onSubscribe(Flow.Subscription subscription) {
         this.subscription = subscription;
-        this.subscription.request(1);
+        this.subscription.request(Long.MAX_VALUE);
     }
 
     @Override
     public void onNext(LogItem item) {
+        if (!this.batched) {
+            this.flush();
+            try {
+                Files.write(Paths.get(LOG_PATHS.get(item.type), this.logFileTimestamp() + ".txt"), item.lines,
+                        StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+                this.written.add(item.lines.size());
+            } catch (IOException ex) {
+                this.errors.increment();
+                RollbarProvider.instance().error(ex, Collections.singletonMap("LogItem", item));
+                ex.printStackTrace(System.err);
+            }
+            return;
+        }
+
+        StringBuilder sb = this.pending.computeIfAbsent(LOG_PATHS.get(item.type), p -> new StringBuilder());
+        int start = sb.length();
+        for (String line : item.lines) {
+            sb.append(line).append(System.lineSeparator());
+        }
+        this.pendingChars += sb.length() - start;
+        this.written.add(item.lines.size());
+
+        if (this.pendingChars >= BATCH_CHARS || this.estimateMaximumLag() == 0) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Writes all pending lines to their log files
+     * <p>
+     * Must only be called from the writer thread
+     */
+    private void flush() {
+        long drops = this.dropped.sum();
+        if (drops > this.unreportedDrops && this.estimateMaximumLag() == 0) {
+            this.pending.computeIfAbsent(LOG_PATHS.get(LogType.Error), p -> new StringBuilder()).append('[').append(this.logTimestamp())
+                    .append("] [Logger] ").append(drops - this.unreportedDrops).append(" log items were dropped because the log queue was full")
+                    .append(System.lineSeparator());
+            this.unreportedDrops = drops;
+        }
+
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        String date = this.logFileTimestamp();
+        if (!date.equals(this.channelsDate)) {
+            this.closeChannels();
+            this.channelsDate = date;
+        }
+
+        this.pending.forEach((dir, sb) -> {
+            if (sb.length() > 0) {
+                this.write(dir, date, sb);
+            }
+        });
+        this.pending.clear();
+        this.pendingChars = 0;
+        this.batches.increment();
+    }
+
+    /**
+     * Encodes and writes the pending lines for a single log directory
+     *
+     * @param dir the log directory
+     * @param date the date of the log file
+     * @param sb the pending lines
+     */
+    private void write(String dir, String date, StringBuilder sb) {
+        OpenLog log = this.channels.get(dir);
+        try {
+            if (log == null) {
+                Path path = Paths.get(dir, date + ".txt");
+                log = new OpenLog(path, FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+                this.channels.put(dir, log);
+            }
+
+            CharBuffer in = CharBuffer.wrap(sb);
+            this.encoder.reset();
+            this.buffer.clear();
+            boolean flushed = false;
+            while (true) {
+                CoderResult result = flushed ? this.encoder.flush(this.buffer) : this.encoder.encode(in, this.buffer, true);
+                if (result.isOverflow()) {
+                    this.drain(log.channel);
+                } else if (!flushed) {
+                    flushed = true;
+                } else {
+                    break;
+                }
+            }
+            this.drain(log.channel);
+        } catch (IOException ex) {
+            this.errors.increment();
+            if (log != null) {
+                this.channels.remove(dir);
+                this.close(log);
+            }
+            RollbarProvider.instance().error(ex, Collections.singletonMap("LogDir", dir));
+            ex.printStackTrace(System.err);
+        }
+    }
+
+    private void drain(FileChannel channel) throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    /**
+     * Periodic task which writes pending lines and closes files which have been deleted or rotated away, so they are recreated
+     */
+    private void tick() {
+        this.flush();
+        this.channels.values().removeIf(log -> {
+            if (!Files.exists(log.path)) {
+                this.close(log);
+                return true;
+            }
+
+            return false;
+        });
+    }
+
+    private void closeChannels() {
+        this.channels.values().forEach(this::close);
+        this.channels.clear();
+    }
+
+    private void close(OpenLog log) {
         try {
-            Files.write(Paths.get(LOG_PATHS.get(item.type), this.logFileTimestamp() + ".txt"), item.lines,
-                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+            log.channel.close();
         } catch (IOException ex) {
-            RollbarProvider.instance().error(ex, Collections.singletonMap("LogItem", item));
             ex.printStackTrace(System.err);
         }
-        this.subscription.request(1);
     }
 
     @Override
@@ -99,7 +287,63 @@ public final class Logger extends SubmissionPublisher<Logger.LogItem> implements
 
     @Override
     public void onComplete() {
+        this.flush();
+        this.closeChannels();
         this.close();
+        this.completed.countDown();
+    }
+
+    /**
+     * Writes all queued lines, closes the log files, and stops the writer thread
+     * <p>
+     * Lines logged after this is called are discarded
+     */
+    public void shutdown() {
+        if (this.isClosed()) {
+            return;
+        }
+
+        this.close();
+        try {
+            this.completed.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.executor.shutdown();
+    }
+
+    /**
+     * The number of log items which were dropped because the queue was full
+     *
+     * @return the number of dropped items
+     */
+    public long dropped() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * An estimate of the number of log items waiting to be written
+     *
+     * @return the number of queued items
+     */
+    public int queued() {
+        return this.estimateMaximumLag();
+    }
+
+    /**
+     * Returns human-readable statistics for the log writer
+     *
+     * @return the statistics
+     */
+    public String stats() {
+        return String.format("Logger: mode=%s queued=%d capacity=%d dropped=%d lines=%d batches=%d errors=%d", this.batched ? "batched" : "direct",
+                this.queued(), this.getMaxBufferCapacity(), this.dropped(), this.written.sum(), this.batches.sum(), this.errors.sum());
+    }
+
+    /**
+     * An open log file
+     */
+    private record OpenLog(Path path, FileChannel channel) {
     }
 
     public final class LogItem {
@@ -136,8 +380,10 @@ public final class Logger extends SubmissionPublisher<Logger.LogItem> implements
     }
 
     @SuppressWarnings("UseSpecificCatch")
-    private Logger() {
-        super();
+    private Logger(ScheduledThreadPoolExecutor executor) {
+        super(executor, QUEUE_CAPACITY);
+        this.executor = executor;
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
         this.zoneId = PhantomBot.getTimeZoneId();
 
         List<Boolean> success = new ArrayList<>();
@@ -154,16 +400,27 @@ public final class Logger extends SubmissionPublisher<Logger.LogItem> implements
         });
 
         this.pathsCreated = !success.contains(Boolean.FALSE);
+        this.executor.scheduleWithFixedDelay(this::tick, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
     }
 
     @Handler
     public void onPropertiesLoadedEvent(PropertiesLoadedEvent event) {
         this.zoneId = PhantomBot.getTimeZoneId();
+        this.updateMode();
     }
 
     @Handler
     public void onPropertiesReloadedEvent(PropertiesReloadedEvent event) {
         this.zoneId = PhantomBot.getTimeZoneId();
+        this.updateMode();
+    }
+
+    private void updateMode() {
+        /**
+         * @botproperty logbatched - If `true`, log lines are written in batches to log files which are kept open, and are dropped instead of delaying the caller if the log queue is full. If `false`, each line is appended by opening and closing the log file. Default `true`
+         * @botpropertycatsort logbatched 70 50 Misc
+         */
+        this.batched = CaselessProperties.instance().getPropertyAsBoolean("logbatched", true);
     }
 
     public void log(LogType type, String lines) {
@@ -171,7 +428,7 @@ public final class Logger extends SubmissionPublisher<Logger.LogItem> implements
             return;
         }
 
-        this.submit(new LogItem(type, lines));
+        this.publish(new LogItem(type, lines));
     }
 
     public void log(LogType type, List<String> lines) {
@@ -179,7 +436,26 @@ public final class Logger extends SubmissionPublisher<Logger.LogItem> implements
             return;
         }
 
-        this.submit(new LogItem(type, lines));
+        this.publish(new LogItem(type, lines));
+    }
+
+    private void publish(LogItem item) {
+        if (this.isClosed()) {
+            return;
+        }
+
+        try {
+            if (this.batched) {
+                this.offer(item, (s, i) -> {
+                    this.dropped.increment();
+                    return false;
+                });
+            } else {
+                this.submit(item);
+            }
+        } catch (IllegalStateException ex) {
+            // Closed concurrently during shutdown
+        }
     }
 
     public static DateTimeFormatter getLogTimestampFormatter() {
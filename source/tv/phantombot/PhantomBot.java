@@ -38,16 +38,16 @@ import org.apache.commons.io.filefilter.WildcardFileFilter;
 import org.apache.commons.lang3.SystemUtils;
 import org.json.JSONException;
 
+import com.gmt2001.JSFileSystem;
 import com.gmt2001.PathValidator;
 import com.gmt2001.RollbarProvider;
 import com.gmt2001.TwitchAPIv5;
 import com.gmt2001.datastore.DataStore;
+import com.gmt2001.datastore.DataStoreCache;
 import com.gmt2001.datastore.DataStoreConverter;
-import com.gmt2001.datastore.H2Store;
-import com.gmt2001.datastore.MariaDBStore;
-import com.gmt2001.datastore.MySQLStore;
 import com.gmt2001.datastore.SqliteStore;
 import com.gmt2001.datastore2.Datastore2;
+import com.gmt2001.dns.EventLoopRegistry;
 import com.gmt2001.httpclient.HttpClient;
 import com.gmt2001.httpclient.URIUtil;
 import com.gmt2001.httpwsserver.HTTPWSServer;
@@ -61,6 +61,7 @@ import com.gmt2001.util.Reflect;
 import com.gmt2001.util.RestartRunner;
 import com.gmt2001.util.concurrent.ExecutorService;
 import com.illusionaryone.GitHubAPIv3;
+import com.illusionaryone.Logger;
 import com.illusionaryone.StreamLabsAPI;
 import com.illusionaryone.YouTubeAPIv3;
 import com.scaniatv.CustomAPI;
@@ -73,6 +74,7 @@ import tv.phantombot.CaselessProperties.Transaction;
 import tv.phantombot.cache.DonationsCache;
 import tv.phantombot.cache.EmotesCache;
 import tv.phantombot.cache.FollowersCache;
+import tv.phantombot.cache.PermissionService;
 import tv.phantombot.cache.StreamElementsCache;
 import tv.phantombot.cache.TipeeeStreamCache;
 import tv.phantombot.cache.TwitchCache;
@@ -102,6 +104,7 @@ import tv.phantombot.script.Script;
 import tv.phantombot.script.ScriptEventManager;
 import tv.phantombot.script.ScriptFileWatcher;
 import tv.phantombot.script.ScriptManager;
+import tv.phantombot.scripts.core.WordCounterService;
 import tv.phantombot.twitch.api.Helix;
 import tv.phantombot.twitch.api.TwitchValidate;
 import tv.phantombot.twitch.irc.TwitchSession;
@@ -342,27 +345,13 @@ public final class PhantomBot implements Listener {
         Datastore2.init();
         String oldds = CaselessProperties.instance().getProperty("datastore", "h2store").toLowerCase();
         if (!oldds.startsWith("sqlite")) {
-            if (DataStore.instance().GetFileList().length == 0 && SqliteStore.hasDatabase(CaselessProperties.instance().getProperty("datastoreconfig", ""))
+            if ((DataStore.instance().GetFileList().length == 0 || DataStoreConverter.isIncomplete())
+                && SqliteStore.hasDatabase(CaselessProperties.instance().getProperty("datastoreconfig", ""))
                 && SqliteStore.isAvailable(CaselessProperties.instance().getProperty("datastoreconfig", ""))
                 && SqliteStore.instance().GetFileList().length > 0) {
-                    if (oldds.startsWith("mysql")) {
-                        String mySqlConn;
-                        if (CaselessProperties.instance().getProperty("mysqlport", "").isEmpty()) {
-                            mySqlConn = "jdbc:mysql://" + CaselessProperties.instance().getProperty("mysqlhost", "") + "/" + CaselessProperties.instance().getProperty("mysqlname", "") + "?useSSL=" + (CaselessProperties.instance().getPropertyAsBoolean("mysqlssl", false) ? "true" : "false") + "&user=" + CaselessProperties.instance().getProperty("mysqluser", "") + "&password=" + CaselessProperties.instance().getProperty("mysqlpass", "");
-                        } else {
-                            mySqlConn = "jdbc:mysql://" + CaselessProperties.instance().getProperty("mysqlhost", "") + ":" + CaselessProperties.instance().getProperty("mysqlport", "") + "/" + CaselessProperties.instance().getProperty("mysqlname", "") + "?useSSL=" + (CaselessProperties.instance().getPropertyAsBoolean("mysqlssl", false) ? "true" : "false") + "&user=" + CaselessProperties.instance().getProperty("mysqluser", "") + "&password=" + CaselessProperties.instance().getProperty("mysqlpass", "");
-                        }
-                        DataStoreConverter.convertDataStore(MySQLStore.instance(mySqlConn), SqliteStore.instance());
-                    } else if (oldds.startsWith("mariadb")) {
-                        String mariaDBConn;
-                        if (CaselessProperties.instance().getProperty("mysqlport", "").isEmpty()) {
-                            mariaDBConn = "jdbc:mariadb://" + CaselessProperties.instance().getProperty("mysqlhost", "") + "/" + CaselessProperties.instance().getProperty("mysqlname", "") + "?useSSL=" + (CaselessProperties.instance().getPropertyAsBoolean("mysqlssl", false) ? "true" : "false") + "&user=" + CaselessProperties.instance().getProperty("mysqluser", "") + "&password=" + CaselessProperties.instance().getProperty("mysqlpass", "");
-                        } else {
-                            mariaDBConn = "jdbc:mariadb://" + CaselessProperties.instance().getProperty("mysqlhost", "") + ":" + CaselessProperties.instance().getProperty("mysqlport", "") + "/" + CaselessProperties.instance().getProperty("mysqlname", "") + "?useSSL=" + (CaselessProperties.instance().getPropertyAsBoolean("mysqlssl", false) ? "true" : "false") + "&user=" + CaselessProperties.instance().getProperty("mysqluser", "") + "&password=" + CaselessProperties.instance().getProperty("mysqlpass", "");
-                        }
-                        DataStoreConverter.convertDataStore(MariaDBStore.instance(mariaDBConn), SqliteStore.instance());
-                    } else if (oldds.startsWith("h2")) {
-                        DataStoreConverter.convertDataStore(H2Store.instance(CaselessProperties.instance().getProperty("datastoreconfig", "")), SqliteStore.instance());
+                    DataStore destination = DataStoreConverter.legacyDestination();
+                    if (destination != null) {
+                        DataStoreConverter.convertDataStore(destination, SqliteStore.instance());
                     }
                 }
         }
@@ -909,6 +898,7 @@ public final class PhantomBot implements Listener {
         this.twitchCache = TwitchCache.instance();
         Script.global.defineProperty("twitchcache", this.twitchCache, 0);
         Script.global.defineProperty("viewer", ViewerCache.instance(), 0);
+        Script.global.defineProperty("permission", PermissionService.instance(), 0);
 
         /* And finally try to load init, that will then load the scripts */
         try {
@@ -1007,6 +997,7 @@ public final class PhantomBot implements Listener {
         scripts.entrySet().forEach((script) -> {
             script.getValue().kill();
         });
+        JSFileSystem.CloseAll();
 
         /* Check to see if web is enabled */
         if (CaselessProperties.instance().getPropertyAsBoolean("webenable", true)) {
@@ -1026,6 +1017,8 @@ public final class PhantomBot implements Listener {
 
         com.gmt2001.Console.out.print("\r\n");
         this.print("Closing the database...");
+        WordCounterService.instance().flush();
+        DataStoreCache.instance().shutdown();
         Datastore2.instance().dispose();
 
         CaselessProperties.instance().store(false);
@@ -1044,9 +1037,11 @@ public final class PhantomBot implements Listener {
             com.gmt2001.Console.err.printStackTrace(ex);
         }
 
+        EventLoopRegistry.shutdown();
         ExecutorService.shutdown();
 
         this.print(this.getBotName() + " is exiting.");
+        Logger.instance().shutdown();
     }
 
     @Handler
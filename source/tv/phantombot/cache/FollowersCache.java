@@ -101,7 +101,7 @@ public final class FollowersCache {
             return;
         }
 
-        Helix.instance().getChannelFollowersAsync(null, 100, after).doOnSuccess(jso -> {
+        Helix.background(() -> Helix.instance().getChannelFollowersAsync(null, 100, after)).doOnSuccess(jso -> {
             if (!jso.has("status")) {
                 this.total = jso.optInt("total");
                 JSONArray jsa = jso.getJSONArray("data");
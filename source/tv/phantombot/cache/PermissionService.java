@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.cache;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.util.concurrent.KeyVersions;
+
+import tv.phantombot.CaselessProperties;
+import tv.phantombot.PhantomBot;
+
+/**
+ * Resolves the permission group of users, caching the result of the {@code group} table and the moderator, subscriber, and VIP lists
+ * <p>
+ * The cached group of a user is invalidated whenever their row in the {@code group} table is written, or they are added to or removed from
+ * one of the lists. Tags are applied on top of the cached group on each call, since they may only raise the permission of a user
+ * <p>
+ * A lookup which raced an invalidation of the same user is returned but not cached, and every entry expires after {@code permissioncachettl}
+ * seconds in case a change to the database bypassed the write listener
+ * <p>
+ * In scripts, this is available as {@code $.permission}, and backs the functions exported by {@code permissions.js}
+ */
+public final class PermissionService {
+
+    public static final int CASTER = 0;
+    public static final int ADMIN = 1;
+    public static final int MOD = 2;
+    public static final int DONATOR = 4;
+    public static final int REGULAR = 6;
+    public static final int VIEWER = 7;
+    public static final int NONE = 99;
+    /**
+     * The number of users in each cache before it is cleared, to bound memory use in very large channels
+     */
+    private static final int MAX_CACHED = 100000;
+    private static final PermissionService INSTANCE = new PermissionService();
+    private final Set<String> moderators = ConcurrentHashMap.newKeySet();
+    private final Set<String> subscribers = ConcurrentHashMap.newKeySet();
+    private final Set<String> vips = ConcurrentHashMap.newKeySet();
+    /**
+     * The value of the {@code group} table for each user
+     */
+    private final Map<String, Cached> dbGroups = new ConcurrentHashMap<>();
+    /**
+     * The group of each user, without tags
+     */
+    private final Map<String, Cached> groups = new ConcurrentHashMap<>();
+    /**
+     * Versions of each user, bumped whenever their cached groups are invalidated
+     */
+    private final KeyVersions versions = new KeyVersions();
+    private volatile int sub = 3;
+    private volatile int vip = 5;
+
+    /**
+     * Provides an instance of {@link PermissionService}
+     *
+     * @return an instance of {@link PermissionService}
+     */
+    public static PermissionService instance() {
+        return INSTANCE;
+    }
+
+    private PermissionService() {
+        DataStore.instance().addWriteListener("group", key -> {
+            if (key == null) {
+                this.invalidateAll();
+            } else {
+                this.invalidate(key);
+            }
+        });
+    }
+
+    /**
+     * Sets the group ids of the subscriber and VIP groups, which are swappable
+     *
+     * @param sub the group id of subscribers
+     * @param vip the group id of VIPs
+     */
+    public void setSubVIPIds(int sub, int vip) {
+        if (this.sub != sub || this.vip != vip) {
+            this.sub = sub;
+            this.vip = vip;
+            this.invalidateAll();
+        }
+    }
+
+    /**
+     * Returns the lowest group id of a user. A lower group id indicates a higher level of permissions
+     *
+     * @param username the login name of the user
+     * @param tags the IRCv3 tags of a message sent by the user, if available; otherwise {@code null}
+     * @return the group id
+     */
+    public int getUserGroupId(String username, Object tags) {
+        String user = username.toLowerCase(Locale.ROOT);
+        int id = this.cached(this.groups, user, this::resolve);
+
+        if (id > MOD && tags instanceof Map<?, ?> map) {
+            Object userType = map.get("user-type");
+            if ((userType != null && !userType.toString().isEmpty()) || "1".equals(String.valueOf(map.get("mod")))) {
+                return MOD;
+            }
+
+            if (id > this.sub && "1".equals(String.valueOf(map.get("subscriber")))) {
+                id = this.sub;
+            }
+
+            if (id > this.vip && map.containsKey("vip")) {
+                id = this.vip;
+            }
+        }
+
+        return id;
+    }
+
+    /**
+     * Returns the lowest group id of a user, without considering tags
+     *
+     * @param username the login name of the user
+     * @return the group id
+     */
+    public int getUserGroupId(String username) {
+        return this.getUserGroupId(username, null);
+    }
+
+    /**
+     * Returns the group id of a user in the {@code group} table
+     *
+     * @param username the login name of the user
+     * @return the group id; {@link #NONE} if the user is not in the table
+     */
+    public int queryDBPermission(String username) {
+        return this.cached(this.dbGroups, username.toLowerCase(Locale.ROOT), user -> (int) DataStore.instance().GetLong("group", "", user, NONE));
+    }
+
+    /**
+     * Returns the cached group id of a user, loading and caching it if missing or expired
+     * <p>
+     * The loaded value is only cached if the user was not invalidated while it was loading, so a demotion which raced the
+     * lookup is not lost
+     *
+     * @param cache the cache
+     * @param user the lowercase login name of the user
+     * @param loader the function which loads the group id
+     * @return the group id
+     */
+    private int cached(Map<String, Cached> cache, String user, Function<String, Integer> loader) {
+        long now = System.nanoTime();
+        Cached current = cache.get(user);
+
+        if (current != null && now - current.expires() < 0L) {
+            return current.id();
+        }
+
+        if (cache.size() >= MAX_CACHED && current == null) {
+            cache.clear();
+        }
+
+        long stamp = this.versions.stamp(user);
+        int id = loader.apply(user);
+        /**
+         * @botproperty permissioncachettl - The number of seconds the permission group of a user is cached before it is read from the database again. Default `300`
+         * @botpropertycatsort permissioncachettl 80 50 Misc
+         */
+        long ttl = TimeUnit.SECONDS.toNanos(Math.max(1L, CaselessProperties.instance().getPropertyAsLong("permissioncachettl", 300L)));
+        Cached loaded = new Cached(id, System.nanoTime() + ttl);
+        cache.compute(user, (k, cur) -> (cur == null || cur == current) && this.versions.unchanged(k, stamp) ? loaded : cur);
+
+        return id;
+    }
+
+    /**
+     * Resolves the group id of a user from the {@code group} table and the lists, without considering tags
+     *
+     * @param user the lowercase login name of the user
+     * @return the group id
+     */
+    private int resolve(String user) {
+        String botName = PhantomBot.instance().getBotName();
+        String channelName = PhantomBot.instance().getChannelName();
+        String ownerName = CaselessProperties.instance().getProperty("owner", channelName);
+
+        if (user.equalsIgnoreCase(ownerName) || user.equalsIgnoreCase(botName)) {
+            return CASTER;
+        }
+
+        int db = this.queryDBPermission(user);
+
+        if (db == CASTER || user.equalsIgnoreCase(channelName)) {
+            return CASTER;
+        } else if (db <= ADMIN) {
+            return ADMIN;
+        } else if (db <= MOD || this.moderators.contains(user)) {
+            return MOD;
+        }
+
+        int id = VIEWER;
+
+        if (db == REGULAR) {
+            id = REGULAR;
+        }
+
+        if (db == this.vip || this.vips.contains(user)) {
+            id = Math.min(id, this.vip);
+        }
+
+        if (db == DONATOR) {
+            id = Math.min(id, DONATOR);
+        }
+
+        if (db == this.sub || this.subscribers.contains(user)) {
+            id = Math.min(id, this.sub);
+        }
+
+        return id;
+    }
+
+    /**
+     * Removes the cached groups of a user
+     *
+     * @param username the login name of the user
+     */
+    public void invalidate(String username) {
+        String user = username.toLowerCase(Locale.ROOT);
+        this.versions.bump(user);
+        this.dbGroups.remove(user);
+        this.groups.remove(user);
+    }
+
+    /**
+     * Removes the cached groups of all users
+     */
+    public void invalidateAll() {
+        this.versions.bumpAll();
+        this.dbGroups.clear();
+        this.groups.clear();
+    }
+
+    /**
+     * Adds a user to a list, invalidating their cached group if the list changed
+     *
+     * @param list the list
+     * @param username the login name of the user
+     * @return {@code true} if the user was not already in the list
+     */
+    private boolean add(Set<String> list, String username) {
+        String user = username.toLowerCase(Locale.ROOT);
+        if (list.add(user)) {
+            this.versions.bump(user);
+            this.groups.remove(user);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes a user from a list, invalidating their cached group if the list changed
+     *
+     * @param list the list
+     * @param username the login name of the user
+     * @return {@code true} if the user was in the list
+     */
+    private boolean remove(Set<String> list, String username) {
+        String user = username.toLowerCase(Locale.ROOT);
+        if (list.remove(user)) {
+            this.versions.bump(user);
+            this.groups.remove(user);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates if the user is in the moderator list
+     *
+     * @param username the login name of the user
+     * @return {@code true} if in the list
+     */
+    public boolean isModerator(String username) {
+        return this.moderators.contains(username.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Adds a user to the moderator list
+     *
+     * @param username the login name of the user
+     * @return {@code true} if the user was not already in the list
+     */
+    public boolean addModerator(String username) {
+        return this.add(this.moderators, username);
+    }
+
+    /**
+     * Removes a user from the moderator list
+     *
+     * @param username the login name of the user
+     * @return {@code true} if the user was in the list
+     */
+    public boolean removeModerator(String username) {
+        return this.remove(this.moderators, username);
+    }
+
+    /**
+     * Indicates if the user is in the subscriber list
+     *
+     * @param username the login name of the user
+     * @return {@code true} if in the list
+     */
+    public boolean isSubscriber(String username) {
+        return this.subscribers.contains(username.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Adds a user to the subscriber list
+     *
+     * @param username the login name of the user
+     * @return {@code true} if the user was not already in the list
+     */
+    public boolean addSubscriber(String username) {
+        return this.add(this.subscribers, username);
+    }
+
+    /**
+     * Removes a user from the subscriber list
+     *
+     * @param username the login name of the user
+     * @return {@code true} if the user was in the list
+     */
+    public boolean removeSubscriber(String username) {
+        return this.remove(this.subscribers, username);
+    }
+
+    /**
+     * Returns the subscriber list
+     *
+     * @return an unmodifiable live view of the subscriber list
+     */
+    public Set<String> subscribers() {
+        return Collections.unmodifiableSet(this.subscribers);
+    }
+
+    /**
+     * Indicates if the user is in the VIP list
+     *
+     * @param username the login name of the user
+     * @return {@code true} if in the list
+     */
+    public boolean isVIP(String username) {
+        return this.vips.contains(username.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Adds a user to the VIP list
+     *
+     * @param username the login name of the user
+     * @return {@code true} if the user was not already in the list
+     */
+    public boolean addVIP(String username) {
+        return this.add(this.vips, username);
+    }
+
+    /**
+     * Removes a user from the VIP list
+     *
+     * @param username the login name of the user
+     * @return {@code true} if the user was in the list
+     */
+    public boolean removeVIP(String username) {
+        return this.remove(this.vips, username);
+    }
+
+    /**
+     * A cached group id
+     *
+     * @param id the group id
+     * @param expires the {@link System#nanoTime()} at which the entry expires
+     */
+    private record Cached(int id, long expires) {
+    }
+}
@@ -181,9 +181,10 @@ public final class TwitchCache implements Listener {
             start = ZonedDateTime.ofInstant(Instant.now().minus(1, ChronoUnit.DAYS), ZoneId.systemDefault());
         }
 
-        start = start.withSecond(0);
+        final ZonedDateTime startedAt = start.withSecond(0);
 
-        Helix.instance().getClipsAsync(null, ViewerCache.instance().broadcaster().id(), null, 100, null, null, start, start.plusDays(1))
+        Helix.background(() -> Helix.instance().getClipsAsync(null, ViewerCache.instance().broadcaster().id(), null, 100, null, null, startedAt,
+                startedAt.plusDays(1)))
                 .doOnSuccess(jso -> {
                     if (jso != null && !jso.has("error") && jso.has("data") && !jso.isNull("data")) {
                         ZonedDateTime newLatestClip = this.latestClip;
@@ -241,7 +242,7 @@ public final class TwitchCache implements Listener {
      * @botpropertycatsort offlinetimeout 210 20 Twitch
      */
     private void updateCache() {
-        Helix.instance().getStreamsAsync(1, null, null, List.of(ViewerCache.instance().broadcaster().id()), null, null, null)
+        Helix.background(() -> Helix.instance().getStreamsAsync(1, null, null, List.of(ViewerCache.instance().broadcaster().id()), null, null, null))
             .doOnSuccess(jso -> {
                 if (jso != null && !jso.has("error") && jso.has("data") && !jso.isNull("data")) {
                     boolean isOnlinen = jso.getJSONArray("data").length() > 0;
@@ -34,9 +34,18 @@ import org.json.JSONObject;
 
 import com.gmt2001.HttpRequest;
 import com.gmt2001.HttpResponse;
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.datastore.DataStoreCache;
+import com.gmt2001.datastore.DataStoreConverter;
+import com.gmt2001.datastore.SqliteStore;
+import com.gmt2001.dns.EventLoopRegistry;
+import com.gmt2001.httpclient.HttpClient;
+import com.gmt2001.datastore2.Datastore2;
+import com.gmt2001.datastore2.StatementCache;
 import com.gmt2001.twitch.tmi.TwitchMessageInterface;
 import com.gmt2001.util.GamesListUpdater;
 import com.gmt2001.util.Reflect;
+import com.illusionaryone.Logger;
 
 import net.engio.mbassy.listener.Handler;
 import tv.phantombot.CaselessProperties;
@@ -62,6 +71,9 @@ import tv.phantombot.event.twitch.subscriber.TwitchSubscriberEvent;
 import tv.phantombot.event.twitch.subscriber.TwitchSubscriptionGiftEvent;
 import tv.phantombot.panel.PanelUser.PanelUserHandler;
 import tv.phantombot.script.Script;
+import tv.phantombot.script.ScriptEventManager;
+import tv.phantombot.script.ScriptEventStats;
+import tv.phantombot.twitch.api.Helix;
 
 public final class ConsoleEventHandler implements Listener {
 
@@ -308,6 +320,123 @@ public final class ConsoleEventHandler implements Listener {
             return;
         }
 
+        /**
+         * @consolecommand convertdatastore (status) - Converts the old SQLite database into the configured MySQL, MariaDB, or H2 datastore in the background, replacing matching rows, or prints the progress of the running conversion.
+         */
+        if (message.equalsIgnoreCase("convertdatastore")) {
+            com.gmt2001.Console.out.println("[CONSOLE] Executing convertdatastore");
+            if (DataStoreConverter.isRunning() || (argument != null && argument[0].equalsIgnoreCase("status"))) {
+                String status = DataStoreConverter.status();
+                com.gmt2001.Console.out.println(status == null ? "A datastore conversion is not running" : status);
+                return;
+            }
+
+            if (CaselessProperties.instance().getProperty("datastore", "h2store").toLowerCase().startsWith("sqlite") || !SqliteStore.hasDatabase(CaselessProperties.instance().getProperty("datastoreconfig", ""))
+                    || !SqliteStore.isAvailable(CaselessProperties.instance().getProperty("datastoreconfig", ""))) {
+                com.gmt2001.Console.out.println("There is no old SQLite database to convert into the configured datastore");
+                return;
+            }
+
+            Thread thread = new Thread(() -> DataStoreConverter.convertDataStore(DataStore.instance(), SqliteStore.instance(), false), "DataStoreConverter");
+            thread.setUncaughtExceptionHandler(com.gmt2001.UncaughtExceptionHandler.instance());
+            thread.start();
+            return;
+        }
+
+        /**
+         * @consolecommand datastorecachestats - Prints the hit/miss/flush statistics of the datastore cache and the prepared statement cache.
+         */
+        if (message.equalsIgnoreCase("datastorecachestats")) {
+            com.gmt2001.Console.out.println("[CONSOLE] Executing datastorecachestats");
+            if (!DataStoreCache.instance().isEnabled()) {
+                com.gmt2001.Console.out.println("The datastore cache is not enabled");
+            } else {
+                DataStoreCache.instance().stats().forEach(com.gmt2001.Console.out::println);
+            }
+            com.gmt2001.Console.out.println(Datastore2.instance().statementCache().map(StatementCache::stats).orElse("The statement cache is not enabled"));
+            return;
+        }
+
+        /**
+         * @consolecommand eventstats (reset) - Prints the invocation count and latency histogram of each event handler and JS hook, or resets them.
+         */
+        if (message.equalsIgnoreCase("eventstats")) {
+            com.gmt2001.Console.out.println("[CONSOLE] Executing eventstats");
+            if (argument != null && argument.length > 0 && argument[0].equalsIgnoreCase("reset")) {
+                ScriptEventManager.instance().resetStats();
+                com.gmt2001.Console.out.println("Event handler statistics have been reset");
+            } else {
+                List<ScriptEventStats> stats = ScriptEventManager.instance().getStats();
+                if (stats.isEmpty()) {
+                    com.gmt2001.Console.out.println("No event handlers have been invoked");
+                } else {
+                    stats.forEach(s -> com.gmt2001.Console.out.println(s.toString()));
+                }
+            }
+            return;
+        }
+
+        /**
+         * @consolecommand eventbusstats - Prints the queue depth and latency statistics of the prioritized event dispatcher.
+         */
+        if (message.equalsIgnoreCase("eventbusstats")) {
+            com.gmt2001.Console.out.println("[CONSOLE] Executing eventbusstats");
+            List<String> stats = EventBus.instance().queueStats();
+            if (stats.isEmpty()) {
+                com.gmt2001.Console.out.println("The prioritized event dispatcher is not enabled");
+            } else {
+                stats.forEach(com.gmt2001.Console.out::println);
+            }
+            return;
+        }
+
+        /**
+         * @consolecommand httpstats - Prints the connection pool statistics of the outbound HTTP client.
+         */
+        if (message.equalsIgnoreCase("httpstats")) {
+            com.gmt2001.Console.out.println("[CONSOLE] Executing httpstats");
+            HttpClient.poolStats().forEach(com.gmt2001.Console.out::println);
+            return;
+        }
+
+        /**
+         * @consolecommand eventloopstats - Prints the pending task count and task latency of each thread of the shared network event loop.
+         */
+        if (message.equalsIgnoreCase("eventloopstats")) {
+            com.gmt2001.Console.out.println("[CONSOLE] Executing eventloopstats");
+            EventLoopRegistry.stats().forEach(com.gmt2001.Console.out::println);
+            return;
+        }
+
+        /**
+         * @consolecommand chatqueuestats - Prints the depth, drop, and queue age statistics of each priority lane of the outbound chat queue.
+         */
+        if (message.equalsIgnoreCase("chatqueuestats")) {
+            com.gmt2001.Console.out.println("[CONSOLE] Executing chatqueuestats");
+            if (PhantomBot.instance().getSession() != null) {
+                PhantomBot.instance().getSession().stats().forEach(com.gmt2001.Console.out::println);
+            }
+            return;
+        }
+
+        /**
+         * @consolecommand helixstats - Prints the queue depth, in-flight count, and wait time statistics of the Helix request scheduler.
+         */
+        if (message.equalsIgnoreCase("helixstats")) {
+            com.gmt2001.Console.out.println("[CONSOLE] Executing helixstats");
+            Helix.instance().schedulerStats().forEach(com.gmt2001.Console.out::println);
+            return;
+        }
+
+        /**
+         * @consolecommand logstats - Prints the queue depth and write statistics of the log writer.
+         */
+        if (message.equalsIgnoreCase("logstats")) {
+            com.gmt2001.Console.out.println("[CONSOLE] Executing logstats");
+            com.gmt2001.Console.out.println(Logger.instance().stats());
+            return;
+        }
+
         /**
          * @consolecommand jointest (userName) - Sends 30 fake join events or one specific user for testing.
          */
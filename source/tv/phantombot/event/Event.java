@@ -20,4 +20,13 @@ package tv.phantombot.event;
  * Base class for all events that are sent via {@link EventBus}
  */
 public abstract class Event {
+
+    /**
+     * The priority of this event when dispatched asynchronously
+     *
+     * @return the priority
+     */
+    public EventPriority priority() {
+        return EventPriority.NORMAL;
+    }
 }
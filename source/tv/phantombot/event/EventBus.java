@@ -16,11 +16,18 @@
  */
 package tv.phantombot.event;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
 import net.engio.mbassy.bus.MBassador;
 import net.engio.mbassy.bus.config.BusConfiguration;
 import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.bus.config.IBusConfiguration;
+import tv.phantombot.CaselessProperties;
 import tv.phantombot.PhantomBot;
 import tv.phantombot.event.jvm.JVMEvent;
+import tv.phantombot.script.ScriptEventManager;
 
 /**
  * Sends events to downstream subscribers
@@ -33,10 +40,16 @@ import tv.phantombot.event.jvm.JVMEvent;
  * The event bus will deliver each event to all subscribers of the matching event class, as well as subscribers of any event class in
  * the parent chain going back up to the {@link Event} base class. For example: subscribing to {@link JVMEvent} will receive all
  * events in the {@code tv.phantombot.event.jvm} package, as it is the base event for the package
+ * <p>
+ * Events which have no Java subscribers other than {@link ScriptEventManager}, and no script handlers, are dropped before being
+ * handed to the bus
+ * <p>
+ * If the {@code eventbusprioritized} property is enabled, {@link #postAsync(Event)} instead places events into bounded queues for each
+ * {@link EventPriority}, which are drained by a dedicated dispatcher pool in priority order
  */
 public final class EventBus {
     private static final EventBus instance = new EventBus();
-    private static final MBassador<Event> bus = new MBassador<>(new BusConfiguration().addFeature(Feature.SyncPubSub.Default())
+    private static final Bus bus = new Bus(new BusConfiguration().addFeature(Feature.SyncPubSub.Default())
             .addFeature(Feature.AsynchronousHandlerInvocation.Default()).addFeature(Feature.AsynchronousMessageDispatch.Default()
             .setNumberOfMessageDispatchers(10)).addPublicationErrorHandler(new ExceptionHandler()));
 
@@ -63,6 +76,7 @@ public final class EventBus {
      */
     public void register(Listener listener) {
         bus.subscribe(listener);
+        bus.subscribed.clear();
     }
 
     /**
@@ -72,6 +86,17 @@ public final class EventBus {
      */
     public void unregister(Listener listener) {
         bus.unsubscribe(listener);
+        bus.subscribed.clear();
+    }
+
+    /**
+     * Indicates if anything will receive the event
+     *
+     * @param event the event
+     * @return {@code true} if a script handler or a Java subscriber other than {@link ScriptEventManager} will receive the event
+     */
+    private static boolean hasSubscribers(Event event) {
+        return ScriptEventManager.instance().hasHandlers(event.getClass()) || bus.hasJavaSubscribers(event.getClass());
     }
 
     /**
@@ -82,7 +107,7 @@ public final class EventBus {
      * @param event An event to publish
      */
     public void post(Event event) {
-        if (PhantomBot.isInExitState()) {
+        if (PhantomBot.isInExitState() || !hasSubscribers(event)) {
             return;
         }
 
@@ -95,10 +120,85 @@ public final class EventBus {
      * @param event An event to publish
      */
     public void postAsync(Event event) {
-        if (PhantomBot.isInExitState()) {
+        if (PhantomBot.isInExitState() || !hasSubscribers(event)) {
             return;
         }
 
-        bus.publishAsync(event);
+        PrioritizedEventDispatcher dispatcher = DispatcherHolder.DISPATCHER;
+        if (dispatcher != null) {
+            dispatcher.post(event);
+        } else {
+            bus.publishAsync(event);
+        }
+    }
+
+    /**
+     * Returns queue depth and latency statistics for the prioritized dispatcher
+     *
+     * @return the statistics; an empty list if the prioritized dispatcher is not enabled
+     */
+    public List<String> queueStats() {
+        PrioritizedEventDispatcher dispatcher = DispatcherHolder.DISPATCHER;
+        return dispatcher == null ? Collections.emptyList() : dispatcher.stats();
+    }
+
+    /**
+     * Lazily creates the prioritized dispatcher on first use, after the bot properties have been loaded
+     */
+    private static final class DispatcherHolder {
+        private static final PrioritizedEventDispatcher DISPATCHER = create();
+
+        private static PrioritizedEventDispatcher create() {
+            /**
+             * @botproperty eventbusprioritized - If `true`, asynchronously posted events are dispatched from bounded queues in priority order, so that moderation and commands do not wait behind other events. Default `false`
+             * @botpropertycatsort eventbusprioritized 600 50 Misc
+             * @botpropertyrestart eventbusprioritized
+             */
+            if (!CaselessProperties.instance().getPropertyAsBoolean("eventbusprioritized", false)) {
+                return null;
+            }
+
+            /**
+             * @botproperty eventbusqueuesize - The maximum number of events waiting in the priority queues of the prioritized event dispatcher, across all priorities. Default `10000`
+             * @botpropertycatsort eventbusqueuesize 610 50 Misc
+             * @botpropertyrestart eventbusqueuesize
+             */
+            int capacity = Math.max(1, CaselessProperties.instance().getPropertyAsInt("eventbusqueuesize", 10000));
+            /**
+             * @botproperty eventbusoverflow - The action taken when the queues of the prioritized event dispatcher are full. `dropoldest` discards the oldest queued event of the lowest priority, `coalesce` discards the oldest queued event of the same type, `block` waits for space. High priority events are never discarded. Default `dropoldest`
+             * @botpropertycatsort eventbusoverflow 620 50 Misc
+             * @botpropertyrestart eventbusoverflow
+             */
+            PrioritizedEventDispatcher.OverflowPolicy policy = PrioritizedEventDispatcher.OverflowPolicy.parse(
+                CaselessProperties.instance().getProperty("eventbusoverflow", "dropoldest"));
+            /**
+             * @botproperty eventbusdispatchers - The number of dispatcher threads used by the prioritized event dispatcher. Default the number of processors, minimum `2`
+             * @botpropertycatsort eventbusdispatchers 630 50 Misc
+             * @botpropertyrestart eventbusdispatchers
+             */
+            int dispatchers = Math.max(1, CaselessProperties.instance().getPropertyAsInt("eventbusdispatchers",
+                Math.max(2, Runtime.getRuntime().availableProcessors())));
+
+            return new PrioritizedEventDispatcher(capacity, policy, dispatchers, bus::publish);
+        }
+    }
+
+    /**
+     * Message bus which can report whether an event class has Java subscribers
+     */
+    private static final class Bus extends MBassador<Event> {
+        /**
+         * Event class to whether it has subscribers other than {@link ScriptEventManager}; cleared whenever subscriptions change
+         */
+        private final ConcurrentHashMap<Class<?>, Boolean> subscribed = new ConcurrentHashMap<>();
+
+        private Bus(IBusConfiguration configuration) {
+            super(configuration);
+        }
+
+        private boolean hasJavaSubscribers(Class<?> eventClass) {
+            return this.subscribed.computeIfAbsent(eventClass, c -> this.getSubscriptionsByMessageType(c).stream()
+                .anyMatch(subscription -> !subscription.belongsTo(ScriptEventManager.class)));
+        }
     }
 }
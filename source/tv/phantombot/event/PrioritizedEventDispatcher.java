@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Dispatches asynchronously published events from per-{@link EventPriority} queues which share a bounded capacity
+ * <p>
+ * Dispatcher threads always take the oldest event from the highest priority non-empty queue, so moderation and commands never
+ * wait behind a backlog of lower priority events. When the queues are full, the configured {@link OverflowPolicy} is applied
+ * <p>
+ * Events are only ever discarded from the lowest priority which has any queued, and never at a higher priority than the event being
+ * posted. {@link EventPriority#HIGH} events are never discarded; if the queues are full of them, the capacity is exceeded and a
+ * warning is logged instead
+ */
+final class PrioritizedEventDispatcher {
+    /**
+     * Thread name prefix for dispatcher threads
+     */
+    private static final String THREAD_PREFIX = "EventBus-Dispatcher-";
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Consumer<Event> publisher;
+    private final Map<EventPriority, ArrayDeque<Queued>> queues = new EnumMap<>(EventPriority.class);
+    private final Map<EventPriority, PriorityStats> stats = new EnumMap<>(EventPriority.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private final Condition notFull = this.lock.newCondition();
+    private final List<Thread> dispatchers = new ArrayList<>();
+    /**
+     * The number of events in all queues
+     */
+    private int size = 0;
+    /**
+     * Set while {@link EventPriority#HIGH} events are queued beyond the capacity, to only warn once per episode
+     */
+    private boolean overCapacity = false;
+
+    /**
+     * The action to take when an event is posted to a full queue
+     */
+    enum OverflowPolicy {
+        /**
+         * Discard the oldest queued event of the lowest priority which is not higher than the posted event; if there is none,
+         * the posted event is discarded instead
+         */
+        DROP_OLDEST,
+        /**
+         * Discard the oldest queued event of the same class and priority, replacing it with the newer one; falls back to
+         * {@link #DROP_OLDEST} if no event of the same class is queued, or the event is {@link EventPriority#HIGH}
+         */
+        COALESCE,
+        /**
+         * Block the posting thread until space is available; falls back to {@link #DROP_OLDEST} when posting from a dispatcher thread,
+         * to avoid deadlock
+         */
+        BLOCK;
+
+        /**
+         * Parses a policy from a property value
+         *
+         * @param value the property value
+         * @return the policy; {@link #DROP_OLDEST} if the value is not recognized
+         */
+        static OverflowPolicy parse(String value) {
+            String normalized = value == null ? "" : value.trim().toUpperCase().replace('-', '_');
+
+            for (OverflowPolicy p : values()) {
+                if (p.name().equals(normalized) || p.name().replace("_", "").equals(normalized)) {
+                    return p;
+                }
+            }
+
+            return DROP_OLDEST;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param capacity the maximum number of events in all priority queues
+     * @param policy the overflow policy
+     * @param numDispatchers the number of dispatcher threads
+     * @param publisher the synchronous publisher which delivers an event to subscribers
+     */
+    PrioritizedEventDispatcher(int capacity, OverflowPolicy policy, int numDispatchers, Consumer<Event> publisher) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.publisher = publisher;
+
+        for (EventPriority priority : EventPriority.values()) {
+            this.queues.put(priority, new ArrayDeque<>());
+            this.stats.put(priority, new PriorityStats());
+        }
+
+        for (int i = 0; i < numDispatchers; i++) {
+            Thread t = new Thread(this::dispatchLoop, THREAD_PREFIX + i);
+            t.setDaemon(true);
+            t.setUncaughtExceptionHandler(com.gmt2001.UncaughtExceptionHandler.instance());
+            this.dispatchers.add(t);
+            t.start();
+        }
+    }
+
+    /**
+     * Queues an event for dispatch
+     *
+     * @param event the event
+     */
+    void post(Event event) {
+        EventPriority priority = event.priority() == null ? EventPriority.NORMAL : event.priority();
+        ArrayDeque<Queued> queue = this.queues.get(priority);
+        PriorityStats pstats = this.stats.get(priority);
+
+        this.lock.lock();
+        try {
+            if (this.size >= this.capacity) {
+                if (this.policy == OverflowPolicy.BLOCK && !Thread.currentThread().getName().startsWith(THREAD_PREFIX)) {
+                    pstats.blocked.increment();
+                    while (this.size >= this.capacity) {
+                        this.notFull.awaitUninterruptibly();
+                    }
+                } else if (this.policy == OverflowPolicy.COALESCE && priority != EventPriority.HIGH
+                        && this.removeOldestOfClass(queue, event.getClass())) {
+                    pstats.coalesced.increment();
+                    this.size--;
+                } else if (!this.dropLowest(priority)) {
+                    if (priority != EventPriority.HIGH) {
+                        pstats.dropped.increment();
+                        return;
+                    }
+
+                    if (!this.overCapacity) {
+                        this.overCapacity = true;
+                        com.gmt2001.Console.warn.println("EventBus queues are full of HIGH priority events; exceeding the capacity of "
+                            + this.capacity + " instead of dropping them");
+                    }
+                }
+            }
+
+            queue.addLast(new Queued(event, System.nanoTime()));
+            this.size++;
+            pstats.enqueued.increment();
+            pstats.peakDepth.accumulateAndGet(queue.size(), Math::max);
+            this.notEmpty.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Discards the oldest queued event of the lowest priority which has any queued, if that priority is not higher than the posted
+     * event and is not {@link EventPriority#HIGH}
+     *
+     * @param priority the priority of the posted event
+     * @return {@code true} if an event was discarded
+     */
+    private boolean dropLowest(EventPriority priority) {
+        EventPriority[] priorities = EventPriority.values();
+
+        for (int i = priorities.length - 1; i >= priority.ordinal() && priorities[i] != EventPriority.HIGH; i--) {
+            if (this.queues.get(priorities[i]).pollFirst() != null) {
+                this.stats.get(priorities[i]).dropped.increment();
+                this.size--;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes the oldest queued event of the specified class
+     *
+     * @param queue the queue to search
+     * @param eventClass the event class
+     * @return {@code true} if an event was removed
+     */
+    private boolean removeOldestOfClass(ArrayDeque<Queued> queue, Class<?> eventClass) {
+        Iterator<Queued> it = queue.iterator();
+
+        while (it.hasNext()) {
+            if (it.next().event.getClass() == eventClass) {
+                it.remove();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Takes the oldest event from the highest priority non-empty queue, waiting if all queues are empty
+     *
+     * @return the event and the priority it was queued at
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private Taken take() throws InterruptedException {
+        this.lock.lock();
+        try {
+            while (true) {
+                for (Map.Entry<EventPriority, ArrayDeque<Queued>> entry : this.queues.entrySet()) {
+                    Queued queued = entry.getValue().pollFirst();
+
+                    if (queued != null) {
+                        this.size--;
+                        if (this.size < this.capacity) {
+                            this.overCapacity = false;
+                        }
+                        this.notFull.signalAll();
+                        return new Taken(queued, entry.getKey());
+                    }
+                }
+
+                this.notEmpty.await();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Taken taken;
+            try {
+                taken = this.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            PriorityStats pstats = this.stats.get(taken.priority);
+            long start = System.nanoTime();
+            pstats.recordWait(start - taken.queued.enqueued);
+
+            try {
+                this.publisher.accept(taken.queued.event);
+            } catch (Exception ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+            } finally {
+                pstats.recordDispatch(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Returns human-readable queue depth and latency statistics for each priority
+     *
+     * @return the statistics
+     */
+    List<String> stats() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("EventBus prioritized dispatcher: dispatchers=%d capacity=%d overflow=%s", this.dispatchers.size(),
+            this.capacity, this.policy.name()));
+
+        for (EventPriority priority : EventPriority.values()) {
+            int depth;
+            this.lock.lock();
+            try {
+                depth = this.queues.get(priority).size();
+            } finally {
+                this.lock.unlock();
+            }
+
+            lines.add(priority.name() + ": " + this.stats.get(priority).toString(depth));
+        }
+
+        return lines;
+    }
+
+    /**
+     * An event waiting in a queue
+     */
+    private record Queued(Event event, long enqueued) {
+    }
+
+    /**
+     * An event taken from a queue
+     */
+    private record Taken(Queued queued, EventPriority priority) {
+    }
+
+    /**
+     * Counters for a single priority queue
+     */
+    private static final class PriorityStats {
+        private final LongAdder enqueued = new LongAdder();
+        private final LongAdder dispatched = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder blocked = new LongAdder();
+        private final AtomicLong peakDepth = new AtomicLong(0L);
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong(0L);
+        private final LongAdder dispatchNanos = new LongAdder();
+        private final AtomicLong maxDispatchNanos = new AtomicLong(0L);
+
+        private void recordWait(long nanos) {
+            this.waitNanos.add(nanos);
+            this.maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private void recordDispatch(long nanos) {
+            this.dispatched.increment();
+            this.dispatchNanos.add(nanos);
+            this.maxDispatchNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private String toString(int depth) {
+            long d = this.dispatched.sum();
+            return String.format("depth=%d peak=%d enqueued=%d dispatched=%d dropped=%d coalesced=%d blocked=%d avgWait=%.3fms maxWait=%.3fms"
+                + " avgDispatch=%.3fms maxDispatch=%.3fms", depth, this.peakDepth.get(), this.enqueued.sum(), d, this.dropped.sum(),
+                this.coalesced.sum(), this.blocked.sum(), d == 0 ? 0.0 : (this.waitNanos.sum() / 1_000_000.0) / d,
+                this.maxWaitNanos.get() / 1_000_000.0, d == 0 ? 0.0 : (this.dispatchNanos.sum() / 1_000_000.0) / d,
+                this.maxDispatchNanos.get() / 1_000_000.0);
+        }
+    }
+}
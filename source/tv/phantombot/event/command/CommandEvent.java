@@ -23,6 +23,7 @@ import java.util.Map;
 
 import tv.phantombot.CaselessProperties;
 import tv.phantombot.event.Event;
+import tv.phantombot.event.EventPriority;
 
 public class CommandEvent extends Event {
 
@@ -219,4 +220,9 @@ public class CommandEvent extends Event {
     public String toString() {
         return "CommandEvent -> { command: [" + this.command + "] sender: [" + this.sender + "] arguments: [" + this.arguments + "] tags: [" + this.tags + "] }";
     }
+
+    @Override
+    public EventPriority priority() {
+        return EventPriority.HIGH;
+    }
 }
@@ -21,6 +21,7 @@ import discord4j.core.object.entity.User;
 import discord4j.core.object.entity.channel.Channel;
 import java.util.LinkedList;
 import java.util.List;
+import tv.phantombot.event.EventPriority;
 
 public class DiscordChannelCommandEvent extends DiscordChannelEvent {
 
@@ -132,4 +133,9 @@ public class DiscordChannelCommandEvent extends DiscordChannelEvent {
     public String toString() {
         return "DiscordChannelCommandEvent -> { command: [" + this.command + "] arguments: [" + this.arguments + "] isAdmin: [" + this.isAdmin + "] }";
     }
+
+    @Override
+    public EventPriority priority() {
+        return EventPriority.HIGH;
+    }
 }
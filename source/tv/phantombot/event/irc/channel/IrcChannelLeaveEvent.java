@@ -16,6 +16,7 @@
  */
 package tv.phantombot.event.irc.channel;
 
+import tv.phantombot.event.EventPriority;
 import tv.phantombot.twitch.irc.TwitchSession;
 
 public class IrcChannelLeaveEvent extends IrcChannelEvent {
@@ -53,4 +54,9 @@ public class IrcChannelLeaveEvent extends IrcChannelEvent {
     public String getUser() {
         return this.user;
     }
+
+    @Override
+    public EventPriority priority() {
+        return EventPriority.LOW;
+    }
 }
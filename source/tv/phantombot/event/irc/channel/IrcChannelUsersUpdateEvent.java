@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.List;
 
 import com.gmt2001.twitch.cache.Viewer;
+import tv.phantombot.event.EventPriority;
 import tv.phantombot.twitch.irc.TwitchSession;
 
 /**
@@ -28,6 +29,9 @@ import tv.phantombot.twitch.irc.TwitchSession;
  */
 public class IrcChannelUsersUpdateEvent extends IrcChannelEvent {
     private final List<Viewer> chatters;
+    private final List<Viewer> joined;
+    private final List<Viewer> left;
+    private final long sequence;
 
     /**
      * Constructor
@@ -35,8 +39,23 @@ public class IrcChannelUsersUpdateEvent extends IrcChannelEvent {
      * @param chatters A list of login names for users who are currently in chat
      */
     public IrcChannelUsersUpdateEvent(List<Viewer> chatters) {
+        this(chatters, Collections.emptyList(), Collections.emptyList(), -1L);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param chatters A list of users who are currently in chat
+     * @param joined A list of users who joined since the previous update
+     * @param left A list of users who left since the previous update
+     * @param sequence The sequence number of this update; {@code -1} if {@code joined} and {@code left} are not calculated
+     */
+    public IrcChannelUsersUpdateEvent(List<Viewer> chatters, List<Viewer> joined, List<Viewer> left, long sequence) {
         super(null);
         this.chatters = Collections.unmodifiableList(chatters);
+        this.joined = Collections.unmodifiableList(joined);
+        this.left = Collections.unmodifiableList(left);
+        this.sequence = sequence;
     }
 
     /**
@@ -51,6 +70,9 @@ public class IrcChannelUsersUpdateEvent extends IrcChannelEvent {
     public IrcChannelUsersUpdateEvent(TwitchSession session, String[] joins, String[] parts) {
         super(session);
         this.chatters = null;
+        this.joined = Collections.emptyList();
+        this.left = Collections.emptyList();
+        this.sequence = -1L;
     }
 
     /**
@@ -64,6 +86,9 @@ public class IrcChannelUsersUpdateEvent extends IrcChannelEvent {
     public IrcChannelUsersUpdateEvent(String[] joins, String[] parts) {
         super(null);
         this.chatters = null;
+        this.joined = Collections.emptyList();
+        this.left = Collections.emptyList();
+        this.sequence = -1L;
     }
 
     /**
@@ -96,4 +121,42 @@ public class IrcChannelUsersUpdateEvent extends IrcChannelEvent {
     public List<Viewer> chatters() {
         return this.chatters;
     }
+
+    /**
+     * A list of users who joined since the previous update
+     * <p>
+     * Only valid if {@link #sequence()} is exactly one more than the sequence of the last processed update, otherwise {@link #chatters()}
+     * should be used
+     *
+     * @return A list of users who joined since the previous update
+     */
+    public List<Viewer> joined() {
+        return this.joined;
+    }
+
+    /**
+     * A list of users who left since the previous update
+     * <p>
+     * Only valid if {@link #sequence()} is exactly one more than the sequence of the last processed update, otherwise {@link #chatters()}
+     * should be used
+     *
+     * @return A list of users who left since the previous update
+     */
+    public List<Viewer> left() {
+        return this.left;
+    }
+
+    /**
+     * The sequence number of this update, which increments by one for each update sent
+     *
+     * @return The sequence number; {@code -1} if {@link #joined()} and {@link #left()} are not calculated
+     */
+    public long sequence() {
+        return this.sequence;
+    }
+
+    @Override
+    public EventPriority priority() {
+        return EventPriority.LOW;
+    }
 }
@@ -22,6 +22,7 @@ import com.gmt2001.twitch.tmi.TMIMessage;
 
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
+import tv.phantombot.event.EventPriority;
 import tv.phantombot.event.command.CommandEvent;
 import tv.phantombot.twitch.irc.TwitchSession;
 
@@ -327,4 +328,9 @@ public class IrcModerationEvent extends IrcMessageEvent {
             }
         }
     }
+
+    @Override
+    public EventPriority priority() {
+        return EventPriority.HIGH;
+    }
 }
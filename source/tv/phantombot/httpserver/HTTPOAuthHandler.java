@@ -19,6 +19,7 @@ package tv.phantombot.httpserver;
 import com.gmt2001.PathValidator;
 import com.gmt2001.httpwsserver.HttpRequestHandler;
 import com.gmt2001.httpwsserver.HttpServerPageHandler;
+import com.gmt2001.httpwsserver.StaticFileCache;
 import com.gmt2001.httpwsserver.auth.HttpAuthenticationHandler;
 import com.gmt2001.httpwsserver.auth.HttpBasicAuthenticationHandler;
 import com.gmt2001.httpwsserver.auth.HttpNoAuthenticationHandler;
@@ -115,11 +116,12 @@ public class HTTPOAuthHandler implements HttpRequestHandler {
             if (HttpServerPageHandler.checkFilePermissions(ctx, req, p, false)) {
                 com.gmt2001.Console.debug.println("200 " + req.method().asciiName() + ": " + p.toString() + " (" + p.getFileName().toString() + " = "
                         + HttpServerPageHandler.detectContentType(p.getFileName().toString()) + ")");
-                byte[] data = Files.readAllBytes(p);
                 if (qsd.path().startsWith("/oauth")) {
-                    data = TwitchAuthorizationCodeFlow.handleRequest(req, data, this);
+                    byte[] data = TwitchAuthorizationCodeFlow.handleRequest(req, StaticFileCache.instance().read(p), this);
+                    HttpServerPageHandler.sendHttpResponse(ctx, req, HttpServerPageHandler.prepareHttpResponse(HttpResponseStatus.OK, data, p.getFileName().toString()));
+                } else {
+                    StaticFileCache.instance().sendFile(ctx, req, p);
                 }
-                HttpServerPageHandler.sendHttpResponse(ctx, req, HttpServerPageHandler.prepareHttpResponse(HttpResponseStatus.OK, data, p.getFileName().toString()));
             }
         } catch (IOException ex) {
             com.gmt2001.Console.debug.println("500 " + req.method().asciiName() + ": " + qsd.path());
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.panel.PanelUser;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tv.phantombot.CaselessProperties;
+
+/**
+ * Caches {@link PanelUser panel users} in memory, so that authenticating each panel HTTP request and websocket frame does not query the
+ * database
+ * <p>
+ * Entries expire after {@code panelusercachettl} seconds, and are invalidated by {@link PanelUserHandler} whenever a user is changed or
+ * deleted. Users which are not found are not cached, so that a newly created user can login immediately. A lookup which raced an
+ * invalidation is returned but not cached, so that a user who was disabled or deleted during the lookup is not kept for the whole TTL
+ */
+final class PanelUserCache {
+    /**
+     * The minimum time between writes of the last login timestamp of a user
+     */
+    private static final long LAST_LOGIN_INTERVAL_MS = 60000L;
+    private static final Map<String, Entry> BY_USERNAME = new ConcurrentHashMap<>();
+    private static final Map<String, Entry> BY_TOKEN = new ConcurrentHashMap<>();
+    /**
+     * Incremented by each invalidation. Token lookups do not know the username until the database has been read, so a single
+     * version is used instead of one per user; invalidations only happen when a panel user is edited
+     */
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    private PanelUserCache() {
+    }
+
+    /**
+     * Looks up a panel user by their username
+     *
+     * @param username the username to lookup
+     * @return the {@link PanelUser}; {@code null} if not found
+     * @see PanelUser#LookupByUsername(String)
+     */
+    static PanelUser lookupByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+
+        Entry entry = BY_USERNAME.get(username.toLowerCase(Locale.ROOT));
+        if (entry != null && !entry.isExpired()) {
+            return entry.user;
+        }
+
+        long version = VERSION.get();
+        return put(PanelUser.LookupByUsername(username), version);
+    }
+
+    /**
+     * Looks up a panel user by their websocket token
+     *
+     * @param token the websocket token to lookup
+     * @return the {@link PanelUser}; {@code null} if not found
+     * @see PanelUser#LookupByAuthToken(String)
+     */
+    static PanelUser lookupByAuthToken(String token) {
+        if (token == null) {
+            return null;
+        }
+
+        Entry entry = BY_TOKEN.get(token);
+        if (entry != null && !entry.isExpired()) {
+            return entry.user;
+        }
+
+        long version = VERSION.get();
+        return put(PanelUser.LookupByAuthToken(token), version);
+    }
+
+    /**
+     * Adds a user to the cache, unless the cache was invalidated since the user was looked up
+     *
+     * @param user the user
+     * @param version the value of {@link #VERSION} before the user was looked up
+     * @return the user
+     */
+    private static synchronized PanelUser put(PanelUser user, long version) {
+        /**
+         * @botproperty panelusercachettl - The number of seconds a panel user is kept in memory before their login is checked against the database again. `0` to disable. Default `300`
+         * @botpropertycatsort panelusercachettl 100 40 Panel Login
+         */
+        long ttl = CaselessProperties.instance().getPropertyAsLong("panelusercachettl", 300L);
+
+        if (user != null && ttl > 0L && VERSION.get() == version) {
+            Entry entry = new Entry(user, System.nanoTime() + TimeUnit.SECONDS.toNanos(ttl), new AtomicLong(user.getLastLogin()));
+            BY_USERNAME.put(user.getUsername().toLowerCase(Locale.ROOT), entry);
+
+            if (user.getToken() != null) {
+                BY_TOKEN.put(user.getToken(), entry);
+            }
+        }
+
+        return user;
+    }
+
+    /**
+     * Indicates if the last login timestamp of the user should be written to the database, which happens at most once per
+     * {@link #LAST_LOGIN_INTERVAL_MS} for each user
+     *
+     * @param user the user who has just logged in
+     * @return {@code true} if the caller should write the last login timestamp
+     */
+    static boolean shouldWriteLastLogin(PanelUser user) {
+        Entry entry = BY_USERNAME.get(user.getUsername().toLowerCase(Locale.ROOT));
+
+        if (entry == null || entry.user != user) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        long last = entry.lastLoginWritten.get();
+        return now - last >= LAST_LOGIN_INTERVAL_MS && entry.lastLoginWritten.compareAndSet(last, now);
+    }
+
+    /**
+     * Removes a user from the cache
+     *
+     * @param username the username of the user
+     */
+    static synchronized void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+
+        VERSION.incrementAndGet();
+        Entry entry = BY_USERNAME.remove(username.toLowerCase(Locale.ROOT));
+
+        if (entry != null) {
+            BY_TOKEN.values().removeIf(e -> e == entry);
+        }
+    }
+
+    /**
+     * A cached user
+     */
+    private record Entry(PanelUser user, long expires, AtomicLong lastLoginWritten) {
+        private boolean isExpired() {
+            return System.nanoTime() - this.expires > 0L;
+        }
+    }
+}
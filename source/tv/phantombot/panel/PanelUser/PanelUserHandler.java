@@ -402,7 +402,7 @@ public final class PanelUserHandler {
      * @see PanelUser#isEnabled()
      */
     public static PanelUser checkLoginAndGetUser(String username, String password, String requestUri) {
-        PanelUser user = PanelUser.LookupByUsername(username);
+        PanelUser user = PanelUserCache.lookupByUsername(username);
         if (user == null || !user.isEnabled()) {
             return null;
         }
@@ -417,12 +417,14 @@ public final class PanelUserHandler {
         }
 
         if (password.equals(user.getPassword())) {
-            user.setLastLoginNOW();
+            if (PanelUserCache.shouldWriteLastLogin(user)) {
+                user.setLastLoginNOW();
 
-            try {
-                user.doupdate();
-            } catch (Exception ex) {
-                com.gmt2001.Console.err.printStackTrace(ex);
+                try {
+                    user.doupdate();
+                } catch (Exception ex) {
+                    com.gmt2001.Console.err.printStackTrace(ex);
+                }
             }
 
             return user;
@@ -439,7 +441,7 @@ public final class PanelUserHandler {
      * @see PanelUser#isEnabled()
      */
     public static PanelUser checkAuthTokenAndGetUser(String authToken) {
-        PanelUser user = PanelUser.LookupByAuthToken(authToken);
+        PanelUser user = PanelUserCache.lookupByAuthToken(authToken);
         if (user != null && user.isEnabled()) {
             return user;
         }
@@ -457,7 +459,7 @@ public final class PanelUserHandler {
      * @see PanelUser#isEnabled()
      */
     public static String getUserAuthToken(String username) {
-        PanelUser user = PanelUser.LookupByUsername(username);
+        PanelUser user = PanelUserCache.lookupByUsername(username);
         if (user == null) {
             return null;
         }
@@ -500,6 +502,8 @@ public final class PanelUserHandler {
         } catch (Exception ex) {
             com.gmt2001.Console.err.printStackTrace(ex);
             return PanelMessage.SaveError;
+        } finally {
+            PanelUserCache.invalidate(username);
         }
 
         return PanelMessage.Success.setResponse("Password changed successfully");
@@ -583,6 +587,8 @@ public final class PanelUserHandler {
         } catch (Exception ex) {
             com.gmt2001.Console.err.printStackTrace(ex);
             return PanelMessage.SaveError;
+        } finally {
+            PanelUserCache.invalidate(username);
         }
 
         return PanelMessage.Success.setResponse("User successfully deleted");
@@ -670,6 +676,9 @@ public final class PanelUserHandler {
         } catch (Exception ex) {
             com.gmt2001.Console.err.printStackTrace(ex);
             return PanelMessage.SaveError;
+        } finally {
+            PanelUserCache.invalidate(currentUsername);
+            PanelUserCache.invalidate(newUsername);
         }
 
         return PanelMessage.Success.setResponse("User successfully edited");
@@ -716,6 +725,8 @@ public final class PanelUserHandler {
         } catch (Exception ex) {
             com.gmt2001.Console.err.printStackTrace(ex);
             return PanelMessage.SaveError;
+        } finally {
+            PanelUserCache.invalidate(username);
         }
 
         return PanelMessage.Success.setResponse(password);
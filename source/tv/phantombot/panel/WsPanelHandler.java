@@ -34,6 +34,7 @@ import org.json.JSONObject;
 import org.json.JSONStringer;
 
 import com.gmt2001.TestData;
+import com.gmt2001.datastore.KeyValue;
 import com.gmt2001.httpwsserver.HTTPWSServer;
 import com.gmt2001.httpwsserver.HttpRequestHandler;
 import com.gmt2001.httpwsserver.HttpServerPageHandler;
@@ -59,6 +60,7 @@ import tv.phantombot.event.webpanel.websocket.WebPanelSocketConnectEvent;
 import tv.phantombot.event.webpanel.websocket.WebPanelSocketUpdateEvent;
 import tv.phantombot.panel.PanelUser.PanelUser;
 import tv.phantombot.panel.PanelUser.PanelUserHandler;
+import tv.phantombot.script.ScriptEventManager;
 import tv.phantombot.twitch.api.Helix;
 
 /**
@@ -130,6 +132,8 @@ public class WsPanelHandler extends WsWithLongPollHandler {
                 handlePanelUser(ctx, jso);
             } else if (jso.has("channelpointslisttest")) {
                 handleChannelPointsListTest(ctx, jso);
+            } else if (jso.has("eventstats")) {
+                handleEventStats(ctx, jso);
             }
         } catch (Exception ex) {
             com.gmt2001.Console.err.println("Exception processing /ws/panel frame: " + jso.toString(),
@@ -427,6 +431,26 @@ public class WsPanelHandler extends WsWithLongPollHandler {
         this.clientCache.send(ctx, jsonObject);
     }
 
+    private void handleEventStats(ChannelHandlerContext ctx, JSONObject jso) {
+        PanelUser user = ctx.channel().attr(PanelUserAuthenticationHandler.ATTR_AUTH_USER).get();
+        if (user != null && !PanelUserHandler.checkPanelUserSectionAccess(user,
+                (jso.has("section") ? jso.getString("section") : ""), false)) {
+            this.panelNotification(ctx, "permission",
+                    PanelUserHandler.PanelMessage.InsufficientPermissions.getMessage(), "Permissions error");
+            return;
+        }
+        String uniqueID = jso.has("eventstats") ? jso.getString("eventstats") : "";
+
+        JSONStringer jsonObject = new JSONStringer();
+        jsonObject.object().key("query_id").value(uniqueID);
+        jsonObject.key("results").object();
+        jsonObject.key("data").array();
+        ScriptEventManager.instance().getStats().forEach(stats -> stats.toJSON(jsonObject));
+        jsonObject.endArray();
+        jsonObject.endObject().endObject();
+        this.clientCache.send(ctx, jsonObject);
+    }
+
     private void handlePanelUser(ChannelHandlerContext ctx, JSONObject jso) {
         PanelUser user = ctx.channel().attr(PanelUserAuthenticationHandler.ATTR_AUTH_USER).get();
 
@@ -710,10 +734,9 @@ public class WsPanelHandler extends WsWithLongPollHandler {
 
         jsonObject.object().key("query_id").value(uniqueID).key("results").array();
 
-        String[] dbKeys = PhantomBot.instance().getDataStore().GetKeyList(table, "");
-        for (String dbKey : dbKeys) {
-            String value = PhantomBot.instance().getDataStore().GetString(table, "", dbKey);
-            jsonObject.object().key("table").value(table).key("key").value(dbKey).key("value").value(value).endObject();
+        KeyValue[] dbKeyValues = PhantomBot.instance().getDataStore().GetKeyValueList(table, "");
+        for (KeyValue dbKeyValue : dbKeyValues) {
+            jsonObject.object().key("table").value(table).key("key").value(dbKeyValue.getKey()).key("value").value(dbKeyValue.getValue()).endObject();
         }
 
         jsonObject.endArray().endObject();
@@ -757,10 +780,9 @@ public class WsPanelHandler extends WsWithLongPollHandler {
                     return;
                 }
 
-                String[] dbKeys = PhantomBot.instance().getDataStore().GetKeyList(table, "");
-                for (String dbKey : dbKeys) {
-                    String value = PhantomBot.instance().getDataStore().GetString(table, "", dbKey);
-                    jsonObject.object().key("table").value(table).key("key").value(dbKey).key("value").value(value)
+                KeyValue[] dbKeyValues = PhantomBot.instance().getDataStore().GetKeyValueList(table, "");
+                for (KeyValue dbKeyValue : dbKeyValues) {
+                    jsonObject.object().key("table").value(table).key("key").value(dbKeyValue.getKey()).key("value").value(dbKeyValue.getValue())
                             .endObject();
                 }
             }
@@ -797,10 +819,9 @@ public class WsPanelHandler extends WsWithLongPollHandler {
 
         jsonObject.object().key("query_id").value(uniqueID).key("results").array();
 
-        String[] dbKeys = PhantomBot.instance().getDataStore().GetKeysByOrder(table, "", order, limit, offset);
-        for (String dbKey : dbKeys) {
-            String value = PhantomBot.instance().getDataStore().GetString(table, "", dbKey);
-            jsonObject.object().key("table").value(table).key("key").value(dbKey).key("value").value(value).endObject();
+        KeyValue[] dbKeyValues = PhantomBot.instance().getDataStore().GetKeyValuesByOrder(table, "", order, limit, offset);
+        for (KeyValue dbKeyValue : dbKeyValues) {
+            jsonObject.object().key("table").value(table).key("key").value(dbKeyValue.getKey()).key("value").value(dbKeyValue.getValue()).endObject();
         }
 
         jsonObject.endArray().endObject();
@@ -835,15 +856,14 @@ public class WsPanelHandler extends WsWithLongPollHandler {
 
         jsonObject.object().key("query_id").value(uniqueID).key("results").array();
 
-        String[] dbKeys;
+        KeyValue[] dbKeyValues;
         if (isNumber.equals("true")) {
-            dbKeys = PhantomBot.instance().getDataStore().GetKeysByNumberOrderValue(table, "", order, limit, offset);
+            dbKeyValues = PhantomBot.instance().getDataStore().GetKeyValuesByNumberOrderValue(table, "", order, limit, offset);
         } else {
-            dbKeys = PhantomBot.instance().getDataStore().GetKeysByOrderValue(table, "", order, limit, offset);
+            dbKeyValues = PhantomBot.instance().getDataStore().GetKeyValuesByOrderValue(table, "", order, limit, offset);
         }
-        for (String dbKey : dbKeys) {
-            String value = PhantomBot.instance().getDataStore().GetString(table, "", dbKey);
-            jsonObject.object().key("table").value(table).key("key").value(dbKey).key("value").value(value).endObject();
+        for (KeyValue dbKeyValue : dbKeyValues) {
+            jsonObject.object().key("table").value(table).key("key").value(dbKeyValue.getKey()).key("value").value(dbKeyValue.getValue()).endObject();
         }
 
         jsonObject.endArray().endObject();
@@ -878,11 +898,10 @@ public class WsPanelHandler extends WsWithLongPollHandler {
 
         jsonObject.object().key("query_id").value(uniqueID).key("results").array();
 
-        String[] dbKeys = PhantomBot.instance().getDataStore().GetKeysByLikeKeysOrder(table, "", key, order, limit,
+        KeyValue[] dbKeyValues = PhantomBot.instance().getDataStore().GetKeyValuesByLikeKeysOrder(table, "", key, order, limit,
                 offset);
-        for (String dbKey : dbKeys) {
-            String value = PhantomBot.instance().getDataStore().GetString(table, "", dbKey);
-            jsonObject.object().key("table").value(table).key("key").value(dbKey).key("value").value(value).endObject();
+        for (KeyValue dbKeyValue : dbKeyValues) {
+            jsonObject.object().key("table").value(table).key("key").value(dbKeyValue.getKey()).key("value").value(dbKeyValue.getValue()).endObject();
         }
 
         jsonObject.endArray().endObject();
@@ -26,6 +26,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
+import tv.phantombot.event.Event;
+
 public final class ScriptApi {
 
     private static final ScriptApi instance = new ScriptApi();
@@ -45,7 +47,31 @@ public final class ScriptApi {
                 ScriptEventManager.instance().unregister(handler);
             }
         });
-        ScriptEventManager.instance().register(eventName, handler);
+        ScriptEventManager.instance().register(eventName, handler, script.getPath().replace('\\', '/').replace("./scripts/", ""));
+    }
+
+    public void recordHookTiming(String hookName, String scriptName, long nanos) {
+        ScriptEventManager.instance().recordHook(hookName, scriptName, nanos);
+    }
+
+    public void addHook(String hookName, String scriptName, String scriptPath, boolean always, ScriptHookHandler handler) {
+        ScriptEventManager.instance().addHook(hookName, scriptName, scriptPath, always, handler);
+    }
+
+    public void removeHook(String hookName, String scriptName) {
+        ScriptEventManager.instance().removeHook(hookName, scriptName);
+    }
+
+    public void setModuleEnabled(String scriptName, boolean enabled) {
+        ScriptEventManager.instance().setModuleEnabled(scriptName, enabled);
+    }
+
+    public void callHook(String hookName, Event event, boolean force) {
+        ScriptEventManager.instance().callHook(hookName, event, force);
+    }
+
+    public void callScriptHook(String hookName, String scriptName, Event event) {
+        ScriptEventManager.instance().callScriptHook(hookName, scriptName, event);
     }
 
     public List<String> getEventNames() {
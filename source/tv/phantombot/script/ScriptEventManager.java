@@ -17,13 +17,18 @@
 package tv.phantombot.script;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 import net.engio.mbassy.listener.Handler;
 import org.apache.commons.text.WordUtils;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.WrappedException;
 
 import com.gmt2001.util.Reflect;
 
@@ -33,7 +38,26 @@ import tv.phantombot.event.Listener;
 public final class ScriptEventManager implements Listener {
 
     private static final ScriptEventManager instance = new ScriptEventManager();
-    private final ConcurrentHashMap<String, ScriptEventHandler> events = new ConcurrentHashMap<>();
+    /**
+     * Event class to registered handlers, resolved at registration time so that dispatch is a single lookup
+     */
+    private final ConcurrentHashMap<Class<? extends Event>, List<RegisteredHandler>> handlers = new ConcurrentHashMap<>();
+    /**
+     * Simple name of each event class which currently has at least one handler
+     */
+    private final ConcurrentHashMap<String, Class<? extends Event>> eventNames = new ConcurrentHashMap<>();
+    /**
+     * Timing statistics, keyed by event name and source
+     */
+    private final ConcurrentHashMap<String, ScriptEventStats> stats = new ConcurrentHashMap<>();
+    /**
+     * JS hooks registered with {@code $.bind}, keyed by hook name
+     */
+    private final ConcurrentHashMap<String, HookList> hooks = new ConcurrentHashMap<>();
+    /**
+     * Modules which are currently enabled
+     */
+    private final Set<String> enabledModules = ConcurrentHashMap.newKeySet();
     private final List<String> classes = new ArrayList<>();
     private boolean isKilled = false;
 
@@ -76,22 +100,38 @@ public final class ScriptEventManager implements Listener {
     @Handler
     public void onEvent(Event event) {
         if (!isKilled) {
-            try {
-                String eventName = event.getClass().getSimpleName();
-                ScriptEventHandler e = events.get(eventName);
+            List<RegisteredHandler> eventHandlers = this.handlers.get(event.getClass());
 
-                if (e != null) {
-                    e.handle(event);
-                }
+            if (eventHandlers == null) {
+                return;
+            }
 
-                com.gmt2001.Console.debug.println("Dispatched event " + eventName);
-            } catch (Exception ex) {
-                com.gmt2001.Console.err.println("Failed to dispatch event " + event.getClass().getName());
-                com.gmt2001.Console.err.printStackTrace(ex, false, true);
+            for (RegisteredHandler handler : eventHandlers) {
+                long start = System.nanoTime();
+                try {
+                    handler.handler.handle(event);
+                } catch (Exception ex) {
+                    com.gmt2001.Console.err.println("Failed to dispatch event " + event.getClass().getName() + " to " + handler.stats.source());
+                    com.gmt2001.Console.err.printStackTrace(ex, false, true);
+                } finally {
+                    handler.stats.record(System.nanoTime() - start);
+                }
             }
+
+            com.gmt2001.Console.debug.println("Dispatched event " + event.getClass().getSimpleName());
         }
     }
 
+    /**
+     * Indicates if any script handlers are registered for the exact event class
+     *
+     * @param eventClass the event class
+     * @return {@code true} if at least one handler will receive events of this class
+     */
+    public boolean hasHandlers(Class<? extends Event> eventClass) {
+        return !this.isKilled && this.handlers.containsKey(eventClass);
+    }
+
     /**
      * Method to see if an event exists, this is used from init.js.
      *
@@ -99,7 +139,7 @@ public final class ScriptEventManager implements Listener {
      * @return
      */
     public boolean hasEvent(String eventName) {
-        return events.containsKey((WordUtils.capitalize(eventName) + "Event"));
+        return this.eventNames.containsKey((WordUtils.capitalize(eventName) + "Event"));
     }
 
     /**
@@ -109,7 +149,20 @@ public final class ScriptEventManager implements Listener {
      * @param handler
      */
     public void register(String eventName, ScriptEventHandler handler) {
-        register(eventName, handler, true);
+        this.register(eventName, handler, "java");
+    }
+
+    /**
+     * Method to register event handlers.
+     * <p>
+     * Multiple handlers may be registered for the same event, and are called in the order they were registered
+     *
+     * @param eventName
+     * @param handler
+     * @param source the script, or other source, which owns the handler; used to label timing statistics
+     */
+    public void register(String eventName, ScriptEventHandler handler, String source) {
+        register(eventName, handler, source, true);
     }
 
     protected String formatEventName(String input) {
@@ -124,7 +177,7 @@ public final class ScriptEventManager implements Listener {
             .substring(c.getName().lastIndexOf('.') + 1))).collect(Collectors.toList());
     }
 
-    private void register(String eventName, ScriptEventHandler handler, boolean recurse) {
+    private void register(String eventName, ScriptEventHandler handler, String source, boolean recurse) {
         String ceventName = WordUtils.capitalize(eventName) + (eventName.equalsIgnoreCase("Event") ? "" : "Event");
         Class<? extends Event> event = null;
 
@@ -138,10 +191,12 @@ public final class ScriptEventManager implements Listener {
         }
 
         if (event != null) {
-            events.put(event.getSimpleName(), handler);
+            RegisteredHandler registered = new RegisteredHandler(handler, this.stats(event.getSimpleName(), source));
+            this.handlers.computeIfAbsent(event, k -> new CopyOnWriteArrayList<>()).add(registered);
+            this.eventNames.put(event.getSimpleName(), event);
         } else if (recurse) {
             registerClasses();
-            register(eventName, handler, false);
+            register(eventName, handler, source, false);
         } else {
             com.gmt2001.Console.err.println("Event class not found for: " + eventName);
         }
@@ -153,11 +208,173 @@ public final class ScriptEventManager implements Listener {
      * @param handler
      */
     public void unregister(ScriptEventHandler handler) {
-        Set<Entry<String, ScriptEventHandler>> entries = events.entrySet();
+        this.handlers.keySet().forEach(event -> this.handlers.computeIfPresent(event, (k, v) -> {
+            v.removeIf(registered -> registered.handler == handler);
 
-        entries.stream().filter((e) -> (e.getValue() == handler)).forEachOrdered((e) -> {
-            events.remove(e.getKey());
-        });
+            if (v.isEmpty()) {
+                this.eventNames.remove(k.getSimpleName(), k);
+                return null;
+            }
+
+            return v;
+        }));
+    }
+
+    /**
+     * Retrieves, or creates, the timing statistics for a handler
+     *
+     * @param eventName the name of the event, or JS hook
+     * @param source the script, or other source, which owns the handler
+     * @return the statistics
+     */
+    private ScriptEventStats stats(String eventName, String source) {
+        return this.stats.computeIfAbsent(eventName + "|" + source, k -> new ScriptEventStats(eventName, source));
+    }
+
+    /**
+     * Records the time taken by a single JS hook handler, this is used from init.js
+     *
+     * @param hookName the name of the hook
+     * @param scriptName the script which owns the hook handler
+     * @param nanos the time the handler took, in nanoseconds
+     */
+    public void recordHook(String hookName, String scriptName, long nanos) {
+        this.stats("hook:" + hookName, scriptName).record(nanos);
+    }
+
+    /**
+     * Registers a JS hook handler, this is used from init.js
+     * <p>
+     * If the script already has a handler for the hook, it is replaced in place
+     *
+     * @param hookName the name of the hook
+     * @param scriptName the module which owns the handler
+     * @param scriptPath the path to the script file, for error messages
+     * @param always if {@code true}, the handler is called even if the module is disabled
+     * @param handler the handler
+     */
+    public void addHook(String hookName, String scriptName, String scriptPath, boolean always, ScriptHookHandler handler) {
+        this.hooks.computeIfAbsent(hookName, HookList::new).add(scriptName, scriptPath, always, handler);
+    }
+
+    /**
+     * Unregisters a JS hook handler, this is used from init.js
+     *
+     * @param hookName the name of the hook
+     * @param scriptName the module which owns the handler
+     */
+    public void removeHook(String hookName, String scriptName) {
+        HookList list = this.hooks.get(hookName);
+
+        if (list != null) {
+            list.remove(scriptName);
+        }
+    }
+
+    /**
+     * Sets if a module is enabled, rebuilding the handler lists of the hooks it has registered, this is used from init.js
+     *
+     * @param scriptName the module
+     * @param enabled {@code true} if enabled
+     */
+    public void setModuleEnabled(String scriptName, boolean enabled) {
+        if (enabled ? this.enabledModules.add(scriptName) : this.enabledModules.remove(scriptName)) {
+            this.hooks.values().forEach(list -> list.moduleChanged(scriptName));
+        }
+    }
+
+    /**
+     * Indicates if a module is enabled
+     *
+     * @param scriptName the module
+     * @return {@code true} if enabled
+     */
+    public boolean isModuleEnabled(String scriptName) {
+        return this.enabledModules.contains(scriptName);
+    }
+
+    /**
+     * Calls the handlers of a JS hook in the order they were registered, this is used from init.js
+     *
+     * @param hookName the name of the hook
+     * @param event the event
+     * @param force if {@code true}, handlers of disabled modules are also called
+     */
+    public void callHook(String hookName, Event event, boolean force) {
+        HookList list = this.hooks.get(hookName);
+
+        if (list != null) {
+            for (Hook hook : force ? list.all : list.enabled) {
+                this.invoke(hookName, hook, event);
+            }
+        }
+    }
+
+    /**
+     * Calls the handler of a JS hook which was registered by a specific module, such as the module which registered a command, this is
+     * used from init.js
+     *
+     * @param hookName the name of the hook
+     * @param scriptName the module
+     * @param event the event
+     */
+    public void callScriptHook(String hookName, String scriptName, Event event) {
+        HookList list = this.hooks.get(hookName);
+        Hook hook = list == null || scriptName == null ? null : list.byScript.get(scriptName.toLowerCase(Locale.ROOT));
+
+        if (hook == null) {
+            com.gmt2001.Console.err.println("Error with Event Handler [" + hookName + "] Script [" + scriptName + "] No handler is registered");
+            return;
+        }
+
+        this.invoke(hookName, hook, event);
+    }
+
+    /**
+     * Calls a JS hook handler, reporting any exception and recording the time taken
+     *
+     * @param hookName the name of the hook
+     * @param hook the handler
+     * @param event the event
+     */
+    private void invoke(String hookName, Hook hook, Event event) {
+        long start = System.nanoTime();
+        try {
+            hook.handler.handle(event);
+        } catch (RuntimeException ex) {
+            String errmsg = "Error with Event Handler [" + hookName + "] Script [" + hook.scriptPath + "]";
+            Throwable cause = ex;
+
+            if (ex instanceof RhinoException rex) {
+                errmsg += " Stacktrace [" + rex.getScriptStackTrace().trim().replace("\r", "").replace("\n", " > ") + "] Exception [" + rex.details() + "]";
+
+                if (rex instanceof WrappedException wex) {
+                    cause = wex.getWrappedException();
+                }
+            }
+
+            com.gmt2001.Console.err.println(errmsg);
+            com.gmt2001.Console.err.printStackTrace(cause, errmsg);
+        } finally {
+            hook.stats.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the timing statistics of all handlers which have been invoked at least once, ordered by total time spent, descending
+     *
+     * @return the statistics
+     */
+    public List<ScriptEventStats> getStats() {
+        return this.stats.values().stream().filter(s -> s.count() > 0)
+            .sorted(Comparator.comparingLong(ScriptEventStats::totalNanos).reversed()).collect(Collectors.toList());
+    }
+
+    /**
+     * Resets all timing statistics
+     */
+    public void resetStats() {
+        this.stats.values().forEach(ScriptEventStats::reset);
     }
 
     /**
@@ -166,4 +383,104 @@ public final class ScriptEventManager implements Listener {
     public void kill() {
         this.isKilled = true;
     }
+
+    /**
+     * A JS hook handler
+     */
+    private static final class Hook {
+        private final String scriptName;
+        private final boolean always;
+        private final ScriptEventStats stats;
+        private volatile String scriptPath;
+        private volatile ScriptHookHandler handler;
+
+        private Hook(String scriptName, String scriptPath, boolean always, ScriptHookHandler handler, ScriptEventStats stats) {
+            this.scriptName = scriptName;
+            this.scriptPath = scriptPath;
+            this.always = always;
+            this.handler = handler;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * The handlers of a JS hook
+     * <p>
+     * Dispatch iterates immutable snapshots; the snapshot of handlers to call when not forced only contains handlers of enabled modules, and
+     * is rebuilt whenever a handler is added or removed, or a module which has a handler is enabled or disabled
+     */
+    private final class HookList {
+        private final String hookName;
+        private final ConcurrentHashMap<String, Hook> byScript = new ConcurrentHashMap<>();
+        private volatile Hook[] all = new Hook[0];
+        private volatile Hook[] enabled = new Hook[0];
+
+        private HookList(String hookName) {
+            this.hookName = hookName;
+        }
+
+        private synchronized void add(String scriptName, String scriptPath, boolean always, ScriptHookHandler handler) {
+            Hook hook = this.byScript.get(scriptName.toLowerCase(Locale.ROOT));
+
+            if (hook != null) {
+                hook.scriptPath = scriptPath;
+                hook.handler = handler;
+                return;
+            }
+
+            hook = new Hook(scriptName, scriptPath, always, handler, ScriptEventManager.this.stats("hook:" + this.hookName, scriptName));
+            this.byScript.put(scriptName.toLowerCase(Locale.ROOT), hook);
+            Hook[] newAll = Arrays.copyOf(this.all, this.all.length + 1);
+            newAll[newAll.length - 1] = hook;
+            this.all = newAll;
+            this.rebuild();
+        }
+
+        private synchronized void remove(String scriptName) {
+            Hook hook = this.byScript.remove(scriptName.toLowerCase(Locale.ROOT));
+
+            if (hook != null) {
+                List<Hook> newAll = new ArrayList<>(List.of(this.all));
+                newAll.remove(hook);
+                this.all = newAll.toArray(Hook[]::new);
+                this.rebuild();
+            }
+        }
+
+        private void moduleChanged(String scriptName) {
+            if (this.byScript.containsKey(scriptName.toLowerCase(Locale.ROOT))) {
+                synchronized (this) {
+                    this.rebuild();
+                }
+            }
+        }
+
+        /**
+         * Must be called while holding the lock
+         */
+        private void rebuild() {
+            List<Hook> newEnabled = new ArrayList<>(this.all.length);
+
+            for (Hook hook : this.all) {
+                if (hook.always || ScriptEventManager.this.enabledModules.contains(hook.scriptName)) {
+                    newEnabled.add(hook);
+                }
+            }
+
+            this.enabled = newEnabled.toArray(Hook[]::new);
+        }
+    }
+
+    /**
+     * A handler and the statistics it reports to
+     */
+    private static final class RegisteredHandler {
+        private final ScriptEventHandler handler;
+        private final ScriptEventStats stats;
+
+        private RegisteredHandler(ScriptEventHandler handler, ScriptEventStats stats) {
+            this.handler = handler;
+            this.stats = stats;
+        }
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.script;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.json.JSONStringer;
+
+/**
+ * Invocation count and latency histogram for a single event handler
+ */
+public final class ScriptEventStats {
+    /**
+     * The upper bound, in nanoseconds, of each histogram bucket. The final bucket catches everything above the last bound
+     */
+    private static final long[] BUCKET_BOUNDS = { 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L };
+    /**
+     * The labels of each histogram bucket
+     */
+    private static final String[] BUCKET_LABELS = { "<100us", "<1ms", "<10ms", "<100ms", "<1s", ">=1s" };
+    private final String eventName;
+    private final String source;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong(0L);
+    private final LongAdder[] buckets = new LongAdder[BUCKET_LABELS.length];
+
+    /**
+     * Constructor
+     *
+     * @param eventName the name of the event
+     * @param source the script, or other source, which owns the handler
+     */
+    ScriptEventStats(String eventName, String source) {
+        this.eventName = eventName;
+        this.source = source;
+
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a single invocation of the handler
+     *
+     * @param nanos the time the handler took, in nanoseconds
+     */
+    void record(long nanos) {
+        this.count.increment();
+        this.totalNanos.add(nanos);
+        this.maxNanos.accumulateAndGet(nanos, Math::max);
+
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && nanos >= BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+
+        this.buckets[bucket].increment();
+    }
+
+    /**
+     * Resets all counters
+     */
+    void reset() {
+        this.count.reset();
+        this.totalNanos.reset();
+        this.maxNanos.set(0L);
+
+        for (LongAdder bucket : this.buckets) {
+            bucket.reset();
+        }
+    }
+
+    /**
+     * The name of the event
+     *
+     * @return the event name
+     */
+    public String eventName() {
+        return this.eventName;
+    }
+
+    /**
+     * The script, or other source, which owns the handler
+     *
+     * @return the source
+     */
+    public String source() {
+        return this.source;
+    }
+
+    /**
+     * The number of times the handler has been invoked
+     *
+     * @return the invocation count
+     */
+    public long count() {
+        return this.count.sum();
+    }
+
+    /**
+     * The total time spent in the handler
+     *
+     * @return the total time, in nanoseconds
+     */
+    public long totalNanos() {
+        return this.totalNanos.sum();
+    }
+
+    /**
+     * The longest single invocation of the handler
+     *
+     * @return the maximum time, in nanoseconds
+     */
+    public long maxNanos() {
+        return this.maxNanos.get();
+    }
+
+    /**
+     * Writes the statistics as a JSON object
+     *
+     * @param jsonObject the stringer to write to
+     */
+    public void toJSON(JSONStringer jsonObject) {
+        long c = this.count();
+        long total = this.totalNanos();
+        jsonObject.object().key("event").value(this.eventName).key("source").value(this.source).key("count").value(c)
+            .key("totalMs").value(total / 1_000_000.0).key("avgMs").value(c == 0 ? 0.0 : (total / 1_000_000.0) / c)
+            .key("maxMs").value(this.maxNanos() / 1_000_000.0).key("histogram").object();
+
+        for (int i = 0; i < this.buckets.length; i++) {
+            jsonObject.key(BUCKET_LABELS[i]).value(this.buckets[i].sum());
+        }
+
+        jsonObject.endObject().endObject();
+    }
+
+    @Override
+    public String toString() {
+        long c = this.count();
+        long total = this.totalNanos();
+        StringBuilder sb = new StringBuilder(String.format("%s [%s]: count=%d total=%.1fms avg=%.3fms max=%.3fms", this.eventName, this.source,
+            c, total / 1_000_000.0, c == 0 ? 0.0 : (total / 1_000_000.0) / c, this.maxNanos() / 1_000_000.0));
+
+        for (int i = 0; i < this.buckets.length; i++) {
+            sb.append(' ').append(BUCKET_LABELS[i]).append('=').append(this.buckets[i].sum());
+        }
+
+        return sb.toString();
+    }
+}
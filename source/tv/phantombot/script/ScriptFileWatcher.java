@@ -16,17 +16,58 @@
  */
 package tv.phantombot.script;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
+import tv.phantombot.CaselessProperties;
+
+/**
+ * Reloads scripts when their files are modified
+ * <p>
+ * The directories containing loaded scripts are registered with a {@link WatchService}, so the watcher thread sleeps until a file
+ * changes. Events are debounced until the directories have been quiet for {@link #DEBOUNCE_MS}, then each changed script is reloaded
+ * once. Scripts on filesystems which do not deliver native watch events are instead polled every {@link #POLL_MS}
+ */
 public class ScriptFileWatcher implements Runnable {
 
+    /**
+     * How long the watched directories must be quiet before the pending changes are reloaded
+     */
+    private static final long DEBOUNCE_MS = 150L;
+    /**
+     * How often scripts which can not be watched are polled for changes
+     */
+    private static final long POLL_MS = 1000L;
     private static ScriptFileWatcher instance;
-    private final List<Script> scripts = new CopyOnWriteArrayList<>();
+    /**
+     * Scripts which are watched, keyed by their absolute path
+     */
+    private final Map<Path, Script> scripts = new ConcurrentHashMap<>();
+    /**
+     * Scripts which must be polled because their directory could not be watched
+     */
+    private final List<Script> polled = new CopyOnWriteArrayList<>();
+    /**
+     * Watched directories
+     */
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    private final WatchService watchService;
     private final Thread thread;
-    private boolean isKilled = false;
+    private volatile boolean isKilled = false;
 
     /**
      * Method that returns this object.
@@ -46,18 +87,65 @@ public class ScriptFileWatcher implements Runnable {
     private ScriptFileWatcher() {
         Thread.setDefaultUncaughtExceptionHandler(com.gmt2001.UncaughtExceptionHandler.instance());
 
+        this.watchService = createWatchService();
         this.thread = new Thread(this, "tv.phantombot.script.ScriptFileWatcher::run");
         Thread.setDefaultUncaughtExceptionHandler(com.gmt2001.UncaughtExceptionHandler.instance());
+        this.thread.setDaemon(true);
         this.thread.start();
     }
 
+    /**
+     * Creates a watch service for the default filesystem
+     *
+     * @return the watch service; {@code null} if native watch events are unavailable or polling is forced
+     */
+    private static WatchService createWatchService() {
+        /**
+         * @botproperty scriptwatchpoll - If `true`, scripts are polled for changes instead of using filesystem watch events. Enable this if script changes are not detected, such as on some network or container mounts. Requires `reloadscripts`. Default `false`
+         * @botpropertycatsort scriptwatchpoll 75 50 Misc
+         * @botpropertyrestart scriptwatchpoll
+         */
+        if (CaselessProperties.instance().getPropertyAsBoolean("scriptwatchpoll", false)) {
+            return null;
+        }
+
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+
+            /* The JDK falls back to a slow polling implementation where the OS has no native support; our own poll is more responsive */
+            if (service.getClass().getSimpleName().equals("PollingWatchService")) {
+                service.close();
+                return null;
+            }
+
+            return service;
+        } catch (IOException | UnsupportedOperationException ex) {
+            com.gmt2001.Console.debug.printStackTrace(ex);
+            return null;
+        }
+    }
+
     /**
      * Method to add scripts to the array list.
      *
      * @param script - Script to be reloaded.
      */
     public void addScript(Script script) {
-        scripts.add(script);
+        Path path = script.getFile().toPath().toAbsolutePath().normalize();
+
+        if (this.watchService != null && path.getParent() != null) {
+            try {
+                WatchKey key = path.getParent().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                this.keys.putIfAbsent(key, path.getParent());
+                this.scripts.put(path, script);
+                return;
+            } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException ex) {
+                com.gmt2001.Console.debug.printStackTrace(ex);
+            }
+        }
+
+        this.polled.add(script);
     }
 
     /**
@@ -65,34 +153,127 @@ public class ScriptFileWatcher implements Runnable {
      */
     public void kill() {
         this.isKilled = true;
+
+        if (this.watchService != null) {
+            try {
+                this.watchService.close();
+            } catch (IOException ex) {
+                com.gmt2001.Console.debug.printStackTrace(ex);
+            }
+        }
+
+        this.thread.interrupt();
     }
 
     /**
      * Method that runs on a new thread to reload scripts.
      */
-    @SuppressWarnings("SleepWhileInLoop")
     @Override
     public void run() {
-        while (!isKilled) {
+        Set<Path> pending = new LinkedHashSet<>();
+        long nextPoll = System.currentTimeMillis() + POLL_MS;
+        long pendingSince = 0L;
+
+        while (!this.isKilled) {
             try {
-                for (int i = 0; i < scripts.size(); i++) {
-                    Script script = scripts.get(i);
-                    File file = script.getFile();
-
-                    if (script.isKilled()) {
-                        scripts.remove(i);
-                    } else {
-                        if (file.lastModified() != script.getLastModified()) {
-                            script.setLastModified(file.lastModified());
-                            script.reload();
-                        }
+                WatchKey key;
+                if (this.watchService == null) {
+                    Thread.sleep(POLL_MS);
+                    key = null;
+                } else if (!pending.isEmpty()) {
+                    key = this.watchService.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+                } else if (!this.polled.isEmpty()) {
+                    key = this.watchService.poll(Math.max(1L, nextPoll - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                } else {
+                    key = this.watchService.take();
+                }
+
+                if (key != null) {
+                    if (pending.isEmpty()) {
+                        pendingSince = System.currentTimeMillis();
                     }
-                    // Sleep a bit here to not grind the user's CPU.
-                    Thread.sleep(1);
+
+                    this.collect(key, pending);
+
+                    /* Keep debouncing while events arrive, but do not let a continuously written file delay reloads indefinitely */
+                    if (System.currentTimeMillis() - pendingSince < POLL_MS) {
+                        continue;
+                    }
+                }
+
+                if (!pending.isEmpty()) {
+                    List<Script> changed = new ArrayList<>();
+                    pending.forEach(path -> {
+                        Script script = this.scripts.get(path);
+                        if (script != null) {
+                            changed.add(script);
+                        }
+                    });
+                    pending.clear();
+                    this.reloadIfModified(changed);
+                }
+
+                if (!this.polled.isEmpty() && System.currentTimeMillis() >= nextPoll) {
+                    this.reloadIfModified(this.polled);
+                    nextPoll = System.currentTimeMillis() + POLL_MS;
+                }
+            } catch (ClosedWatchServiceException ex) {
+                return;
+            } catch (InterruptedException ex) {
+                if (!this.isKilled) {
+                    com.gmt2001.Console.err.printStackTrace(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the paths of scripts which were created or modified in a watched directory to the pending set
+     *
+     * @param key the signalled key
+     * @param pending the pending set
+     */
+    private void collect(WatchKey key, Set<Path> pending) {
+        Path dir = this.keys.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dir != null && event.kind() != StandardWatchEventKinds.OVERFLOW) {
+                Path path = dir.resolve((Path) event.context());
+                if (this.scripts.containsKey(path)) {
+                    pending.add(path);
+                }
+            } else if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                /* Events were lost, so check every script in the directory */
+                this.scripts.keySet().stream().filter(path -> dir == null || dir.equals(path.getParent())).forEach(pending::add);
+            }
+        }
+
+        if (!key.reset()) {
+            this.keys.remove(key);
+        }
+    }
+
+    /**
+     * Reloads each script whose file modification time has changed, and forgets scripts which have been killed
+     *
+     * @param candidates the scripts to check
+     */
+    private void reloadIfModified(List<Script> candidates) {
+        for (Script script : candidates) {
+            if (script.isKilled()) {
+                this.scripts.remove(script.getFile().toPath().toAbsolutePath().normalize(), script);
+                this.polled.remove(script);
+                continue;
+            }
+
+            long lastModified = script.getFile().lastModified();
+            if (lastModified != script.getLastModified()) {
+                script.setLastModified(lastModified);
+                try {
+                    script.reload();
+                } catch (IOException ex) {
+                    com.gmt2001.Console.err.printStackTrace(ex);
                 }
-                Thread.sleep(100);
-            } catch (IOException | InterruptedException ex) {
-                com.gmt2001.Console.err.printStackTrace(ex);
             }
         }
     }
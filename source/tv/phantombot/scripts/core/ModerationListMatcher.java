@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.scripts.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.gmt2001.PatternDetector;
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.util.AhoCorasick;
+
+/**
+ * Matches chat messages against the blacklist and the links whitelist of {@code chatModerator.js}
+ * <p>
+ * Plain blacklist phrases and whitelist entries are compiled into {@link AhoCorasick} automatons, and blacklist regexes are combined into a
+ * single alternation which is tested before the individual regexes, so that a message which matches nothing is scanned once per list type.
+ * The lists are rebuilt on the next match after the {@code blackList} or {@code whiteList} table is written
+ */
+public final class ModerationListMatcher {
+
+    private static final ModerationListMatcher INSTANCE = new ModerationListMatcher();
+    /**
+     * Detects regexes containing backreferences, which can not be combined into an alternation as the group numbers would shift
+     */
+    private static final Pattern BACKREFERENCE = Pattern.compile("\\\\(?:[1-9]|k<)");
+    private final AtomicLong blacklistVersion = new AtomicLong(0L);
+    private final AtomicLong whitelistVersion = new AtomicLong(0L);
+    private volatile Blacklist blacklist = null;
+    private volatile Whitelist whitelist = null;
+
+    /**
+     * Provides an instance of {@link ModerationListMatcher}
+     *
+     * @return an instance of {@link ModerationListMatcher}
+     */
+    public static ModerationListMatcher instance() {
+        return INSTANCE;
+    }
+
+    private ModerationListMatcher() {
+        DataStore.instance().addWriteListener("blackList", key -> this.blacklistVersion.incrementAndGet());
+        DataStore.instance().addWriteListener("whiteList", key -> this.whitelistVersion.incrementAndGet());
+    }
+
+    /**
+     * Forces both lists to be reloaded from the database on the next match
+     */
+    public void reload() {
+        this.blacklistVersion.incrementAndGet();
+        this.whitelistVersion.incrementAndGet();
+    }
+
+    /**
+     * Finds the first blacklist entry, in database order, which matches the message
+     *
+     * @param message the lowercased message
+     * @return the JSON of the matching entry, as stored in the {@code blackList} table; {@code null} if none match
+     */
+    public String matchBlacklist(String message) {
+        Blacklist list = this.blacklist;
+        long version = this.blacklistVersion.get();
+
+        if (list == null || list.version != version) {
+            list = loadBlacklist(version);
+            this.blacklist = list;
+        }
+
+        int best = list.phrases.firstPattern(message);
+        best = best < 0 ? Integer.MAX_VALUE : list.phraseEntry[best];
+        Boolean combinedFound = null;
+
+        for (int i = 0; i < list.regexes.length && list.regexEntry[i] < best; i++) {
+            if (list.combinable[i]) {
+                if (combinedFound == null) {
+                    combinedFound = list.combined.matcher(message).find();
+                }
+
+                if (!combinedFound) {
+                    continue;
+                }
+            }
+
+            if (list.regexes[i].matcher(message).find()) {
+                best = list.regexEntry[i];
+                break;
+            }
+        }
+
+        return best == Integer.MAX_VALUE ? null : list.json[best];
+    }
+
+    /**
+     * Indicates if every link in the message is whitelisted
+     * <p>
+     * A link is whitelisted if a whitelist entry occurs in it across the end of the domain, such as {@code example.com} in
+     * {@code https://www.example.com/path}
+     *
+     * @param message the lowercased message
+     * @return {@code true} if the whitelist is not empty and every link is whitelisted
+     */
+    public boolean isWhitelisted(String message) {
+        Whitelist list = this.whitelist;
+        long version = this.whitelistVersion.get();
+
+        if (list == null || list.version != version) {
+            list = loadWhitelist(version);
+            this.whitelist = list;
+        }
+
+        if (list.size == 0) {
+            return false;
+        }
+
+        for (String link : PatternDetector.getLinks(message)) {
+            int base = baseLength(link);
+            boolean[] found = { false };
+
+            list.links.forEachMatch(link, (pattern, start, end) -> {
+                found[0] = start < base && end >= base;
+                return !found[0];
+            });
+
+            if (!found[0]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the length of the part of a link up to the end of the domain, which is everything before the first slash that follows the
+     * first full stop
+     *
+     * @param link the link
+     * @return the length
+     */
+    private static int baseLength(String link) {
+        int dot = link.indexOf('.');
+
+        if (dot < 0) {
+            return link.length();
+        }
+
+        int slash = link.indexOf('/', dot);
+        return slash < 0 ? link.length() : slash;
+    }
+
+    /**
+     * Loads and compiles the blacklist
+     *
+     * @param version the version of the table being loaded
+     * @return the compiled blacklist
+     */
+    private static Blacklist loadBlacklist(long version) {
+        List<String> json = new ArrayList<>();
+        List<String> phrases = new ArrayList<>();
+        List<Integer> phraseEntry = new ArrayList<>();
+        List<Pattern> regexes = new ArrayList<>();
+        List<Integer> regexEntry = new ArrayList<>();
+        List<Boolean> combinable = new ArrayList<>();
+        StringBuilder combined = new StringBuilder();
+
+        for (String key : DataStore.instance().GetKeyList("blackList", "")) {
+            String value = DataStore.instance().GetString("blackList", "", key);
+            JSONObject entry;
+
+            try {
+                entry = value == null ? null : new JSONObject(value);
+            } catch (JSONException ex) {
+                com.gmt2001.Console.debug.printStackTrace(ex);
+                continue;
+            }
+
+            if (entry == null) {
+                continue;
+            }
+
+            String phrase = entry.optString("phrase", "");
+
+            if (entry.optBoolean("isRegex", false)) {
+                String regex = phrase.replaceFirst(Pattern.quote("regex:"), "");
+
+                try {
+                    regexes.add(Pattern.compile(regex));
+                } catch (PatternSyntaxException ex) {
+                    com.gmt2001.Console.debug.println("Skipping blacklist regex which failed to compile: " + regex);
+                    continue;
+                }
+
+                boolean canCombine = !BACKREFERENCE.matcher(regex).find();
+                regexEntry.add(json.size());
+                combinable.add(canCombine);
+
+                if (canCombine) {
+                    combined.append(combined.length() == 0 ? "" : "|").append("(?:").append(regex).append(')');
+                }
+            } else {
+                phrases.add(phrase.toLowerCase(Locale.ROOT));
+                phraseEntry.add(json.size());
+            }
+
+            json.add(value);
+        }
+
+        Pattern combinedPattern;
+        try {
+            combinedPattern = Pattern.compile(combined.toString());
+        } catch (PatternSyntaxException ex) {
+            /* An entry only compiles on its own, such as one with a dangling flag group; test every regex individually */
+            combinedPattern = Pattern.compile("");
+            combinable.replaceAll(b -> false);
+        }
+
+        boolean[] canCombine = new boolean[combinable.size()];
+        for (int i = 0; i < canCombine.length; i++) {
+            canCombine[i] = combinable.get(i);
+        }
+
+        return new Blacklist(version, json.toArray(String[]::new), new AhoCorasick(phrases), phraseEntry.stream().mapToInt(Integer::intValue).toArray(),
+                combinedPattern, regexes.toArray(Pattern[]::new), regexEntry.stream().mapToInt(Integer::intValue).toArray(), canCombine);
+    }
+
+    /**
+     * Loads and compiles the whitelist
+     *
+     * @param version the version of the table being loaded
+     * @return the compiled whitelist
+     */
+    private static Whitelist loadWhitelist(long version) {
+        String[] keys = DataStore.instance().GetKeyList("whiteList", "");
+        List<String> links = new ArrayList<>();
+
+        for (String key : keys) {
+            /* An empty entry can never span the end of the domain */
+            if (!key.isEmpty()) {
+                links.add(key);
+            }
+        }
+
+        return new Whitelist(version, keys.length, new AhoCorasick(links));
+    }
+
+    /**
+     * A compiled blacklist
+     *
+     * @param version the version of the table this was loaded from
+     * @param json the JSON of each entry, in database order
+     * @param phrases the automaton of the plain phrases
+     * @param phraseEntry the index in {@code json} of each plain phrase
+     * @param combined the alternation of the combinable regexes
+     * @param regexes the regexes, in database order
+     * @param regexEntry the index in {@code json} of each regex
+     * @param combinable if each regex is part of {@code combined}
+     */
+    private record Blacklist(long version, String[] json, AhoCorasick phrases, int[] phraseEntry, Pattern combined, Pattern[] regexes,
+            int[] regexEntry, boolean[] combinable) {
+    }
+
+    /**
+     * A compiled whitelist
+     *
+     * @param version the version of the table this was loaded from
+     * @param size the number of entries
+     * @param links the automaton of the entries
+     */
+    private record Whitelist(long version, int size, AhoCorasick links) {
+    }
+}
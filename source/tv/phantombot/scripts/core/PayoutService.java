@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.scripts.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.twitch.cache.Viewer;
+import com.gmt2001.twitch.cache.ViewerCache;
+import com.gmt2001.util.concurrent.ExecutorService;
+
+import tv.phantombot.cache.PermissionService;
+import tv.phantombot.cache.TwitchCache;
+import tv.phantombot.script.ScriptEventManager;
+
+/**
+ * Pays out the watch time of {@code timeSystem.js} and the points of {@code pointSystem.js} to the viewers in chat
+ * <p>
+ * Both payouts share a single pass over the chatters once per minute. Users are grouped by the amount they receive, and each table is updated
+ * with one batched statement per group inside a single transaction. The scripts push their settings here whenever they change
+ */
+public final class PayoutService {
+
+    private static final PayoutService INSTANCE = new PayoutService();
+    private static final String POINTS_MODULE = "./systems/pointSystem.js";
+    private static final String SUBSCRIBER = "Subscriber";
+    /**
+     * The time, in milliseconds since the epoch, at which the penalty of each user expires
+     */
+    private final Map<String, Long> penalties = new ConcurrentHashMap<>();
+    private volatile ScheduledFuture<?> future = null;
+    private volatile boolean timeEnabled = false;
+    private volatile boolean keepTimeWhenOffline = true;
+    private volatile boolean pointsEnabled = false;
+    private volatile int onlineGain = 1;
+    private volatile int offlineGain = 1;
+    private volatile int onlineInterval = 10;
+    private volatile int offlineInterval = 0;
+    private volatile int activeBonus = 0;
+    private volatile int bonus = 0;
+    private volatile long bonusExpires = 0L;
+    /**
+     * The points payout interval which was in effect on the previous tick
+     */
+    private int lastInterval = -1;
+    /**
+     * The minutes elapsed since the last points payout
+     */
+    private int elapsed = 0;
+
+    /**
+     * Provides an instance of {@link PayoutService}
+     *
+     * @return an instance of {@link PayoutService}
+     */
+    public static PayoutService instance() {
+        return INSTANCE;
+    }
+
+    private PayoutService() {
+    }
+
+    /**
+     * Starts the payout timer, if it is not already running
+     */
+    private synchronized void start() {
+        if (this.future == null) {
+            this.future = ExecutorService.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Configures the watch time payout, this is used from {@code timeSystem.js}
+     *
+     * @param keepTimeWhenOffline if {@code true}, time is also paid while the stream is offline
+     */
+    public void setTime(boolean keepTimeWhenOffline) {
+        this.keepTimeWhenOffline = keepTimeWhenOffline;
+        this.timeEnabled = true;
+        this.start();
+    }
+
+    /**
+     * Configures the points payout, this is used from {@code pointSystem.js}
+     *
+     * @param onlineGain the default amount paid while the stream is online
+     * @param offlineGain the default amount paid while the stream is offline
+     * @param onlineInterval the minutes between payouts while the stream is online; {@code 0} to disable
+     * @param offlineInterval the minutes between payouts while the stream is offline; {@code 0} to disable
+     * @param activeBonus the amount added for users who have chatted recently, while the stream is online
+     */
+    public void setPoints(int onlineGain, int offlineGain, int onlineInterval, int offlineInterval, int activeBonus) {
+        this.onlineGain = onlineGain;
+        this.offlineGain = offlineGain;
+        this.onlineInterval = onlineInterval;
+        this.offlineInterval = offlineInterval;
+        this.activeBonus = activeBonus;
+        this.pointsEnabled = true;
+        this.start();
+    }
+
+    /**
+     * Adds an amount to every points payout for a limited time
+     *
+     * @param amount the amount
+     * @param durationMs the duration, in milliseconds
+     */
+    public void setBonus(int amount, long durationMs) {
+        this.bonus = amount;
+        this.bonusExpires = System.currentTimeMillis() + durationMs;
+    }
+
+    /**
+     * Prevents a user from receiving points for a limited time
+     *
+     * @param username the login name of the user
+     * @param durationMs the duration, in milliseconds
+     */
+    public void setPenalty(String username, long durationMs) {
+        this.penalties.put(username.toLowerCase(Locale.ROOT), System.currentTimeMillis() + durationMs);
+    }
+
+    /**
+     * Indicates if a user is currently prevented from receiving points
+     *
+     * @param username the login name of the user
+     * @return {@code true} if the user has a penalty which has not expired
+     */
+    public boolean hasPenalty(String username) {
+        Long expires = this.penalties.get(username.toLowerCase(Locale.ROOT));
+
+        if (expires == null) {
+            return false;
+        }
+
+        if (expires > System.currentTimeMillis()) {
+            return true;
+        }
+
+        this.penalties.remove(username.toLowerCase(Locale.ROOT), expires);
+        return false;
+    }
+
+    /**
+     * Runs once per minute, paying time every minute and points on their interval
+     */
+    private synchronized void tick() {
+        try {
+            boolean isOnline = TwitchCache.instance().isStreamOnline();
+            boolean payTime = this.timeEnabled && (isOnline || this.keepTimeWhenOffline);
+            boolean payPoints = false;
+
+            if (this.pointsEnabled && ScriptEventManager.instance().isModuleEnabled(POINTS_MODULE)) {
+                int interval = isOnline ? this.onlineInterval : this.offlineInterval;
+
+                if (interval != this.lastInterval) {
+                    this.lastInterval = interval;
+                    this.elapsed = 0;
+                }
+
+                if (interval > 0 && ++this.elapsed >= interval) {
+                    this.elapsed = 0;
+                    payPoints = true;
+                }
+            } else {
+                this.lastInterval = -1;
+            }
+
+            if (!payTime && !payPoints) {
+                return;
+            }
+
+            List<String> chatters = new ArrayList<>();
+            for (Viewer viewer : ViewerCache.instance().chatters()) {
+                chatters.add(viewer.login().toLowerCase(Locale.ROOT));
+            }
+
+            if (chatters.isEmpty()) {
+                return;
+            }
+
+            if (payTime) {
+                DataStore.instance().IncreaseBatchString("time", "", Map.of(60, chatters));
+            }
+
+            if (payPoints) {
+                this.payPoints(chatters, isOnline);
+            }
+        } catch (Exception ex) {
+            com.gmt2001.Console.err.printStackTrace(ex);
+        }
+    }
+
+    /**
+     * Pays points to the chatters
+     *
+     * @param chatters the lowercase login names of the chatters
+     * @param isOnline {@code true} if the stream is online
+     */
+    private void payPoints(List<String> chatters, boolean isOnline) {
+        int defaultGain = Math.max(isOnline ? this.onlineGain : this.offlineGain, 0);
+        int active = isOnline ? this.activeBonus : 0;
+        int tempBonus = this.bonusExpires > System.currentTimeMillis() ? Math.max(this.bonus, 0) : 0;
+        Set<String> activeChatters = new HashSet<>();
+
+        if (active > 0) {
+            for (Viewer viewer : ViewerCache.instance().activeChatters()) {
+                activeChatters.add(viewer.login().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        String table = "grouppoints" + (isOnline ? "" : "offline");
+        Map<Integer, String> groupNames = new HashMap<>();
+        Map<String, Integer> groupGains = new HashMap<>();
+        Map<Integer, List<String>> amounts = new HashMap<>();
+
+        for (String username : chatters) {
+            if (this.hasPenalty(username)) {
+                continue;
+            }
+
+            String group = groupNames.computeIfAbsent(PermissionService.instance().getUserGroupId(username),
+                    id -> DataStore.instance().GetString("groups", "", Integer.toString(id), "Viewer"));
+            int amount = groupGains.computeIfAbsent(group, g -> (int) DataStore.instance().GetLong(table, "", g, -1L));
+
+            if (group.equals(SUBSCRIBER)) {
+                String plan = DataStore.instance().GetString("subplan", "", username);
+
+                if (plan != null) {
+                    final int fallback = amount;
+                    amount = groupGains.computeIfAbsent(SUBSCRIBER + plan, g -> (int) DataStore.instance().GetLong(table, "", g, fallback));
+                }
+            }
+
+            if (amount < 0) {
+                amount = defaultGain;
+            }
+
+            if (activeChatters.contains(username)) {
+                amount += active;
+            }
+
+            amount += tempBonus;
+
+            if (amount > 0) {
+                amounts.computeIfAbsent(amount, k -> new ArrayList<>()).add(username);
+            }
+        }
+
+        DataStore.instance().IncreaseBatchString("points", "", amounts);
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.scripts.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.util.concurrent.ExecutorService;
+
+/**
+ * Counts the words tracked by {@code wordCounter.js} in chat messages
+ * <p>
+ * The tracked words are kept in memory and are reloaded on the next message after the {@code wordCounter} table is written. Words made only of
+ * word characters are looked up while tokenizing the message once; other entries are matched with a precompiled regex. Counts are accumulated
+ * in memory and written to the {@code wordCounter} table in one batch every few seconds
+ */
+public final class WordCounterService {
+
+    private static final WordCounterService INSTANCE = new WordCounterService();
+    private static final String TABLE = "wordCounter";
+    /**
+     * The interval between writes of the accumulated counts
+     */
+    private static final long FLUSH_INTERVAL_SECONDS = 30L;
+    private final AtomicLong version = new AtomicLong(0L);
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private volatile Words words = null;
+    private ScheduledFuture<?> future = null;
+
+    /**
+     * Provides an instance of {@link WordCounterService}
+     *
+     * @return an instance of {@link WordCounterService}
+     */
+    public static WordCounterService instance() {
+        return INSTANCE;
+    }
+
+    private WordCounterService() {
+        DataStore.instance().addWriteListener(TABLE, key -> this.version.incrementAndGet());
+    }
+
+    /**
+     * Counts the first tracked word, in database order, which occurs in the message
+     *
+     * @param message the chat message
+     */
+    public void count(String message) {
+        String word = this.match(message);
+
+        if (word != null) {
+            this.pending.merge(word, 1L, Long::sum);
+            this.start();
+        }
+    }
+
+    /**
+     * Finds the first tracked word, in database order, which occurs in the message
+     *
+     * @param message the chat message
+     * @return the word, as stored in the {@code wordCounter} table; {@code null} if none occur
+     */
+    public String match(String message) {
+        Words list = this.words();
+
+        if (list.keys().length == 0) {
+            return null;
+        }
+
+        String lower = message.toLowerCase(Locale.ROOT);
+        int best = Integer.MAX_VALUE;
+        int length = lower.length();
+        int start = -1;
+
+        for (int i = 0; i <= length; i++) {
+            if (i < length && isWordChar(lower.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                Integer index = list.tokens().get(lower.substring(start, i));
+
+                if (index != null && index < best) {
+                    best = index;
+                }
+
+                start = -1;
+            }
+        }
+
+        for (int i = 0; i < list.patterns().length && list.patternEntry()[i] < best; i++) {
+            if (list.patterns()[i].matcher(lower).find()) {
+                best = list.patternEntry()[i];
+                break;
+            }
+        }
+
+        return best == Integer.MAX_VALUE ? null : list.keys()[best];
+    }
+
+    /**
+     * Writes the accumulated counts to the {@code wordCounter} table
+     * <p>
+     * Counts of words which are no longer tracked are discarded
+     */
+    public synchronized void flush() {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        Words list = this.words();
+        Map<Integer, List<String>> amounts = new HashMap<>();
+
+        for (String word : new ArrayList<>(this.pending.keySet())) {
+            Long amount = this.pending.remove(word);
+
+            if (amount != null && list.tracked(word)) {
+                amounts.computeIfAbsent((int) Math.min(amount, Integer.MAX_VALUE), k -> new ArrayList<>()).add(word);
+            }
+        }
+
+        if (!amounts.isEmpty()) {
+            DataStore.instance().IncreaseBatchString(TABLE, "", amounts);
+        }
+    }
+
+    /**
+     * Returns the compiled tracked words, reloading them if the table has been written since they were loaded
+     *
+     * @return the compiled words
+     */
+    private Words words() {
+        Words list = this.words;
+        long current = this.version.get();
+
+        if (list == null || list.version() != current) {
+            list = load(current);
+            this.words = list;
+        }
+
+        return list;
+    }
+
+    /**
+     * Starts the flush timer, if it is not already running
+     */
+    private synchronized void start() {
+        if (this.future == null) {
+            this.future = ExecutorService.scheduleAtFixedRate(() -> {
+                try {
+                    this.flush();
+                } catch (Exception ex) {
+                    com.gmt2001.Console.err.printStackTrace(ex);
+                }
+            }, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Indicates if a character is a word character, as defined by {@code \w} in JavaScript
+     *
+     * @param c the character
+     * @return {@code true} if the character is {@code [A-Za-z0-9_]}
+     */
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Loads and compiles the tracked words
+     *
+     * @param version the version of the table being loaded
+     * @return the compiled words
+     */
+    private static Words load(long version) {
+        String[] keys = DataStore.instance().GetKeyList(TABLE, "");
+        Map<String, Integer> tokens = new HashMap<>();
+        List<Pattern> patterns = new ArrayList<>();
+        List<Integer> patternEntry = new ArrayList<>();
+
+        for (int i = 0; i < keys.length; i++) {
+            String key = keys[i].toLowerCase(Locale.ROOT);
+
+            if (key.isEmpty()) {
+                continue;
+            }
+
+            if (key.chars().allMatch(c -> isWordChar((char) c))) {
+                tokens.putIfAbsent(key, i);
+            } else {
+                Pattern pattern;
+
+                try {
+                    pattern = Pattern.compile("\\b" + key + "\\b", Pattern.CASE_INSENSITIVE);
+                } catch (PatternSyntaxException ex) {
+                    pattern = Pattern.compile("\\b" + Pattern.quote(key) + "\\b", Pattern.CASE_INSENSITIVE);
+                }
+
+                patterns.add(pattern);
+                patternEntry.add(i);
+            }
+        }
+
+        return new Words(version, keys, tokens, patterns.toArray(Pattern[]::new), patternEntry.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * The compiled tracked words
+     *
+     * @param version the version of the table this was loaded from
+     * @param keys the words, in database order
+     * @param tokens the index in {@code keys} of each word made only of word characters, by lowercase word
+     * @param patterns the regexes of the other words, in database order
+     * @param patternEntry the index in {@code keys} of each regex
+     */
+    private record Words(long version, String[] keys, Map<String, Integer> tokens, Pattern[] patterns, int[] patternEntry) {
+        /**
+         * Indicates if a word is still tracked
+         *
+         * @param word the word, as stored in the {@code wordCounter} table
+         * @return {@code true} if the word is in {@code keys}
+         */
+        boolean tracked(String word) {
+            for (String key : this.keys) {
+                if (key.equals(word)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+}
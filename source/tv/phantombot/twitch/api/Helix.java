@@ -93,6 +93,9 @@ public class Helix {
     private int maxRateLimit = 120;
     private String oAuthToken = null;
     private final Queue<Mono<JSONObject>> requestQueue = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<HelixScheduler.Priority> backgroundPriority = new ThreadLocal<>();
+    private final HelixScheduler scheduler;
+    private final HelixUserBatcher userBatcher = new HelixUserBatcher(this::getUsersDirectAsync);
     @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
     private final ConcurrentMap<String, CallRequest> calls = new ConcurrentHashMap<>();
     private final ReentrantLock lock = new ReentrantLock();
@@ -100,6 +103,12 @@ public class Helix {
 
     private Helix() {
         Thread.setDefaultUncaughtExceptionHandler(com.gmt2001.UncaughtExceptionHandler.instance());
+        /**
+         * @botproperty helixmaxinflight - The maximum number of Twitch Helix API requests which are executed at the same time. Default `8`
+         * @botpropertycatsort helixmaxinflight 900 20 Twitch
+         * @botpropertyrestart helixmaxinflight
+         */
+        this.scheduler = new HelixScheduler(Math.max(1, CaselessProperties.instance().getPropertyAsInt("helixmaxinflight", 8)), RATELIMIT_DEFMAX);
         ExecutorService.schedule(() -> {
             ExecutorService.scheduleWithFixedDelay(Helix.instance()::processQueue, QUEUE_TIME, QUEUE_TIME, TimeUnit.MILLISECONDS);
         }, 1000, TimeUnit.MILLISECONDS);
@@ -119,69 +128,66 @@ public class Helix {
         maxRateLimit = maxLimit;
         remainingRateLimit = limit;
         rateLimitResetEpoch = reset;
+        this.scheduler.update(maxLimit, limit);
     }
 
     /**
-     * The maximum value of {@link #remainingRateLimit()}
-     * @return The max rate limit
-     */
-    public int maxRateLimit() {
-        return this.maxRateLimit;
-    }
-
-    /**
-     * The remaining rate limit for Helix
-     * @return The remaining rate limit
+     * Returns human-readable queue depth, in-flight count, and wait time statistics for the request scheduler
+     *
+     * @return the statistics
      */
-    public int remainingRateLimit() {
-        return this.remainingRateLimit;
+    public List<String> schedulerStats() {
+        List<String> stats = this.scheduler.stats();
+        stats.add(this.userBatcher.stats());
+        return stats;
     }
 
     /**
-     * Method that gets the reset time for the rate limit.
+     * Calls the supplier such that any Helix requests it creates on the current thread are scheduled as background refreshes, which are
+     * executed after other requests and leave part of the rate limit for them
      *
-     * @return The timestamp when the ratelimit resets
+     * @param <T> the return type of the supplier
+     * @param supplier the supplier which creates the requests
+     * @return the value returned by the supplier
      */
-    private synchronized long getLimitResetTime() {
-        return rateLimitResetEpoch;
+    public static <T> T background(Supplier<T> supplier) {
+        HelixScheduler.Priority previous = backgroundPriority.get();
+        backgroundPriority.set(HelixScheduler.Priority.LOW);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                backgroundPriority.remove();
+            } else {
+                backgroundPriority.set(previous);
+            }
+        }
     }
 
     /**
-     * Method that gets the current rate limit.
-     *
-     * @return The remaining rate limit
+     * The maximum value of {@link #remainingRateLimit()}
+     * @return The max rate limit
      */
-    private synchronized int getRemainingRateLimit() {
-        return remainingRateLimit;
+    public int maxRateLimit() {
+        return this.maxRateLimit;
     }
 
     /**
-     * Method that checks if we hit the limit.
+     * The remaining rate limit for Helix
+     * @return The remaining rate limit
      */
-    private void checkRateLimit() {
-        if (getRemainingRateLimit() <= 0) {
-            try {
-                // Sleep until a token is returned to the bucket
-                Thread.sleep(System.currentTimeMillis() - (this.getLimitResetTime() / maxRateLimit) + 20);
-            } catch (InterruptedException ex) {
-                com.gmt2001.Console.err.printStackTrace(ex);
-            }
-        }
-    }
-
-    private Mono<Long> waitForRateLimit() {
-        if (getRemainingRateLimit() <= 0) {
-            return Mono.delay(Duration.ofMillis(System.currentTimeMillis() - (this.getLimitResetTime() / maxRateLimit) + 20));
-        }
-
-        return Mono.delay(Duration.ZERO);
+    public int remainingRateLimit() {
+        return this.remainingRateLimit;
     }
 
     private void processQueue() {
         if (!lock.isHeldByCurrentThread() && lock.tryLock()) {
             try {
-                while (!requestQueue.isEmpty()) {
-                    waitForRateLimit().then(requestQueue.poll()).block();
+                /* Requests which nobody has subscribed to yet are still executed; the scheduler runs them concurrently */
+                Mono<JSONObject> request;
+                while ((request = requestQueue.poll()) != null) {
+                    request.subscribe(jso -> {
+                    }, ex -> com.gmt2001.Console.debug.printStackTrace(ex));
                 }
 
                 Instant d = Instant.now();
@@ -258,8 +264,6 @@ public class Helix {
         JSONObject returnObject = new JSONObject();
         int responseCode = 0;
 
-        this.checkRateLimit();
-
         try {
             if ((this.oAuthToken == null || this.oAuthToken.isBlank()) && (oauth == null || oauth.isBlank())) {
                 throw new IllegalArgumentException("apioauth is required. Try re-authorizing the Broadcaster");
@@ -354,15 +358,22 @@ public class Helix {
         return this.handleRequest(type, endPoint, "", null);
     }
 
+    /**
+     * Returns the priority of queries created on the current thread
+     *
+     * @return {@link HelixScheduler.Priority#LOW} inside {@link #background(Supplier)}; otherwise {@link HelixScheduler.Priority#NORMAL}
+     */
+    private static HelixScheduler.Priority queryPriority() {
+        return backgroundPriority.get() != null ? backgroundPriority.get() : HelixScheduler.Priority.NORMAL;
+    }
+
     private Mono<JSONObject> handleQueryAsync(String callid, Supplier<JSONObject> action) {
+        return this.handleQueryAsync(callid, queryPriority(), action);
+    }
+
+    private Mono<JSONObject> handleQueryAsync(String callid, HelixScheduler.Priority priority, Supplier<JSONObject> action) {
         return calls.computeIfAbsent(this.digest(callid), k -> {
-            Mono<JSONObject> processor = Mono.<JSONObject>create(emitter -> {
-                try {
-                    emitter.success(action.get());
-                } catch (JSONException | IllegalArgumentException ex) {
-                    emitter.error(ex);
-                }
-            }).cache();
+            Mono<JSONObject> processor = this.scheduler.submit(priority, action).cache();
             requestQueue.add(processor);
             return new CallRequest(Instant.now().plusMillis(CACHE_TIME), processor);
         }).processor;
@@ -370,13 +381,7 @@ public class Helix {
 
     private Mono<JSONObject> handleMutatorAsync(String callid, Supplier<JSONObject> action) {
         return calls.computeIfAbsent(this.digest(callid), k -> {
-            Mono<JSONObject> processor = Mono.<JSONObject>create(emitter -> {
-                try {
-                    emitter.success(action.get());
-                } catch (JSONException | IllegalArgumentException ex) {
-                    emitter.error(ex);
-                }
-            }).cache();
+            Mono<JSONObject> processor = this.scheduler.submit(HelixScheduler.Priority.HIGH, action).cache();
             requestQueue.add(processor);
             return new CallRequest(Instant.now().plusMillis(MUTATOR_CACHE_TIME), processor);
         }).processor;
@@ -749,6 +754,25 @@ public class Helix {
      * @throws JSONException
      */
     public Mono<JSONObject> getUsersAsync(@Nullable List<String> id, @Nullable List<String> login) throws JSONException {
+        int keys = (id == null ? 0 : id.size()) + (login == null ? 0 : login.size());
+
+        if (keys > 0 && keys < HelixUserBatcher.MAX_KEYS) {
+            return this.userBatcher.lookup(id, login, queryPriority());
+        }
+
+        return this.getUsersDirectAsync(id, login, queryPriority());
+    }
+
+    /**
+     * Performs a Get Users request without batching
+     *
+     * @param id User ID. Multiple user IDs can be specified. Limit: 100.
+     * @param login User login name. Multiple login names can be specified. Limit: 100.
+     * @param priority The priority of the request in the scheduler
+     * @return A JSONObject with the response
+     * @throws JSONException
+     */
+    private Mono<JSONObject> getUsersDirectAsync(@Nullable List<String> id, @Nullable List<String> login, HelixScheduler.Priority priority) throws JSONException {
         String userIds = null;
 
         if (id != null && !id.isEmpty()) {
@@ -770,7 +794,7 @@ public class Helix {
         String endpoint = "/users" + (userIds != null || userLogins != null ? "?" : "") + this.qspValid("id", userIds)
                 + (both ? "&" : "") + this.qspValid("login", userLogins);
 
-        return this.handleQueryAsync(endpoint, () -> {
+        return this.handleQueryAsync(endpoint, priority, () -> {
             return this.handleRequest(HttpMethod.GET, endpoint);
         });
     }
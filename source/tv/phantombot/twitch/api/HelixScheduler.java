@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.twitch.api;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.json.JSONObject;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Executes Helix requests concurrently, up to a maximum number in flight, while spending the Helix rate limit bucket
+ * <p>
+ * The bucket is tracked as a token bucket which is reset from the {@code Ratelimit-Remaining} header of each response, and refills
+ * continuously between responses. Each {@link Priority} holds back a fraction of the bucket, so that background refreshes can not starve
+ * moderation actions and user-facing queries of points
+ */
+final class HelixScheduler {
+    /**
+     * The number of milliseconds for the rate limit bucket to refill completely
+     */
+    private static final double REFILL_MS = 60000.0;
+    /**
+     * The minimum delay before re-checking the bucket when a request is waiting for points
+     */
+    private static final long MIN_WAKEUP_MS = 10L;
+    private final int maxInFlight;
+    private final Map<Priority, ArrayDeque<Task>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, PriorityStats> stats = new EnumMap<>(Priority.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private int inFlight = 0;
+    private double tokens;
+    private int maxTokens;
+    private long refilled = System.nanoTime();
+    /**
+     * The pending re-check of the bucket, if any, and the {@link System#nanoTime()} at which it fires
+     */
+    private Disposable wakeup = null;
+    private long wakeupAt = 0L;
+
+    /**
+     * The scheduling class of a request
+     */
+    enum Priority {
+        /**
+         * Mutators, such as moderation actions; may use the entire bucket
+         */
+        HIGH(0.0),
+        /**
+         * Queries; leaves 10% of the bucket for {@link #HIGH}
+         */
+        NORMAL(0.1),
+        /**
+         * Background refreshes; leaves 50% of the bucket for other requests
+         */
+        LOW(0.5);
+
+        private final double reserve;
+
+        Priority(double reserve) {
+            this.reserve = reserve;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxInFlight the maximum number of requests to execute at the same time
+     * @param maxTokens the initial size of the rate limit bucket
+     */
+    HelixScheduler(int maxInFlight, int maxTokens) {
+        this.maxInFlight = maxInFlight;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+
+        for (Priority priority : Priority.values()) {
+            this.queues.put(priority, new ArrayDeque<>());
+            this.stats.put(priority, new PriorityStats());
+        }
+    }
+
+    /**
+     * Creates a {@link Mono} which queues the action when subscribed, and emits its result once it has been executed
+     *
+     * @param priority the priority of the request
+     * @param action the action which performs the request
+     * @return the mono
+     */
+    Mono<JSONObject> submit(Priority priority, Supplier<JSONObject> action) {
+        return Mono.create(emitter -> {
+            this.lock.lock();
+            try {
+                this.queues.get(priority).addLast(new Task(priority, action, emitter, System.nanoTime()));
+                this.stats.get(priority).submitted.increment();
+            } finally {
+                this.lock.unlock();
+            }
+
+            this.drain();
+        });
+    }
+
+    /**
+     * Updates the rate limit bucket from the headers of a response
+     *
+     * @param max the size of the bucket
+     * @param remaining the number of points remaining in the bucket
+     */
+    void update(int max, int remaining) {
+        this.lock.lock();
+        try {
+            this.maxTokens = Math.max(1, max);
+            /* Requests which are still in flight have not yet been counted against the reported value */
+            this.tokens = Math.min(this.maxTokens, remaining) - Math.max(0, this.inFlight - 1);
+            this.refilled = System.nanoTime();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Starts as many queued requests as the in-flight limit and the rate limit bucket allow
+     */
+    private void drain() {
+        List<Task> toRun = new ArrayList<>();
+
+        this.lock.lock();
+        try {
+            this.refill();
+
+            while (this.inFlight < this.maxInFlight) {
+                Task task = null;
+                for (ArrayDeque<Task> queue : this.queues.values()) {
+                    if (!queue.isEmpty()) {
+                        Priority priority = queue.peekFirst().priority;
+                        double needed = (priority.reserve * this.maxTokens) + 1.0;
+
+                        if (this.tokens >= needed) {
+                            task = queue.pollFirst();
+                        } else {
+                            this.scheduleWakeup(Math.max(MIN_WAKEUP_MS, (long) Math.ceil((needed - this.tokens) * REFILL_MS / this.maxTokens)));
+                        }
+
+                        break;
+                    }
+                }
+
+                if (task == null) {
+                    break;
+                }
+
+                this.inFlight++;
+                this.tokens -= 1.0;
+                this.stats.get(task.priority).recordWait(System.nanoTime() - task.queued);
+                toRun.add(task);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        toRun.forEach(task -> Schedulers.boundedElastic().schedule(() -> this.run(task)));
+    }
+
+    /**
+     * Schedules a re-check of the bucket, unless one is already pending which fires sooner
+     * <p>
+     * A pending wakeup which fires later is replaced, so that a higher priority request submitted while a lower priority one is waiting
+     * for a larger share of the bucket is not held back until the lower priority wakeup fires
+     * <p>
+     * Must be called while holding the lock
+     *
+     * @param delayMs the number of milliseconds until enough points will have been returned to the bucket
+     */
+    private void scheduleWakeup(long delayMs) {
+        long at = System.nanoTime() + (delayMs * 1_000_000L);
+
+        if (this.wakeup != null && at - this.wakeupAt >= 0L) {
+            return;
+        }
+
+        if (this.wakeup != null) {
+            this.wakeup.dispose();
+        }
+
+        this.wakeupAt = at;
+        this.wakeup = Mono.delay(Duration.ofMillis(delayMs)).subscribe(v -> {
+            this.lock.lock();
+            try {
+                if (this.wakeupAt == at) {
+                    this.wakeup = null;
+                }
+            } finally {
+                this.lock.unlock();
+            }
+
+            this.drain();
+        });
+    }
+
+    /**
+     * Adds the points which have been returned to the bucket since the last refill
+     * <p>
+     * Must be called while holding the lock
+     */
+    private void refill() {
+        long now = System.nanoTime();
+        this.tokens = Math.min(this.maxTokens, this.tokens + ((now - this.refilled) / 1_000_000.0) * this.maxTokens / REFILL_MS);
+        this.refilled = now;
+    }
+
+    /**
+     * Executes a request, then releases its slot before emitting the result, so that downstream operators which make further Helix
+     * requests can not exhaust the in-flight limit
+     *
+     * @param task the request
+     */
+    private void run(Task task) {
+        JSONObject result = null;
+        RuntimeException error = null;
+        long start = System.nanoTime();
+
+        try {
+            result = task.action.get();
+        } catch (RuntimeException ex) {
+            error = ex;
+        } finally {
+            this.stats.get(task.priority).recordExecute(System.nanoTime() - start);
+            this.lock.lock();
+            try {
+                this.inFlight--;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        this.drain();
+
+        if (error != null) {
+            task.emitter.error(error);
+        } else {
+            task.emitter.success(result);
+        }
+    }
+
+    /**
+     * Returns human-readable queue depth, in-flight count, and wait time statistics
+     *
+     * @return the statistics
+     */
+    List<String> stats() {
+        List<String> lines = new ArrayList<>();
+        Map<Priority, Integer> depths = new EnumMap<>(Priority.class);
+
+        this.lock.lock();
+        try {
+            this.refill();
+            lines.add(String.format("Helix scheduler: inFlight=%d/%d bucket=%.1f/%d", this.inFlight, this.maxInFlight, this.tokens,
+                    this.maxTokens));
+
+            this.queues.forEach((priority, queue) -> depths.put(priority, queue.size()));
+        } finally {
+            this.lock.unlock();
+        }
+
+        for (Priority priority : Priority.values()) {
+            lines.add(priority.name() + ": " + this.stats.get(priority).toString(depths.get(priority)));
+        }
+
+        return lines;
+    }
+
+    /**
+     * A queued request
+     */
+    private record Task(Priority priority, Supplier<JSONObject> action, MonoSink<JSONObject> emitter, long queued) {
+    }
+
+    /**
+     * Counters for a single priority
+     */
+    private static final class PriorityStats {
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder started = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong(0L);
+        private final LongAdder executeNanos = new LongAdder();
+        private final AtomicLong maxExecuteNanos = new AtomicLong(0L);
+
+        private void recordWait(long nanos) {
+            this.started.increment();
+            this.waitNanos.add(nanos);
+            this.maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private void recordExecute(long nanos) {
+            this.executeNanos.add(nanos);
+            this.maxExecuteNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private String toString(int depth) {
+            long s = this.started.sum();
+            return String.format("queued=%d submitted=%d started=%d avgWait=%.3fms maxWait=%.3fms avgExecute=%.3fms maxExecute=%.3fms", depth,
+                    this.submitted.sum(), s, s == 0 ? 0.0 : (this.waitNanos.sum() / 1_000_000.0) / s, this.maxWaitNanos.get() / 1_000_000.0,
+                    s == 0 ? 0.0 : (this.executeNanos.sum() / 1_000_000.0) / s, this.maxExecuteNanos.get() / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2016-2023 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.twitch.api;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Collects individual user lookups over a short window and performs them as a single Get Users request
+ * <p>
+ * Duplicate ids and logins are only requested once. Each caller receives a copy of the response whose {@code data} array only contains the
+ * users it asked for, so callers can not tell that their lookup was batched
+ * <p>
+ * The batch is submitted to the scheduler with the most urgent priority of its callers. If the batched request fails, each caller is retried
+ * with its own request, so that one invalid id or login does not fail the other callers
+ */
+final class HelixUserBatcher {
+    /**
+     * The maximum number of ids and logins in a single Get Users request
+     */
+    static final int MAX_KEYS = 100;
+    /**
+     * How long lookups are collected before the batch is sent
+     */
+    private static final Duration WINDOW = Duration.ofMillis(50);
+    private final Fetcher fetcher;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private Batch current = null;
+
+    /**
+     * Constructor
+     *
+     * @param fetcher the function which performs a Get Users request for a list of ids and a list of logins
+     */
+    HelixUserBatcher(Fetcher fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * Queues a lookup in the current batch
+     *
+     * @param id the user ids to lookup
+     * @param login the user logins to lookup
+     * @param priority the priority of the caller
+     * @return a mono which emits the response, filtered to the requested users
+     */
+    Mono<JSONObject> lookup(List<String> id, List<String> login, HelixScheduler.Priority priority) {
+        List<String> ids = id == null ? List.of() : id;
+        List<String> logins = login == null ? List.of() : login.stream().map(l -> l.toLowerCase(Locale.ROOT)).toList();
+
+        return Mono.<JSONObject>create(emitter -> {
+            this.lookups.increment();
+            List<Batch> toSend = new ArrayList<>(2);
+            Batch scheduled = null;
+
+            synchronized (this) {
+                if (this.current != null && !this.current.fits(ids, logins)) {
+                    toSend.add(this.current);
+                    this.current = null;
+                }
+
+                if (this.current == null) {
+                    this.current = new Batch();
+                    scheduled = this.current;
+                }
+
+                Batch batch = this.current;
+                batch.add(new Waiter(ids, logins, priority, emitter));
+
+                if (batch.size() >= MAX_KEYS) {
+                    toSend.add(batch);
+                    this.current = null;
+                    scheduled = null;
+                }
+            }
+
+            toSend.forEach(this::send);
+
+            if (scheduled != null) {
+                Batch batch = scheduled;
+                Mono.delay(WINDOW).subscribe(l -> this.flush(batch));
+            }
+        }).cache();
+    }
+
+    /**
+     * Sends the batch if it is still the current batch
+     *
+     * @param batch the batch whose window has expired
+     */
+    private void flush(Batch batch) {
+        synchronized (this) {
+            if (this.current != batch) {
+                return;
+            }
+
+            this.current = null;
+        }
+
+        this.send(batch);
+    }
+
+    /**
+     * Performs the request for a batch and fans the response out to each waiting caller
+     *
+     * @param batch the batch
+     */
+    private void send(Batch batch) {
+        this.requests.increment();
+        this.fetcher.fetch(new ArrayList<>(batch.ids), new ArrayList<>(batch.logins), batch.priority).subscribe(jso -> {
+            if (batch.waiters.size() > 1 && isRetriable(jso)) {
+                batch.waiters.forEach(this::sendAlone);
+                return;
+            }
+
+            for (Waiter waiter : batch.waiters) {
+                waiter.emitter.success(filter(jso, waiter));
+            }
+        }, ex -> {
+            if (batch.waiters.size() > 1) {
+                batch.waiters.forEach(this::sendAlone);
+                return;
+            }
+
+            for (Waiter waiter : batch.waiters) {
+                waiter.emitter.error(ex);
+            }
+        }, () -> {
+            for (Waiter waiter : batch.waiters) {
+                waiter.emitter.success();
+            }
+        });
+    }
+
+    /**
+     * Performs the request of a single waiter, after its batch failed
+     *
+     * @param waiter the waiter
+     */
+    private void sendAlone(Waiter waiter) {
+        this.requests.increment();
+        this.fallbacks.increment();
+        this.fetcher.fetch(waiter.ids, waiter.logins, waiter.priority).subscribe(jso -> waiter.emitter.success(filter(jso, waiter)),
+                waiter.emitter::error, waiter.emitter::success);
+    }
+
+    /**
+     * Indicates if a failed batch should be retried with one request per waiter
+     * <p>
+     * Authorization and rate limit errors would fail every request in the same way, so those are passed on to the waiters
+     *
+     * @param jso the response
+     * @return {@code true} if the response is an error which may be caused by one of the ids or logins
+     */
+    private static boolean isRetriable(JSONObject jso) {
+        if (jso == null || !jso.has("error")) {
+            return false;
+        }
+
+        int status = jso.optInt("status", 0);
+        return status != 401 && status != 429;
+    }
+
+    /**
+     * Copies the response, keeping only the users requested by the waiter in the {@code data} array
+     *
+     * @param jso the response
+     * @param waiter the waiter
+     * @return the filtered copy of the response
+     */
+    private static JSONObject filter(JSONObject jso, Waiter waiter) {
+        if (jso == null) {
+            return null;
+        }
+
+        String[] names = JSONObject.getNames(jso);
+        JSONObject copy = names == null ? new JSONObject() : new JSONObject(jso, names);
+        JSONArray data = jso.optJSONArray("data");
+
+        if (data != null) {
+            JSONArray filtered = new JSONArray();
+            for (int i = 0; i < data.length(); i++) {
+                JSONObject user = data.optJSONObject(i);
+                if (user != null && (waiter.ids.contains(user.optString("id")) || waiter.logins.contains(user.optString("login").toLowerCase(Locale.ROOT)))) {
+                    filtered.put(user);
+                }
+            }
+
+            copy.put("data", filtered);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Returns human-readable statistics for the batcher
+     *
+     * @return the statistics
+     */
+    String stats() {
+        return String.format("Helix user batcher: lookups=%d requests=%d fallbacks=%d", this.lookups.sum(), this.requests.sum(), this.fallbacks.sum());
+    }
+
+    /**
+     * Performs a Get Users request
+     */
+    @FunctionalInterface
+    interface Fetcher {
+        /**
+         * Performs a Get Users request through the scheduler
+         *
+         * @param ids the user ids to lookup
+         * @param logins the user logins to lookup
+         * @param priority the priority of the request in the scheduler
+         * @return a mono which emits the response
+         */
+        Mono<JSONObject> fetch(List<String> ids, List<String> logins, HelixScheduler.Priority priority);
+    }
+
+    /**
+     * A caller waiting for a batch
+     */
+    private record Waiter(List<String> ids, List<String> logins, HelixScheduler.Priority priority, MonoSink<JSONObject> emitter) {
+    }
+
+    /**
+     * The lookups collected during a single window
+     */
+    private static final class Batch {
+        private final Set<String> ids = new LinkedHashSet<>();
+        private final Set<String> logins = new LinkedHashSet<>();
+        private final List<Waiter> waiters = new ArrayList<>();
+        /**
+         * The most urgent priority of the waiters
+         */
+        private HelixScheduler.Priority priority = HelixScheduler.Priority.LOW;
+
+        private int size() {
+            return this.ids.size() + this.logins.size();
+        }
+
+        /**
+         * Indicates if the keys can be added without exceeding {@link #MAX_KEYS}
+         */
+        private boolean fits(List<String> ids, List<String> logins) {
+            int added = (int) ids.stream().filter(i -> !this.ids.contains(i)).distinct().count()
+                    + (int) logins.stream().filter(l -> !this.logins.contains(l)).distinct().count();
+            return this.size() + added <= MAX_KEYS;
+        }
+
+        private void add(Waiter waiter) {
+            this.ids.addAll(waiter.ids);
+            this.logins.addAll(waiter.logins);
+            this.waiters.add(waiter);
+
+            if (waiter.priority.compareTo(this.priority) < 0) {
+                this.priority = waiter.priority;
+            }
+        }
+    }
+}
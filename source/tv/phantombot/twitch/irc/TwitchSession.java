@@ -177,17 +177,36 @@ public class TwitchSession extends MessageQueue {
     }
 
     @Override
-    public void onNext(Message message) {
+    protected int maxLength(boolean isAction) {
+        return PhantomBot.instance().getTMI().privMsgMaxLength(this.getChannelName(), isAction, null) + (isAction ? 4 : 0);
+    }
+
+    @Override
+    public void onNext(Message wakeup) {
+        if (!this.hasPendingMessages()) {
+            this.subscription.request(1);
+            return;
+        }
+
         if (this.isAllowedToSend) {
             if (!PhantomBot.instance().getTMI().rateLimiter().isTokenAvailable()) {
                 long time = Instant.now().until(PhantomBot.instance().getTMI().rateLimiter().nextReset(), ChronoUnit.MILLIS);
                 com.gmt2001.Console.warn.println("Message limit of (" + PhantomBot.instance().getTMI().rateLimiter().limit() + ") has been reached. Messages will be sent again in " + time + "ms");
             }
 
+            /* The message is chosen once a token is available, so that higher priority messages queued while waiting are sent first */
             PhantomBot.instance().getTMI().rateLimiter().waitAndRun(() -> {
-                this.send(message.getMessage());
-                com.gmt2001.Console.out.println("[CHAT] " + message.getMessage());
+                Message message = this.nextMessage();
+                if (message != null) {
+                    this.send(message.getMessage());
+                    com.gmt2001.Console.out.println("[CHAT] " + message.getMessage());
+                }
+
+                this.requestNext();
             });
+        } else {
+            this.nextMessage();
+            this.requestNext();
         }
 
         if (Instant.now().isAfter(this.nextReminder)) {
@@ -202,8 +221,17 @@ public class TwitchSession extends MessageQueue {
 
             this.nextReminder = Instant.now().plusMillis(REMINDER_INTERVAL);
         }
+    }
 
+    /**
+     * Requests the next wake-up once a token is available, re-arming it if messages are waiting but their wake-ups were dropped
+     */
+    private void requestNext() {
         PhantomBot.instance().getTMI().rateLimiter().waitAndRun(() -> {
+            if (this.estimateMaximumLag() == 0 && this.hasPendingMessages()) {
+                this.wakeup();
+            }
+
             this.subscription.request(1);
         });
     }
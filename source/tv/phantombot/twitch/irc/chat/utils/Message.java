@@ -19,6 +19,26 @@ package tv.phantombot.twitch.irc.chat.utils;
 public class Message {
 
     private final String message;
+    private final Priority priority;
+    private final long enqueued;
+
+    /**
+     * The lane a message is queued in; messages in a higher priority lane are always sent first
+     */
+    public enum Priority {
+        /**
+         * Moderation actions and warnings; never expire
+         */
+        HIGH,
+        /**
+         * Command replies and other normal messages
+         */
+        NORMAL,
+        /**
+         * Timed notices and other messages which can be sent late, or dropped
+         */
+        LOW
+    }
 
     /**
      * Class constructor.
@@ -26,7 +46,19 @@ public class Message {
      * @param message
      */
     public Message(String message) {
+        this(message, Priority.NORMAL);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param message
+     * @param priority
+     */
+    public Message(String message, Priority priority) {
         this.message = message;
+        this.priority = priority;
+        this.enqueued = System.nanoTime();
     }
 
     /**
@@ -37,4 +69,40 @@ public class Message {
     public String getMessage() {
         return this.message;
     }
+
+    /**
+     * Method that returns the priority lane of the message.
+     *
+     * @return priority
+     */
+    public Priority getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * Method that returns when the message was queued, from {@link System#nanoTime()}.
+     *
+     * @return enqueued
+     */
+    public long getEnqueued() {
+        return this.enqueued;
+    }
+
+    /**
+     * Method that returns if the message is a {@code /me} action.
+     *
+     * @return
+     */
+    public boolean isAction() {
+        return this.message.regionMatches(true, 0, "/me ", 0, 4);
+    }
+
+    /**
+     * Method that returns if the message is a slash or dot command, other than {@code /me}.
+     *
+     * @return
+     */
+    public boolean isCommand() {
+        return !this.isAction() && (this.message.startsWith("/") || this.message.startsWith("."));
+    }
 }
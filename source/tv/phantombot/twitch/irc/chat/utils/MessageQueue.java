@@ -17,12 +17,38 @@
 package tv.phantombot.twitch.irc.chat.utils;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Flow;
 import java.util.concurrent.Flow.Processor;
 import java.util.concurrent.Flow.Subscription;
 import java.util.concurrent.SubmissionPublisher;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
+import tv.phantombot.CaselessProperties;
+
+/**
+ * Outbound chat queue
+ * <p>
+ * Messages wait in a lane for their {@link Message.Priority}, and the highest priority non-empty lane is always sent first, so that
+ * moderation warnings and command replies are not stuck behind timer notices when the rate limit is reached. Items published to the
+ * subscriber are only wake-ups; the message to send is chosen by {@link #nextMessage()} once the rate limiter allows a message to be sent,
+ * which allows stale messages to be dropped, duplicates to be suppressed, and consecutive short messages to be merged
+ * <p>
+ * A message is a duplicate if it is already waiting in the same or a higher priority lane. If it is only waiting in a lower priority lane,
+ * the waiting copy is removed, so that the message is promoted to the new lane rather than sent twice
+ * <p>
+ * The lanes share a bounded capacity. When it is reached, the oldest message of the lowest priority non-empty lane is dropped, as long as
+ * that lane is not higher than the new message; otherwise the new message is dropped. {@link Message.Priority#HIGH} messages, such as
+ * moderation commands, are never dropped
+ */
 public abstract class MessageQueue extends SubmissionPublisher<Message> implements Processor<Message, Message> {
 
     protected final String channelName;
@@ -30,6 +56,20 @@ public abstract class MessageQueue extends SubmissionPublisher<Message> implemen
     protected Instant nextReminder = Instant.now();
     protected static final long REMINDER_INTERVAL = 300000L;
     protected Subscription subscription;
+    /**
+     * The item published to the subscriber to signal that a lane has a message
+     */
+    protected static final Message WAKEUP = new Message("", Message.Priority.HIGH);
+    /**
+     * The maximum number of messages waiting in all lanes; only {@link Message.Priority#HIGH} messages may exceed it
+     */
+    private static final int CAPACITY = 500;
+    /**
+     * The separator placed between merged messages
+     */
+    private static final String MERGE_SEPARATOR = " | ";
+    private final Map<Message.Priority, Lane> lanes = new EnumMap<>(Message.Priority.class);
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      * Class constructor.
@@ -40,6 +80,10 @@ public abstract class MessageQueue extends SubmissionPublisher<Message> implemen
         super();
         this.channelName = channelName;
 
+        for (Message.Priority priority : Message.Priority.values()) {
+            this.lanes.put(priority, new Lane());
+        }
+
         // Set the default thread uncaught exception handler.
         Thread.setDefaultUncaughtExceptionHandler(com.gmt2001.UncaughtExceptionHandler.instance());
     }
@@ -63,32 +107,338 @@ public abstract class MessageQueue extends SubmissionPublisher<Message> implemen
     }
 
     /**
-     * Attempts to enqueue a message, timing out after 5 seconds.
+     * Enqueues a message in the normal priority lane.
      *
      * @param message
      */
     public void say(String message) {
-        message = message.replace('\r', ' ');
-        String[] spl = message.split("\n");
-        for (String str : spl) {
-            this.offer(new Message(str), 5, TimeUnit.SECONDS, (s, m) -> {
-                com.gmt2001.Console.warn.println("Failed to submit message: " + m.getMessage());
-                return false;
-            });
-        }
+        this.say(message, Message.Priority.NORMAL);
     }
 
     /**
-     * Attempts to enqueue a message until success.
+     * Enqueues a message in the high priority lane, ahead of all normal and low priority messages.
      *
      * @param message
      */
     public void sayNow(String message) {
+        this.say(message, Message.Priority.HIGH);
+    }
+
+    /**
+     * Enqueues a message in the low priority lane, behind all high and normal priority messages.
+     *
+     * @param message
+     */
+    public void sayLowPriority(String message) {
+        this.say(message, Message.Priority.LOW);
+    }
+
+    /**
+     * Enqueues a message in the specified lane. Each line of the message is queued as a separate message.
+     *
+     * @param message
+     * @param priority
+     */
+    public void say(String message, Message.Priority priority) {
         message = message.replace('\r', ' ');
         String[] spl = message.split("\n");
-        for (String str : spl) {
-            this.submit(new Message(str));
+        /**
+         * @botproperty chatqueuededup - If `true`, a chat message is dropped if an identical message is already waiting to be sent with the same or a higher priority. Default `true`
+         * @botpropertycatsort chatqueuededup 810 20 Twitch
+         */
+        boolean dedup = CaselessProperties.instance().getPropertyAsBoolean("chatqueuededup", true);
+
+        this.lock.lock();
+        try {
+            for (String str : spl) {
+                Message m = new Message(str, priority);
+                Lane lane = this.lanes.get(priority);
+
+                boolean dedupMessage = dedup && !m.isCommand();
+
+                if (dedupMessage && this.isPendingAtOrAbove(str, priority)) {
+                    lane.stats.duplicates.increment();
+                    continue;
+                }
+
+                if (this.size() >= CAPACITY && !this.dropLowest(priority) && priority != Message.Priority.HIGH) {
+                    lane.stats.overflow.increment();
+                    continue;
+                }
+
+                if (dedupMessage) {
+                    this.removeBelow(str, priority);
+                }
+
+                lane.messages.addLast(m);
+                lane.pending.merge(str, 1, Integer::sum);
+                lane.stats.enqueued.increment();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        this.wakeup();
+    }
+
+    /**
+     * Returns the number of messages waiting in all lanes
+     * <p>
+     * Must be called while holding the lock
+     *
+     * @return the number of messages
+     */
+    private int size() {
+        int size = 0;
+
+        for (Lane lane : this.lanes.values()) {
+            size += lane.messages.size();
+        }
+
+        return size;
+    }
+
+    /**
+     * Drops the oldest message of the lowest priority non-empty lane, if that lane is not higher than the specified lane and is not
+     * {@link Message.Priority#HIGH}
+     * <p>
+     * Must be called while holding the lock
+     *
+     * @param priority the lane of the message being added
+     * @return {@code true} if a message was dropped
+     */
+    private boolean dropLowest(Message.Priority priority) {
+        Message.Priority[] priorities = Message.Priority.values();
+
+        for (int i = priorities.length - 1; i >= priority.ordinal() && priorities[i] != Message.Priority.HIGH; i--) {
+            Lane lane = this.lanes.get(priorities[i]);
+            Message m = lane.messages.pollFirst();
+
+            if (m != null) {
+                this.unpend(m);
+                lane.stats.overflow.increment();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates if a message is waiting in the specified lane, or in a higher priority lane
+     * <p>
+     * Must be called while holding the lock
+     *
+     * @param str the message text
+     * @param priority the lane
+     * @return {@code true} if the message is waiting
+     */
+    private boolean isPendingAtOrAbove(String str, Message.Priority priority) {
+        for (Map.Entry<Message.Priority, Lane> entry : this.lanes.entrySet()) {
+            if (entry.getKey().compareTo(priority) <= 0 && entry.getValue().pending.containsKey(str)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes the waiting copies of a message from the lanes with a lower priority than the specified lane
+     * <p>
+     * Must be called while holding the lock
+     *
+     * @param str the message text
+     * @param priority the lane which the message is being promoted to
+     */
+    private void removeBelow(String str, Message.Priority priority) {
+        for (Map.Entry<Message.Priority, Lane> entry : this.lanes.entrySet()) {
+            Lane lane = entry.getValue();
+
+            if (entry.getKey().compareTo(priority) <= 0 || !lane.pending.containsKey(str)) {
+                continue;
+            }
+
+            Iterator<Message> it = lane.messages.iterator();
+
+            while (it.hasNext()) {
+                Message m = it.next();
+
+                if (m.getMessage().equals(str)) {
+                    it.remove();
+                    this.unpend(m);
+                    lane.stats.promoted.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Signals the subscriber that a message is waiting, without blocking. If the subscriber already has wake-ups buffered, the signal is
+     * dropped, as it will check the lanes again after each send.
+     */
+    protected void wakeup() {
+        if (!this.isClosed()) {
+            this.offer(WAKEUP, (s, m) -> false);
+        }
+    }
+
+    /**
+     * Indicates if any lane has a message waiting.
+     *
+     * @return
+     */
+    public boolean hasPendingMessages() {
+        this.lock.lock();
+        try {
+            for (Lane lane : this.lanes.values()) {
+                if (!lane.messages.isEmpty()) {
+                    return true;
+                }
+            }
+
+            return false;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next message to send from the highest priority non-empty lane. Normal and low priority messages which have waited longer than
+     * {@code chatqueuettl} are dropped. If enabled, consecutive short messages in the same lane are merged up to {@link #maxLength(boolean)}.
+     *
+     * @return the message; {@code null} if all lanes are empty
+     */
+    public Message nextMessage() {
+        /**
+         * @botproperty chatqueuettl - The number of seconds a normal or low priority chat message may wait to be sent before it is dropped. `0` to never drop. Default `60`
+         * @botpropertycatsort chatqueuettl 820 20 Twitch
+         */
+        long ttl = CaselessProperties.instance().getPropertyAsLong("chatqueuettl", 60L) * 1_000_000_000L;
+        /**
+         * @botproperty chatqueuemerge - If `true`, consecutive short chat messages of the same priority are combined into a single message, separated by ` | `, when they are waiting to be sent. Default `false`
+         * @botpropertycatsort chatqueuemerge 830 20 Twitch
+         */
+        boolean merge = CaselessProperties.instance().getPropertyAsBoolean("chatqueuemerge", false);
+        long now = System.nanoTime();
+
+        this.lock.lock();
+        try {
+            for (Message.Priority priority : Message.Priority.values()) {
+                ArrayDeque<Message> lane = this.lanes.get(priority).messages;
+                LaneStats lstats = this.lanes.get(priority).stats;
+                Message m;
+
+                while ((m = lane.pollFirst()) != null) {
+                    this.unpend(m);
+
+                    if (ttl > 0L && priority != Message.Priority.HIGH && now - m.getEnqueued() > ttl) {
+                        lstats.expired.increment();
+                        continue;
+                    }
+
+                    lstats.recordSent(now - m.getEnqueued());
+
+                    if (merge && !m.isCommand()) {
+                        m = this.mergeFollowing(m, lane, lstats, ttl, now);
+                    }
+
+                    return m;
+                }
+            }
+
+            return null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the messages following the first message in the lane to it, while they fit within the maximum length
+     * <p>
+     * Must be called while holding the lock
+     *
+     * @param first the message which was taken from the lane
+     * @param lane the lane
+     * @param lstats the lane statistics
+     * @param ttl the time to live, in nanoseconds
+     * @param now the current time, from {@link System#nanoTime()}
+     * @return the merged message; {@code first} if nothing was merged
+     */
+    private Message mergeFollowing(Message first, ArrayDeque<Message> lane, LaneStats lstats, long ttl, long now) {
+        boolean isAction = first.isAction();
+        int max = this.maxLength(isAction);
+        StringBuilder sb = null;
+        Message next;
+
+        while ((next = lane.peekFirst()) != null && !next.isCommand() && next.isAction() == isAction
+                && (ttl <= 0L || first.getPriority() == Message.Priority.HIGH || now - next.getEnqueued() <= ttl)) {
+            String text = isAction ? next.getMessage().substring(4) : next.getMessage();
+            int length = (sb == null ? first.getMessage().length() : sb.length()) + MERGE_SEPARATOR.length() + text.length();
+
+            if (length > max) {
+                break;
+            }
+
+            if (sb == null) {
+                sb = new StringBuilder(first.getMessage());
+            }
+
+            sb.append(MERGE_SEPARATOR).append(text);
+            this.unpend(lane.pollFirst());
+            lstats.recordSent(now - next.getEnqueued());
+            lstats.merged.increment();
+        }
+
+        return sb == null ? first : new Message(sb.toString(), first.getPriority());
+    }
+
+    /**
+     * Removes a message from the duplicate suppression map
+     * <p>
+     * Must be called while holding the lock
+     *
+     * @param m the message
+     */
+    private void unpend(Message m) {
+        if (m != null) {
+            this.lanes.get(m.getPriority()).pending.computeIfPresent(m.getMessage(), (k, v) -> v > 1 ? v - 1 : null);
+        }
+    }
+
+    /**
+     * The maximum length of a merged message, including the {@code /me } prefix of actions
+     *
+     * @param isAction if the message is a {@code /me} action
+     * @return the maximum length
+     */
+    protected int maxLength(boolean isAction) {
+        return 500 - this.channelName.length() - 12;
+    }
+
+    /**
+     * Returns human-readable depth, drop, and queue age statistics for each lane
+     *
+     * @return the statistics
+     */
+    public List<String> stats() {
+        List<String> lines = new ArrayList<>();
+        Map<Message.Priority, Integer> depths = new EnumMap<>(Message.Priority.class);
+
+        this.lock.lock();
+        try {
+            this.lanes.forEach((priority, lane) -> depths.put(priority, lane.messages.size()));
+        } finally {
+            this.lock.unlock();
         }
+
+        lines.add("Chat queue (" + this.channelName + "): capacity=" + CAPACITY + " wakeupsBuffered=" + this.estimateMaximumLag());
+
+        for (Message.Priority priority : Message.Priority.values()) {
+            lines.add(priority.name() + ": " + this.lanes.get(priority).stats.toString(depths.get(priority)));
+        }
+
+        return lines;
     }
 
     /**
@@ -106,6 +456,46 @@ public abstract class MessageQueue extends SubmissionPublisher<Message> implemen
         this.subscription.request(1);
     }
 
+    /**
+     * The messages waiting in a single lane
+     */
+    private static final class Lane {
+        private final ArrayDeque<Message> messages = new ArrayDeque<>();
+        /**
+         * The number of copies of each message text in {@link #messages}, for duplicate suppression
+         */
+        private final Map<String, Integer> pending = new HashMap<>();
+        private final LaneStats stats = new LaneStats();
+    }
+
+    /**
+     * Counters for a single lane
+     */
+    private static final class LaneStats {
+        private final LongAdder enqueued = new LongAdder();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder expired = new LongAdder();
+        private final LongAdder duplicates = new LongAdder();
+        private final LongAdder promoted = new LongAdder();
+        private final LongAdder merged = new LongAdder();
+        private final LongAdder overflow = new LongAdder();
+        private final LongAdder ageNanos = new LongAdder();
+        private final AtomicLong maxAgeNanos = new AtomicLong(0L);
+
+        private void recordSent(long nanos) {
+            this.sent.increment();
+            this.ageNanos.add(nanos);
+            this.maxAgeNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private String toString(int depth) {
+            long s = this.sent.sum();
+            return String.format("depth=%d enqueued=%d sent=%d merged=%d expired=%d duplicates=%d promoted=%d overflow=%d avgAge=%.3fms maxAge=%.3fms",
+                    depth, this.enqueued.sum(), s, this.merged.sum(), this.expired.sum(), this.duplicates.sum(), this.promoted.sum(), this.overflow.sum(),
+                    s == 0 ? 0.0 : (this.ageNanos.sum() / 1_000_000.0) / s, this.maxAgeNanos.get() / 1_000_000.0);
+        }
+    }
+
     @Override
     public void onError(Throwable thrwbl) {
         com.gmt2001.Console.err.printStackTrace(thrwbl);